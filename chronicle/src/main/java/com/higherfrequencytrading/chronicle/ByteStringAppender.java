@@ -19,6 +19,8 @@ package com.higherfrequencytrading.chronicle;
 import com.higherfrequencytrading.chronicle.math.MutableDecimal;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author peter.lawrey
  */
@@ -63,6 +65,16 @@ public interface ByteStringAppender extends Appendable {
     @NotNull
     ByteStringAppender appendDateTime(long timeInMS);
 
+    /**
+     * Append a UTC timestamp without creating any objects.
+     *
+     * @param timestamp since the epoch in the given units.
+     * @param unit      of the timestamp, this also sets the number of fraction digits written.
+     * @param format    to write e.g. ISO_8601 or FIX
+     */
+    @NotNull
+    ByteStringAppender appendTimestamp(long timestamp, @NotNull TimeUnit unit, @NotNull TimestampFormat format);
+
 // TODO
 //   ByteStringAppender append(float f);
 
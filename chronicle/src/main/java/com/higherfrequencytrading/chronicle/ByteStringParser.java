@@ -20,6 +20,8 @@ import com.higherfrequencytrading.chronicle.math.MutableDecimal;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author peter.lawrey
  */
@@ -39,6 +41,16 @@ public interface ByteStringParser {
 
     public double parseDouble();
 
+    /**
+     * Parse a UTC timestamp in either TimestampFormat, with any number of fraction digits, and the stop char after it.
+     * ISO 8601 timestamps can have an offset from UTC such as +02:00 instead of the Z. The day must be valid for the
+     * month and anything after the timestamp which could be part of it rather than a stop char is an error.
+     *
+     * @param unit of the result, fraction digits beyond its precision are truncated.
+     * @return the time since the epoch in the given units.
+     */
+    public long parseTimestamp(@NotNull TimeUnit unit);
+
     /**
      * Make sure we just read a stop character
      *
@@ -83,4 +83,14 @@ public interface Chronicle extends Closeable {
      */
     @Nullable
     <E> EnumeratedMarshaller<E> getMarshaller(@NotNull Class<E> eClass);
+
+    /**
+     * Register a class so writeObject writes a stop bit encoded id rather than its name. The reader must register the
+     * same classes with the same ids.
+     *
+     * @param aClass to register
+     * @param id     a small id for this class, unique for this chronicle.
+     * @throws IllegalArgumentException if the id or the class is already registered differently.
+     */
+    void registerClass(@NotNull Class aClass, int id) throws IllegalArgumentException;
 }
@@ -16,12 +16,18 @@
 
 package com.higherfrequencytrading.chronicle;
 
+import com.higherfrequencytrading.chronicle.impl.DoubleList;
 import com.higherfrequencytrading.chronicle.impl.ExcerptComparator;
+import com.higherfrequencytrading.chronicle.impl.IntList;
+import com.higherfrequencytrading.chronicle.impl.LongDoubleMap;
+import com.higherfrequencytrading.chronicle.impl.LongList;
+import com.higherfrequencytrading.chronicle.impl.LongLongMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Collection;
 import java.util.List;
@@ -104,6 +110,21 @@ public interface Excerpt extends RandomDataInput, RandomDataOutput, ByteStringAp
     @NotNull
     ByteOrder order();
 
+    /**
+     * A view of the unread bytes of this excerpt without copying them.  The view is only valid until the index is
+     * changed or finish() is called.
+     *
+     * @return a direct ByteBuffer with its position and limit set to the position and capacity of this excerpt.
+     */
+    @NotNull
+    ByteBuffer byteBuffer();
+
+    /**
+     * @return the native address of the start of this excerpt, only valid until the index is changed or finish() is
+     *         called.
+     */
+    long address();
+
     /**
      * Start a new excerpt in the Chronicle.
      *
@@ -184,6 +205,42 @@ public interface Excerpt extends RandomDataInput, RandomDataOutput, ByteStringAp
     @NotNull
     <K, V> Map<K, V> readMap(@NotNull Class<K> kClass, @NotNull Class<V> vClass);
 
+    /**
+     * Write a list of longs as a type and length header followed by the raw values, without boxing.
+     */
+    void writeLongList(@NotNull LongList list);
+
+    /**
+     * Read what was written with writeLongList, replacing the contents of the list.
+     *
+     * @throws IllegalStateException if a list of longs was not written here.
+     */
+    void readLongList(@NotNull LongList list) throws IllegalStateException;
+
+    void writeIntList(@NotNull IntList list);
+
+    void readIntList(@NotNull IntList list) throws IllegalStateException;
+
+    void writeDoubleList(@NotNull DoubleList list);
+
+    void readDoubleList(@NotNull DoubleList list) throws IllegalStateException;
+
+    /**
+     * Write a map as a type and size header followed by the raw keys and values, without boxing.
+     */
+    void writeLongLongMap(@NotNull LongLongMap map);
+
+    /**
+     * Read what was written with writeLongLongMap, replacing the contents of the map.
+     *
+     * @throws IllegalStateException if a map of long to long was not written here.
+     */
+    void readLongLongMap(@NotNull LongLongMap map) throws IllegalStateException;
+
+    void writeLongDoubleMap(@NotNull LongDoubleMap map);
+
+    void readLongDoubleMap(@NotNull LongDoubleMap map) throws IllegalStateException;
+
     /**
      * The last index which can be safely read without blocking.
      *
@@ -99,6 +99,24 @@ public interface RandomDataInput extends ObjectInput, RandomAccess {
 
     long readLong(int offset);
 
+    /**
+     * Read an int with volatile semantics so it sees the latest value written by writeOrderedInt or
+     * compareAndSwapInt in any thread or process.
+     *
+     * @param offset of the int, which should be aligned to 4 bytes in memory.
+     * @return the int value
+     */
+    int readVolatileInt(int offset);
+
+    /**
+     * Read a long with volatile semantics so it sees the latest value written by writeOrderedLong or
+     * compareAndSwapLong in any thread or process.
+     *
+     * @param offset of the long, which should be aligned to 8 bytes in memory.
+     * @return the long value
+     */
+    long readVolatileLong(int offset);
+
     /**
      * @return read a 48 bit long value.
      */
@@ -128,6 +146,21 @@ public interface RandomDataInput extends ObjectInput, RandomAccess {
 
     double readCompactDouble();
 
+    /**
+     * Bulk read of values written with writeInts.
+     *
+     * @param ints to read into
+     * @param off  the first element to read into
+     * @param len  the number of values to read
+     */
+    void readInts(@NotNull int[] ints, int off, int len);
+
+    void readLongs(@NotNull long[] longs, int off, int len);
+
+    void readFloats(@NotNull float[] floats, int off, int len);
+
+    void readDoubles(@NotNull double[] doubles, int off, int len);
+
     @Override
     @Nullable
     String readLine();
@@ -102,6 +102,60 @@ public interface RandomDataOutput extends ObjectOutput, RandomAccess {
 
     void writeLong(int offset, long v);
 
+    /**
+     * Write an int so that all previous writes are visible before it, without waiting for the write to complete.
+     *
+     * @param offset of the int, which should be aligned to 4 bytes in memory.
+     * @param v      value to write
+     */
+    void writeOrderedInt(int offset, int v);
+
+    /**
+     * Write a long so that all previous writes are visible before it, without waiting for the write to complete.
+     *
+     * @param offset of the long, which should be aligned to 8 bytes in memory.
+     * @param v      value to write
+     */
+    void writeOrderedLong(int offset, long v);
+
+    /**
+     * Atomically set an int if it is currently the expected value.
+     *
+     * @param offset   of the int, which should be aligned to 4 bytes in memory.
+     * @param expected the value it must be
+     * @param x        the value to set
+     * @return true if the value was set
+     */
+    boolean compareAndSwapInt(int offset, int expected, int x);
+
+    /**
+     * Atomically set a long if it is currently the expected value.
+     *
+     * @param offset   of the long, which should be aligned to 8 bytes in memory.
+     * @param expected the value it must be
+     * @param x        the value to set
+     * @return true if the value was set
+     */
+    boolean compareAndSwapLong(int offset, long expected, long x);
+
+    /**
+     * Atomically add to an int.
+     *
+     * @param offset of the int, which should be aligned to 4 bytes in memory.
+     * @param delta  to add
+     * @return the value before the add
+     */
+    int getAndAddInt(int offset, int delta);
+
+    /**
+     * Atomically add to a long.
+     *
+     * @param offset of the long, which should be aligned to 8 bytes in memory.
+     * @param delta  to add
+     * @return the value before the add
+     */
+    long getAndAddLong(int offset, long delta);
+
     void writeCompactLong(long v);
 
     /**
@@ -121,6 +175,21 @@ public interface RandomDataOutput extends ObjectOutput, RandomAccess {
 
     void writeCompactDouble(double v);
 
+    /**
+     * Bulk write of values without a length or any encoding.
+     *
+     * @param ints to write from
+     * @param off  the first element to write
+     * @param len  the number of values to write
+     */
+    void writeInts(@NotNull int[] ints, int off, int len);
+
+    void writeLongs(@NotNull long[] longs, int off, int len);
+
+    void writeFloats(@NotNull float[] floats, int off, int len);
+
+    void writeDoubles(@NotNull double[] doubles, int off, int len);
+
     @Override
     void writeBytes(@NotNull String s);
 
@@ -33,8 +33,27 @@ public enum StopCharTesters implements StopCharTester {
         public boolean isStopChar(int ch) {
             return ch <= 1;
         }
+    },
+    EQUALS {
+        @Override
+        public boolean isStopChar(int ch) {
+            return ch == '=';
+        }
     };
 
+    /**
+     * @return the one byte this tester stops on, or -1 if it isn't a single ASCII char tester.
+     */
+    public static int stopByte(@NotNull StopCharTester tester) {
+        if (tester == EQUALS)
+            return '=';
+        if (tester instanceof CharCSTester) {
+            char ch = ((CharCSTester) tester).ch;
+            return ch < 0x80 ? ch : -1;
+        }
+        return -1;
+    }
+
     @NotNull
     public static StopCharTester forChars(@NotNull CharSequence sequence) {
         if (sequence.length() == 1)
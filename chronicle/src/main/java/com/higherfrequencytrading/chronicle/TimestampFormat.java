@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle;
+
+/**
+ * Text formats for UTC timestamps. The number of fraction digits follows the TimeUnit of the timestamp, e.g. 3 for
+ * MILLISECONDS, 6 for MICROSECONDS and 9 for NANOSECONDS.
+ *
+ * @author peter.lawrey
+ */
+public enum TimestampFormat {
+    /**
+     * e.g. 2013-06-23T12:34:56.123456Z
+     */
+    ISO_8601('-', 'T', 'Z'),
+    /**
+     * FIX UTCTimestamp e.g. 20130623-12:34:56.123456 as used for tags 52 and 60.
+     */
+    FIX('\0', '-', '\0');
+
+    // '\0' means none.
+    private final char dateSeparator;
+    private final char dateTimeSeparator;
+    private final char suffix;
+
+    TimestampFormat(char dateSeparator, char dateTimeSeparator, char suffix) {
+        this.dateSeparator = dateSeparator;
+        this.dateTimeSeparator = dateTimeSeparator;
+        this.suffix = suffix;
+    }
+
+    public char dateSeparator() {
+        return dateSeparator;
+    }
+
+    public char dateTimeSeparator() {
+        return dateTimeSeparator;
+    }
+
+    public char suffix() {
+        return suffix;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {InterfaceName}Flyweight for each interface annotated with GenerateFlyweight.
+ * <p/>
+ * The flyweight has a SIZE constant, an offset constant for each property and bind(Excerpt, int offset). Getters and
+ * setters read and write the excerpt at offset + the property's offset.
+ *
+ * @author peter.lawrey
+ */
+@SupportedAnnotationTypes("com.higherfrequencytrading.chronicle.codegen.GenerateFlyweight")
+public class FlyweightProcessor extends AbstractProcessor {
+    static final String SUFFIX = "Flyweight";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(@NotNull Set<? extends TypeElement> annotations, @NotNull RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateFlyweight.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@GenerateFlyweight can only be used on an interface");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                error(element, "Unable to write the flyweight " + e);
+            }
+        }
+        return true;
+    }
+
+    private void generate(@NotNull TypeElement type) throws IOException {
+        if (!type.getTypeParameters().isEmpty() || type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "@GenerateFlyweight needs a non-private, non-generic interface");
+            return;
+        }
+        Map<String, Property> properties = new LinkedHashMap<String, Property>();
+        List<ExecutableElement> setters = new ArrayList<ExecutableElement>();
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        declaredMethods(type, methods, new HashSet<TypeElement>());
+        for (ExecutableElement method : methods) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT))
+                continue;
+            String name = method.getSimpleName().toString();
+            if (method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID
+                    && (name.startsWith("get") && name.length() > 3 || name.startsWith("is") && name.length() > 2)) {
+                String propertyName = name.substring(name.startsWith("get") ? 3 : 2);
+                Property property = property(method, propertyName, method.getReturnType());
+                if (property == null)
+                    return;
+                properties.put(propertyName, property);
+            } else if (method.getParameters().size() == 1 && method.getReturnType().getKind() == TypeKind.VOID
+                    && name.startsWith("set") && name.length() > 3) {
+                setters.add(method);
+            } else {
+                error(method, "Only getters and setters are supported by @GenerateFlyweight");
+                return;
+            }
+        }
+        for (ExecutableElement setter : setters) {
+            Property property = properties.get(setter.getSimpleName().toString().substring(3));
+            if (property == null || !processingEnv.getTypeUtils().isSameType(property.type, setter.getParameters().get(0).asType())) {
+                error(setter, "Setter without a matching getter");
+                return;
+            }
+            property.setter = setter.getSimpleName().toString();
+        }
+
+        // lay out each property aligned to its size.
+        int offset = 0, alignment = 1;
+        for (Property property : properties.values()) {
+            offset = align(offset, property.size);
+            property.offset = offset;
+            offset += property.size;
+            alignment = Math.max(alignment, property.size);
+        }
+        // padded so every property of consecutive flyweights is aligned too.
+        int size = align(offset, alignment);
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String flyweightName = flatName(type) + SUFFIX;
+
+        StringBuilder sb = new StringBuilder();
+        if (packageName.length() > 0)
+            sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import com.higherfrequencytrading.chronicle.Excerpt;\n\n");
+        sb.append("/**\n * Generated by ").append(FlyweightProcessor.class.getName()).append(" for ").append(typeName).append("\n */\n");
+        sb.append("public final class ").append(flyweightName).append(" implements ").append(typeName).append(" {\n");
+        sb.append("    public static final int SIZE = ").append(size).append(";\n");
+        for (Property property : properties.values())
+            sb.append("    public static final int ").append(property.constant()).append("_OFFSET = ").append(property.offset).append(";\n");
+        for (Property property : properties.values())
+            if (property.enumType != null)
+                sb.append("    private static final ").append(property.enumType).append("[] ").append(property.constant())
+                        .append("_VALUES = ").append(property.enumType).append(".values();\n");
+        sb.append("\n    private Excerpt excerpt;\n");
+        sb.append("    private int offset;\n\n");
+        sb.append("    public ").append(flyweightName).append(" bind(Excerpt excerpt, int offset) {\n");
+        sb.append("        this.excerpt = excerpt;\n");
+        sb.append("        this.offset = offset;\n");
+        sb.append("        return this;\n");
+        sb.append("    }\n\n");
+        sb.append("    public Excerpt excerpt() {\n");
+        sb.append("        return excerpt;\n");
+        sb.append("    }\n\n");
+        sb.append("    public int offset() {\n");
+        sb.append("        return offset;\n");
+        sb.append("    }\n");
+
+        for (Property property : properties.values()) {
+            String at = "offset + " + property.constant() + "_OFFSET";
+            sb.append("\n    @Override\n");
+            sb.append("    public ").append(property.typeName).append(' ').append(property.getter).append("() {\n");
+            if (property.enumType != null) {
+                sb.append("        int ordinal = excerpt.readUnsignedByte(").append(at).append(") - 1;\n");
+                sb.append("        return ordinal < 0 ? null : ").append(property.constant()).append("_VALUES[ordinal];\n");
+            } else if (property.kind == TypeKind.BYTE) {
+                sb.append("        return excerpt.readByte(").append(at).append(");\n");
+            } else {
+                sb.append("        return excerpt.read").append(capitalise(property.typeName)).append('(').append(at).append(");\n");
+            }
+            sb.append("    }\n");
+            if (property.setter == null)
+                continue;
+            sb.append("\n    @Override\n");
+            sb.append("    public void ").append(property.setter).append('(').append(property.typeName).append(" value) {\n");
+            if (property.enumType != null)
+                sb.append("        excerpt.write(").append(at).append(", value == null ? 0 : value.ordinal() + 1);\n");
+            else if (property.kind == TypeKind.BYTE)
+                sb.append("        excerpt.write(").append(at).append(", value);\n");
+            else
+                sb.append("        excerpt.write").append(capitalise(property.typeName)).append('(').append(at).append(", value);\n");
+            sb.append("    }\n");
+        }
+
+        sb.append("\n    @Override\n");
+        sb.append("    public String toString() {\n");
+        sb.append("        return \"").append(type.getSimpleName()).append("{\"");
+        String sep = "";
+        for (Property property : properties.values()) {
+            sb.append("\n                + \"").append(sep).append(property.name).append("=\" + ").append(property.getter).append("()");
+            sep = ", ";
+        }
+        sb.append("\n                + '}';\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        String qualifiedName = packageName.length() > 0 ? packageName + '.' + flyweightName : flyweightName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(sb.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * getAllMembers() doesn't define an order, the methods of super interfaces come first then those of the interface,
+     * each in declaration order.
+     */
+    private static void declaredMethods(@NotNull TypeElement type, @NotNull List<ExecutableElement> methods, @NotNull Set<TypeElement> visited) {
+        if (!visited.add(type))
+            return;
+        for (TypeMirror superInterface : type.getInterfaces())
+            declaredMethods((TypeElement) ((DeclaredType) superInterface).asElement(), methods, visited);
+        methods.addAll(ElementFilter.methodsIn(type.getEnclosedElements()));
+    }
+
+    private static int align(int offset, int alignment) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+
+    @Nullable
+    private Property property(@NotNull ExecutableElement getter, @NotNull String name, @NotNull TypeMirror type) {
+        TypeKind kind = type.getKind();
+        if (kind.isPrimitive())
+            return new Property(name, getter.getSimpleName().toString(), type, kind, null, primitiveSize(kind));
+        if (kind == TypeKind.DECLARED) {
+            Element element = ((DeclaredType) type).asElement();
+            if (element.getKind() == ElementKind.ENUM) {
+                int count = 0;
+                for (Element e : element.getEnclosedElements())
+                    if (e.getKind() == ElementKind.ENUM_CONSTANT)
+                        count++;
+                if (count <= 255)
+                    return new Property(name, getter.getSimpleName().toString(), type, kind, ((TypeElement) element).getQualifiedName().toString(), 1);
+            }
+        }
+        error(getter, "Type " + type + " is not supported by @GenerateFlyweight");
+        return null;
+    }
+
+    private static int primitiveSize(@NotNull TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+            case BYTE:
+                return 1;
+            case CHAR:
+            case SHORT:
+                return 2;
+            case INT:
+            case FLOAT:
+                return 4;
+            default:
+                return 8;
+        }
+    }
+
+    // the same naming as the MarshallerProcessor i.e. Outer_Inner
+    @NotNull
+    private static String flatName(@NotNull TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement)
+            return flatName((TypeElement) enclosing) + '_' + name;
+        return name;
+    }
+
+    @NotNull
+    private static String capitalise(@NotNull String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    static class Property {
+        final String name;
+        final String getter;
+        final TypeMirror type;
+        final TypeKind kind;
+        final String typeName;
+        @Nullable
+        final String enumType;
+        final int size;
+        @Nullable
+        String setter = null;
+        int offset;
+
+        Property(String name, String getter, TypeMirror type, TypeKind kind, @Nullable String enumType, int size) {
+            this.name = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+            this.getter = getter;
+            this.type = type;
+            this.kind = kind;
+            this.typeName = enumType == null ? type.toString() : enumType;
+            this.enumType = enumType;
+            this.size = size;
+        }
+
+        @NotNull
+        String constant() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < name.length(); i++) {
+                char ch = name.charAt(i);
+                if (Character.isUpperCase(ch) && i > 0)
+                    sb.append('_');
+                sb.append(Character.toUpperCase(ch));
+            }
+            return sb.toString();
+        }
+    }
+}
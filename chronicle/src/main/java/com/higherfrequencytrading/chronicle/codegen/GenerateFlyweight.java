@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface of getters and setters for which FlyweightProcessor generates a {InterfaceName}Flyweight. The
+ * flyweight is bound to an Excerpt and an offset and reads and writes each property in place at a fixed offset, so
+ * nothing is copied or allocated.
+ * <p/>
+ * Properties are laid out in the order their getters are declared, those of super interfaces first, each aligned to
+ * its size. SIZE is rounded up to the largest property so an array of flyweights stays aligned. Supported types are
+ * primitives and enums with up to 255 values, stored as a byte of ordinal + 1 so 0 is null.
+ *
+ * @author peter.lawrey
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateFlyweight {
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which MarshallerProcessor generates a {ClassName}Marshaller with straight line writeTo, readFrom
+ * and an exact sizeOf for startExcerpt.
+ * <p/>
+ * Non-static, non-transient fields are written in declaration order. Private fields need a getter and setter.
+ * Supported types are primitives, String, StringBuilder, CharSequence, enums, other classes with this annotation and
+ * Lists of boxed primitives, String, enums or classes with this annotation.
+ * <p/>
+ * With tagged = true, each field needs a Tag and is written as its stop bit encoded id and wire type followed by the
+ * value, ending with Marshallers.END_TAG. Strings, nested classes and Lists are preceded by the length written as an
+ * int. Readers skip fields they don't know, and fields which are not in the data are reset to their value in a new
+ * instance, so fields can be added or removed without breaking older readers, even when readFrom reuses an instance.
+ *
+ * @author peter.lawrey
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateMarshaller {
+    boolean tagged() default false;
+}
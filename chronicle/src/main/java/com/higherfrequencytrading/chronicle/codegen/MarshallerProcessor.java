@@ -0,0 +1,755 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {ClassName}Marshaller for each class annotated with GenerateMarshaller.
+ * <p/>
+ * The generated class has static writeTo(Excerpt, T), readFrom(Excerpt, T) which reads into an existing instance,
+ * reusing any StringBuilder, nested object or List it holds, and sizeOf(T) which returns exactly the number of bytes
+ * writeTo will write. It also implements EnumeratedMarshaller so AbstractChronicle.acquireMarshaller can use it in
+ * place of the reflective marshallers.
+ * <p/>
+ * For a tagged class, readFrom switches on each tag read so known fields are a single jump and unknown fields are
+ * skipped using their wire type, without decoding them.
+ *
+ * @author peter.lawrey
+ */
+@SupportedAnnotationTypes("com.higherfrequencytrading.chronicle.codegen.GenerateMarshaller")
+public class MarshallerProcessor extends AbstractProcessor {
+    enum Kind {
+        PRIMITIVE, COMPACT_DOUBLE, STRING, STRING_BUILDER, CHAR_SEQUENCE, ENUM, NESTED, LIST
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(@NotNull Set<? extends TypeElement> annotations, @NotNull RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateMarshaller.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateMarshaller can only be used on a class");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                error(element, "Unable to write the marshaller " + e);
+            }
+        }
+        return true;
+    }
+
+    private void generate(@NotNull TypeElement type) throws IOException {
+        if (!checkCreatable(type))
+            return;
+        boolean tagged = type.getAnnotation(GenerateMarshaller.class).tagged();
+        List<FieldModel> fields = new ArrayList<FieldModel>();
+        Set<Integer> fieldIds = new HashSet<Integer>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+                continue;
+            FieldModel model = fieldModel(type, field);
+            if (model == null)
+                return;
+            if (tagged) {
+                Tag tag = field.getAnnotation(Tag.class);
+                if (tag == null || tag.value() <= 0 || tag.value() > Marshallers.MAX_FIELD_ID) {
+                    error(field, "Fields of a tagged class need a @Tag with a positive id");
+                    return;
+                }
+                if (!fieldIds.add(tag.value())) {
+                    error(field, "@Tag(" + tag.value() + ") is used more than once");
+                    return;
+                }
+                model.fieldId = tag.value();
+            }
+            fields.add(model);
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String marshallerName = flatName(type) + Marshallers.SUFFIX;
+
+        StringBuilder sb = new StringBuilder();
+        if (packageName.length() > 0)
+            sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;\n");
+        sb.append("import com.higherfrequencytrading.chronicle.Excerpt;\n");
+        sb.append("import com.higherfrequencytrading.chronicle.StopCharTester;\n");
+        sb.append("import com.higherfrequencytrading.chronicle.codegen.Marshallers;\n\n");
+        sb.append("/**\n * Generated by ").append(MarshallerProcessor.class.getName()).append(" for ").append(typeName).append("\n */\n");
+        sb.append("public final class ").append(marshallerName).append(" implements EnumeratedMarshaller<").append(typeName).append("> {\n");
+        sb.append("    public static final ").append(marshallerName).append(" INSTANCE = new ").append(marshallerName).append("();\n");
+        // the values of a new instance, for fields which are not in the data.
+        sb.append("    private static final ").append(typeName).append(" DEFAULTS = new ").append(typeName).append("();\n\n");
+
+        // reset
+        sb.append("    public static void reset(").append(typeName).append(" $) {\n");
+        for (FieldModel field : fields)
+            field.appendReset(sb);
+        sb.append("    }\n\n");
+
+        if (tagged)
+            appendTagged(sb, typeName, fields);
+        else
+            appendUntagged(sb, typeName, fields);
+
+        sb.append("    @Override\n");
+        sb.append("    public Class<").append(typeName).append("> classMarshaled() {\n");
+        sb.append("        return ").append(typeName).append(".class;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public void write(Excerpt excerpt, ").append(typeName).append(" $) {\n");
+        sb.append("        writeTo(excerpt, $);\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public ").append(typeName).append(" read(Excerpt excerpt) {\n");
+        sb.append("        ").append(typeName).append(" $ = new ").append(typeName).append("();\n");
+        sb.append("        readFrom(excerpt, $);\n");
+        sb.append("        return $;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public ").append(typeName).append(" parse(Excerpt excerpt, StopCharTester tester) {\n");
+        sb.append("        return read(excerpt);\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        String qualifiedName = packageName.length() > 0 ? packageName + '.' + marshallerName : marshallerName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(sb.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void appendUntagged(@NotNull StringBuilder sb, String typeName, @NotNull List<FieldModel> fields) {
+        // sizeOf
+        int fixed = 0;
+        StringBuilder variable = new StringBuilder();
+        for (FieldModel field : fields)
+            fixed += field.appendSizeOf(variable);
+        sb.append("    public static int sizeOf(").append(typeName).append(" $) {\n");
+        sb.append("        int size = ").append(fixed).append(";\n");
+        sb.append(variable);
+        sb.append("        return size;\n");
+        sb.append("    }\n\n");
+
+        // writeTo
+        sb.append("    public static void writeTo(Excerpt out, ").append(typeName).append(" $) {\n");
+        for (FieldModel field : fields)
+            field.appendWrite(sb);
+        sb.append("    }\n\n");
+
+        // readFrom
+        sb.append("    public static void readFrom(Excerpt in, ").append(typeName).append(" $) {\n");
+        for (FieldModel field : fields)
+            field.appendRead(sb);
+        sb.append("    }\n\n");
+    }
+
+    private void appendTagged(@NotNull StringBuilder sb, String typeName, @NotNull List<FieldModel> fields) {
+        int fixed = Marshallers.stopBitSize(Marshallers.END_TAG);
+        StringBuilder variable = new StringBuilder();
+        for (FieldModel field : fields) {
+            fixed += Marshallers.stopBitSize(field.tag());
+            if (field.wireType() == Marshallers.WIRE_LENGTH)
+                fixed += Marshallers.LENGTH_SIZE;
+            fixed += field.appendSizeOf(variable);
+        }
+
+        // sizeOf
+        sb.append("    public static int sizeOf(").append(typeName).append(" $) {\n");
+        sb.append("        int size = ").append(fixed).append(";\n");
+        sb.append(variable);
+        sb.append("        return size;\n");
+        sb.append("    }\n\n");
+
+        // writeTo
+        sb.append("    public static void writeTo(Excerpt out, ").append(typeName).append(" $) {\n");
+        for (FieldModel field : fields) {
+            sb.append("        out.writeStopBit(").append(field.tag()).append(");\n");
+            if (field.wireType() == Marshallers.WIRE_LENGTH) {
+                // the length is patched in after the field is written so it is the number of bytes actually written.
+                sb.append("        {\n");
+                sb.append("            int start = out.position() + Marshallers.LENGTH_SIZE;\n");
+                sb.append("            out.writeInt(0);\n");
+                StringBuilder write = new StringBuilder();
+                field.appendWrite(write);
+                appendIndented(sb, write, "    ");
+                sb.append("            out.writeInt(start - Marshallers.LENGTH_SIZE, out.position() - start);\n");
+                sb.append("        }\n");
+            } else {
+                field.appendWrite(sb);
+            }
+        }
+        sb.append("        out.writeStopBit(Marshallers.END_TAG);\n");
+        sb.append("    }\n\n");
+
+        // readFrom
+        sb.append("    public static void readFrom(Excerpt in, ").append(typeName).append(" $) {\n");
+        // an instance is reused for each message, fields which are not in this one are reset.
+        for (int i = 0; i < fields.size(); i += 64)
+            sb.append("        long present").append(i / 64).append(" = 0;\n");
+        sb.append("        for (long tag; (tag = in.readStopBit()) != Marshallers.END_TAG; ) {\n");
+        sb.append("            switch ((int) tag) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            FieldModel field = fields.get(i);
+            sb.append("                case ").append(field.tag()).append(": // ").append(field.name).append('\n');
+            sb.append("                    present").append(i / 64).append(" |= ").append(1L << (i % 64)).append("L;\n");
+            if (field.wireType() == Marshallers.WIRE_LENGTH) {
+                // a later version of a nested class can be longer.
+                sb.append("                {\n");
+                sb.append("                    int end = in.readInt();\n");
+                sb.append("                    end += in.position();\n");
+                appendRead(sb, field, "            ");
+                sb.append("                    in.position(end);\n");
+                sb.append("                    break;\n");
+                sb.append("                }\n");
+            } else {
+                appendRead(sb, field, "            ");
+                sb.append("                    break;\n");
+            }
+        }
+        sb.append("                default:\n");
+        sb.append("                    Marshallers.skipField(in, tag);\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append("        if ((present").append(i / 64).append(" & ").append(1L << (i % 64)).append("L) == 0) {\n");
+            StringBuilder reset = new StringBuilder();
+            fields.get(i).appendReset(reset);
+            appendIndented(sb, reset, "    ");
+            sb.append("        }\n");
+        }
+        sb.append("    }\n\n");
+    }
+
+    private static void appendRead(@NotNull StringBuilder sb, @NotNull FieldModel field, String indent) {
+        StringBuilder read = new StringBuilder();
+        field.appendRead(read);
+        appendIndented(sb, read, indent);
+    }
+
+    private static void appendIndented(@NotNull StringBuilder sb, @NotNull CharSequence code, String indent) {
+        for (String line : code.toString().split("\n"))
+            sb.append(indent).append(line).append('\n');
+    }
+
+    private boolean checkCreatable(@NotNull TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.ABSTRACT)
+                || !type.getTypeParameters().isEmpty()
+                || type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)
+                || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@GenerateMarshaller needs a concrete, non-private, non-generic, top level or static class");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+                return true;
+        error(type, "@GenerateMarshaller needs a non-private no argument constructor");
+        return false;
+    }
+
+    @Nullable
+    private FieldModel fieldModel(@NotNull TypeElement type, @NotNull VariableElement field) {
+        String name = field.getSimpleName().toString();
+        TypeMirror fieldType = field.asType();
+        Kind kind = kindOf(fieldType);
+        if (kind == null) {
+            error(field, "Type " + fieldType + " is not supported by @GenerateMarshaller");
+            return null;
+        }
+        if (field.getAnnotation(Compact.class) != null) {
+            if (fieldType.getKind() != TypeKind.DOUBLE) {
+                error(field, "@Compact is only supported for double fields");
+                return null;
+            }
+            kind = Kind.COMPACT_DOUBLE;
+        }
+        String elementType = null;
+        if (kind == Kind.LIST) {
+            List<? extends TypeMirror> args = ((DeclaredType) fieldType).getTypeArguments();
+            Kind elementKind = args.size() == 1 ? kindOf(args.get(0)) : null;
+            if (elementKind == null || elementKind == Kind.LIST || elementKind == Kind.STRING_BUILDER || elementKind == Kind.CHAR_SEQUENCE
+                    || elementKind == Kind.PRIMITIVE && !isBoxed(args.get(0))) {
+                error(field, "Only Lists of boxed primitives, String, enums or @GenerateMarshaller classes are supported");
+                return null;
+            }
+            elementType = erasure(args.get(0));
+        }
+
+        Set<Modifier> modifiers = field.getModifiers();
+        String getter = null, setter = null;
+        if (!modifiers.contains(Modifier.PRIVATE)) {
+            getter = "$." + name;
+            if (!modifiers.contains(Modifier.FINAL))
+                setter = "$." + name + " = ";
+        } else {
+            String capitalised = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC))
+                    continue;
+                String methodName = method.getSimpleName().toString();
+                if (method.getParameters().isEmpty()
+                        && (methodName.equals("get" + capitalised) || methodName.equals("is" + capitalised))
+                        && sameType(method.getReturnType(), fieldType))
+                    getter = "$." + methodName + "()";
+                else if (method.getParameters().size() == 1 && methodName.equals("set" + capitalised)
+                        && sameType(method.getParameters().get(0).asType(), fieldType))
+                    setter = "$." + methodName + "(";
+            }
+        }
+        if (getter == null) {
+            error(field, "Private field " + name + " needs a getter");
+            return null;
+        }
+        boolean inPlace = kind == Kind.STRING_BUILDER || kind == Kind.NESTED || kind == Kind.LIST;
+        if (setter == null && !inPlace) {
+            error(field, "Field " + name + " needs to be non-final or have a setter");
+            return null;
+        }
+        return new FieldModel(name, kind, erasure(fieldType), elementType, getter, setter);
+    }
+
+    @Nullable
+    private Kind kindOf(@NotNull TypeMirror type) {
+        if (type.getKind().isPrimitive())
+            return Kind.PRIMITIVE;
+        if (type.getKind() != TypeKind.DECLARED)
+            return null;
+        if (isBoxed(type))
+            return Kind.PRIMITIVE;
+        String name = erasure(type);
+        if (name.equals("java.lang.String"))
+            return Kind.STRING;
+        if (name.equals("java.lang.StringBuilder"))
+            return Kind.STRING_BUILDER;
+        if (name.equals("java.lang.CharSequence"))
+            return Kind.CHAR_SEQUENCE;
+        if (name.equals("java.util.List") || name.equals("java.util.ArrayList"))
+            return Kind.LIST;
+        Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM)
+            return Kind.ENUM;
+        if (element.getAnnotation(GenerateMarshaller.class) != null)
+            return Kind.NESTED;
+        return null;
+    }
+
+    private boolean isBoxed(@NotNull TypeMirror type) {
+        try {
+            processingEnv.getTypeUtils().unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean sameType(@NotNull TypeMirror a, @NotNull TypeMirror b) {
+        return processingEnv.getTypeUtils().isSameType(a, b);
+    }
+
+    @NotNull
+    private String erasure(@NotNull TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    @NotNull
+    String marshallerFor(@NotNull String typeName) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(typeName);
+        String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        String marshallerName = flatName(element) + Marshallers.SUFFIX;
+        return packageName.length() > 0 ? packageName + '.' + marshallerName : marshallerName;
+    }
+
+    // the same naming as Marshallers.marshallerNameFor(Class) i.e. Outer_Inner
+    @NotNull
+    private static String flatName(@NotNull TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement)
+            return flatName((TypeElement) enclosing) + '_' + name;
+        return name;
+    }
+
+    @NotNull
+    String primitiveName(@NotNull String typeName) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(typeName);
+        if (element == null)
+            return typeName;
+        return processingEnv.getTypeUtils().unboxedType(element.asType()).toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    static int primitiveSize(@NotNull String primitive) {
+        if (primitive.equals("boolean") || primitive.equals("byte"))
+            return 1;
+        if (primitive.equals("char") || primitive.equals("short"))
+            return 2;
+        if (primitive.equals("int") || primitive.equals("float"))
+            return 4;
+        return 8;
+    }
+
+    @NotNull
+    static String capitalise(@NotNull String primitive) {
+        return Character.toUpperCase(primitive.charAt(0)) + primitive.substring(1);
+    }
+
+    class FieldModel {
+        final String name;
+        final Kind kind;
+        final String type;
+        @Nullable
+        final String elementType;
+        final String getter;
+        @Nullable
+        final String setter;
+        int fieldId = 0;
+
+        FieldModel(String name, Kind kind, String type, @Nullable String elementType, String getter, @Nullable String setter) {
+            this.name = name;
+            this.kind = kind;
+            this.type = type;
+            this.elementType = elementType;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        int wireType() {
+            if (kind != Kind.PRIMITIVE)
+                return Marshallers.WIRE_LENGTH;
+            switch (primitiveSize(primitiveName(type))) {
+                case 1:
+                    return Marshallers.WIRE_BYTE;
+                case 2:
+                    return Marshallers.WIRE_SHORT;
+                case 4:
+                    return Marshallers.WIRE_INT;
+                default:
+                    return Marshallers.WIRE_LONG;
+            }
+        }
+
+        int tag() {
+            return Marshallers.tag(fieldId, wireType());
+        }
+
+        @NotNull
+        String assign(String value) {
+            assert setter != null;
+            return setter.endsWith("(") ? setter + value + ");" : setter + value + ";";
+        }
+
+        /**
+         * @return the fixed size, anything which depends on the value is added to sb.
+         */
+        int appendSizeOf(@NotNull StringBuilder sb) {
+            switch (kind) {
+                case PRIMITIVE:
+                    return primitiveSize(primitiveName(type));
+                case COMPACT_DOUBLE:
+                    sb.append("        size += Marshallers.compactDoubleSize(").append(getter).append(");\n");
+                    return 0;
+                case STRING:
+                case STRING_BUILDER:
+                case CHAR_SEQUENCE:
+                    sb.append("        size += Marshallers.utfSize(").append(getter).append(");\n");
+                    return 0;
+                case ENUM:
+                    sb.append("        size += Marshallers.enumSize(").append(getter).append(");\n");
+                    return 0;
+                case NESTED:
+                    sb.append("        {\n");
+                    sb.append("            ").append(type).append(" v = ").append(getter).append(";\n");
+                    sb.append("            if (v != null)\n");
+                    sb.append("                size += ").append(marshallerFor(type)).append(".sizeOf(v);\n");
+                    sb.append("        }\n");
+                    return 1;
+                case LIST:
+                    sb.append("        {\n");
+                    sb.append("            java.util.List<").append(elementType).append("> list = ").append(getter).append(";\n");
+                    sb.append("            int len = list == null ? 0 : list.size();\n");
+                    sb.append("            size += Marshallers.stopBitSize(len);\n");
+                    Kind elementKind = kindOf(processingEnv.getElementUtils().getTypeElement(elementType).asType());
+                    if (elementKind == Kind.PRIMITIVE) {
+                        sb.append("            size += len * ").append(primitiveSize(primitiveName(elementType))).append(";\n");
+                    } else {
+                        sb.append("            for (int i = 0; i < len; i++)\n");
+                        sb.append("                size += ");
+                        if (elementKind == Kind.STRING)
+                            sb.append("Marshallers.utfSize(list.get(i));\n");
+                        else if (elementKind == Kind.ENUM)
+                            sb.append("Marshallers.enumSize(list.get(i));\n");
+                        else
+                            sb.append(marshallerFor(elementType)).append(".sizeOf(list.get(i));\n");
+                    }
+                    sb.append("        }\n");
+                    return 0;
+                default:
+                    throw new AssertionError(kind);
+            }
+        }
+
+        void appendWrite(@NotNull StringBuilder sb) {
+            switch (kind) {
+                case PRIMITIVE:
+                    sb.append("        out.write").append(capitalise(primitiveName(type))).append('(').append(getter).append(");\n");
+                    break;
+                case COMPACT_DOUBLE:
+                    sb.append("        out.writeCompactDouble(").append(getter).append(");\n");
+                    break;
+                case STRING:
+                case STRING_BUILDER:
+                case CHAR_SEQUENCE:
+                    sb.append("        out.writeUTF(").append(getter).append(");\n");
+                    break;
+                case ENUM:
+                    sb.append("        Marshallers.writeEnum(out, ").append(getter).append(");\n");
+                    break;
+                case NESTED:
+                    sb.append("        {\n");
+                    sb.append("            ").append(type).append(" v = ").append(getter).append(";\n");
+                    sb.append("            out.writeBoolean(v != null);\n");
+                    sb.append("            if (v != null)\n");
+                    sb.append("                ").append(marshallerFor(type)).append(".writeTo(out, v);\n");
+                    sb.append("        }\n");
+                    break;
+                case LIST:
+                    sb.append("        {\n");
+                    sb.append("            java.util.List<").append(elementType).append("> list = ").append(getter).append(";\n");
+                    sb.append("            int len = list == null ? 0 : list.size();\n");
+                    sb.append("            out.writeStopBit(len);\n");
+                    sb.append("            for (int i = 0; i < len; i++)\n");
+                    Kind elementKind = kindOf(processingEnv.getElementUtils().getTypeElement(elementType).asType());
+                    if (elementKind == Kind.PRIMITIVE)
+                        sb.append("                out.write").append(capitalise(primitiveName(elementType))).append("(list.get(i));\n");
+                    else if (elementKind == Kind.STRING)
+                        sb.append("                out.writeUTF(list.get(i));\n");
+                    else if (elementKind == Kind.ENUM)
+                        sb.append("                Marshallers.writeEnum(out, list.get(i));\n");
+                    else
+                        sb.append("                ").append(marshallerFor(elementType)).append(".writeTo(out, list.get(i));\n");
+                    sb.append("        }\n");
+                    break;
+                default:
+                    throw new AssertionError(kind);
+            }
+        }
+
+        /**
+         * Set the field to the value it has in a new instance. StringBuilders, nested classes and Lists are reset in
+         * place, Lists are emptied.
+         */
+        void appendReset(@NotNull StringBuilder sb) {
+            String defaults = "DEFAULTS" + getter.substring(1);
+            switch (kind) {
+                case PRIMITIVE:
+                case COMPACT_DOUBLE:
+                case STRING:
+                case ENUM:
+                    sb.append("        ").append(assign(defaults)).append('\n');
+                    break;
+                case STRING_BUILDER:
+                    sb.append("        {\n");
+                    sb.append("            StringBuilder d = ").append(defaults).append(";\n");
+                    sb.append("            StringBuilder v = ").append(getter).append(";\n");
+                    if (setter != null) {
+                        sb.append("            if (d == null)\n");
+                        sb.append("                ").append(assign("v = null")).append('\n');
+                        sb.append("            else if (v == null)\n");
+                        sb.append("                ").append(assign("v = new StringBuilder()")).append('\n');
+                    }
+                    sb.append("            if (v != null) {\n");
+                    sb.append("                v.setLength(0);\n");
+                    sb.append("                if (d != null)\n");
+                    sb.append("                    v.append(d);\n");
+                    sb.append("            }\n");
+                    sb.append("        }\n");
+                    break;
+                case CHAR_SEQUENCE:
+                    sb.append("        {\n");
+                    sb.append("            CharSequence d = ").append(defaults).append(";\n");
+                    sb.append("            CharSequence cs = ").append(getter).append(";\n");
+                    sb.append("            if (d != null && cs instanceof StringBuilder) {\n");
+                    sb.append("                ((StringBuilder) cs).setLength(0);\n");
+                    sb.append("                ((StringBuilder) cs).append(d);\n");
+                    sb.append("            } else {\n");
+                    // don't share a mutable default.
+                    sb.append("                ").append(assign("d instanceof StringBuilder ? new StringBuilder(d) : d")).append('\n');
+                    sb.append("            }\n");
+                    sb.append("        }\n");
+                    break;
+                case NESTED:
+                    sb.append("        {\n");
+                    sb.append("            ").append(type).append(" v = ").append(getter).append(";\n");
+                    if (setter != null) {
+                        sb.append("            if (").append(defaults).append(" == null)\n");
+                        sb.append("                ").append(assign("v = null")).append('\n');
+                        sb.append("            else if (v == null)\n");
+                        sb.append("                ").append(assign("v = new " + type + "()")).append('\n');
+                    }
+                    sb.append("            if (v != null)\n");
+                    sb.append("                ").append(marshallerFor(type)).append(".reset(v);\n");
+                    sb.append("        }\n");
+                    break;
+                case LIST:
+                    sb.append("        {\n");
+                    sb.append("            java.util.List<").append(elementType).append("> list = ").append(getter).append(";\n");
+                    if (setter != null) {
+                        sb.append("            if (").append(defaults).append(" == null)\n");
+                        sb.append("                ").append(assign("list = null")).append('\n');
+                        sb.append("            else if (list == null)\n");
+                        sb.append("                ").append(assign("list = new java.util.ArrayList<" + elementType + ">()")).append('\n');
+                    }
+                    sb.append("            if (list != null)\n");
+                    sb.append("                list.clear();\n");
+                    sb.append("        }\n");
+                    break;
+                default:
+                    throw new AssertionError(kind);
+            }
+        }
+
+        void appendRead(@NotNull StringBuilder sb) {
+            switch (kind) {
+                case PRIMITIVE:
+                    sb.append("        ").append(assign("in.read" + capitalise(primitiveName(type)) + "()")).append('\n');
+                    break;
+                case COMPACT_DOUBLE:
+                    sb.append("        ").append(assign("in.readCompactDouble()")).append('\n');
+                    break;
+                case STRING:
+                    // written with writeUTF, readUTF() reuses recent Strings from the chronicle's interner.
+                    sb.append("        ").append(assign("in.readUTF()")).append('\n');
+                    break;
+                case STRING_BUILDER:
+                    sb.append("        {\n");
+                    sb.append("            StringBuilder v = ").append(getter).append(";\n");
+                    if (setter == null) {
+                        sb.append("            in.readUTF(v);\n");
+                    } else {
+                        sb.append("            if (v == null)\n");
+                        sb.append("                ").append(assign("v = new StringBuilder()")).append('\n');
+                        sb.append("            if (!in.readUTF(v))\n");
+                        sb.append("                ").append(assign("null")).append('\n');
+                    }
+                    sb.append("        }\n");
+                    break;
+                case CHAR_SEQUENCE:
+                    sb.append("        {\n");
+                    sb.append("            CharSequence cs = ").append(getter).append(";\n");
+                    sb.append("            StringBuilder v = cs instanceof StringBuilder ? (StringBuilder) cs : new StringBuilder();\n");
+                    sb.append("            if (!in.readUTF(v))\n");
+                    sb.append("                ").append(assign("null")).append('\n');
+                    sb.append("            else if (v != cs)\n");
+                    sb.append("                ").append(assign("v")).append('\n');
+                    sb.append("        }\n");
+                    break;
+                case ENUM:
+                    sb.append("        ").append(assign("Marshallers.readEnum(in, " + type + ".class)")).append('\n');
+                    break;
+                case NESTED:
+                    sb.append("        if (in.readBoolean()) {\n");
+                    sb.append("            ").append(type).append(" v = ").append(getter).append(";\n");
+                    sb.append("            if (v == null)\n");
+                    if (setter == null)
+                        sb.append("                throw new IllegalStateException(\"").append(name).append(" is null\");\n");
+                    else
+                        sb.append("                ").append(assign("v = new " + type + "()")).append('\n');
+                    sb.append("            ").append(marshallerFor(type)).append(".readFrom(in, v);\n");
+                    if (setter == null) {
+                        sb.append("        }\n");
+                    } else {
+                        sb.append("        } else {\n");
+                        sb.append("            ").append(assign("null")).append('\n');
+                        sb.append("        }\n");
+                    }
+                    break;
+                case LIST:
+                    sb.append("        {\n");
+                    sb.append("            int len = (int) in.readStopBit();\n");
+                    sb.append("            java.util.List<").append(elementType).append("> list = ").append(getter).append(";\n");
+                    sb.append("            if (list == null)\n");
+                    if (setter == null)
+                        sb.append("                throw new IllegalStateException(\"").append(name).append(" is null\");\n");
+                    else
+                        sb.append("                ").append(assign("list = new java.util.ArrayList<" + elementType + ">(len)")).append('\n');
+                    Kind elementKind = kindOf(processingEnv.getElementUtils().getTypeElement(elementType).asType());
+                    if (elementKind == Kind.NESTED) {
+                        // read into the elements already in the list.
+                        String marshaller = marshallerFor(elementType);
+                        sb.append("            for (int i = 0; i < len; i++) {\n");
+                        sb.append("                if (i < list.size()) {\n");
+                        sb.append("                    ").append(marshaller).append(".readFrom(in, list.get(i));\n");
+                        sb.append("                } else {\n");
+                        sb.append("                    ").append(elementType).append(" e = new ").append(elementType).append("();\n");
+                        sb.append("                    ").append(marshaller).append(".readFrom(in, e);\n");
+                        sb.append("                    list.add(e);\n");
+                        sb.append("                }\n");
+                        sb.append("            }\n");
+                        sb.append("            while (list.size() > len)\n");
+                        sb.append("                list.remove(list.size() - 1);\n");
+                    } else {
+                        sb.append("            list.clear();\n");
+                        sb.append("            for (int i = 0; i < len; i++)\n");
+                        if (elementKind == Kind.PRIMITIVE)
+                            sb.append("                list.add(in.read").append(capitalise(primitiveName(elementType))).append("());\n");
+                        else if (elementKind == Kind.STRING)
+                            sb.append("                list.add(in.readUTF());\n");
+                        else
+                            sb.append("                list.add(Marshallers.readEnum(in, ").append(elementType).append(".class));\n");
+                    }
+                    sb.append("        }\n");
+                    break;
+                default:
+                    throw new AssertionError(kind);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Size calculations and the tagged encoding used by generated marshallers and the lookup of a generated marshaller for
+ * a class.
+ *
+ * @author peter.lawrey
+ */
+public enum Marshallers {
+    ;
+    static final String SUFFIX = "Marshaller";
+
+    // the tagged encoding, a stop bit encoded id << 3 | wire type before each field.
+    public static final int END_TAG = 0;
+    public static final int WIRE_BYTE = 0;
+    public static final int WIRE_SHORT = 1;
+    public static final int WIRE_INT = 2;
+    public static final int WIRE_LONG = 3;
+    public static final int WIRE_LENGTH = 4;
+    static final int WIRE_BITS = 3;
+    // a WIRE_LENGTH value is preceded by its length as a fixed size int, so it can be written after the value.
+    public static final int LENGTH_SIZE = 4;
+    static final int MAX_FIELD_ID = Integer.MAX_VALUE >>> WIRE_BITS;
+
+    /**
+     * @return the number of bytes writeStopBit(n) will write.
+     */
+    public static int stopBitSize(long n) {
+        int size = 1;
+        if (n < 0) {
+            n = ~n;
+            size++;
+        }
+        while ((n >>>= 7) != 0)
+            size++;
+        return size;
+    }
+
+    public static int tag(int fieldId, int wireType) {
+        return fieldId << WIRE_BITS | wireType;
+    }
+
+    /**
+     * Skip the value of a field which isn't known, without decoding it.
+     *
+     * @throws IllegalStateException if the wire type is not known.
+     */
+    public static void skipField(@NotNull Excerpt in, long tag) throws IllegalStateException {
+        int length;
+        switch ((int) tag & ((1 << WIRE_BITS) - 1)) {
+            case WIRE_BYTE:
+                length = 1;
+                break;
+            case WIRE_SHORT:
+                length = 2;
+                break;
+            case WIRE_INT:
+                length = 4;
+                break;
+            case WIRE_LONG:
+                length = 8;
+                break;
+            case WIRE_LENGTH:
+                length = in.readInt();
+                break;
+            default:
+                throw new IllegalStateException("Unknown wire type for tag " + tag);
+        }
+        in.position(in.position() + length);
+    }
+
+    /**
+     * @return the number of bytes writeUTF(cs) will write.
+     */
+    public static int utfSize(@Nullable CharSequence cs) {
+        if (cs == null)
+            return stopBitSize(-1);
+        int utflen = 0;
+        for (int i = 0, len = cs.length(); i < len; i++) {
+            int c = cs.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F)
+                utflen++;
+            else if (c > 0x07FF)
+                utflen += 3;
+            else
+                utflen += 2;
+        }
+        return stopBitSize(utflen) + utflen;
+    }
+
+    /**
+     * @return the number of bytes writeEnum(e) will write with the default enum marshallers.
+     */
+    public static int enumSize(@Nullable Enum e) {
+        return utfSize(e == null ? null : e.name());
+    }
+
+    /**
+     * Write an enum by name as writeUTF does, whichever enumerated marshallers are installed, so enumSize() holds.
+     */
+    public static void writeEnum(@NotNull Excerpt out, @Nullable Enum e) {
+        out.writeUTF(e == null ? null : e.name());
+    }
+
+    @Nullable
+    public static <E extends Enum<E>> E readEnum(@NotNull Excerpt in, @NotNull Class<E> eClass) {
+        String name = in.readUTF();
+        return name == null ? null : Enum.valueOf(eClass, name);
+    }
+
+    /**
+     * @return the number of bytes writeCompactDouble(d) will write.
+     */
+    public static int compactDoubleSize(double d) {
+        return (float) d == d ? 4 : 4 + 8;
+    }
+
+    /**
+     * @return the generated marshaller for a class annotated with GenerateMarshaller or null if there isn't one.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <E> EnumeratedMarshaller<E> generatedFor(@NotNull Class<E> eClass) {
+        if (!eClass.isAnnotationPresent(GenerateMarshaller.class))
+            return null;
+        try {
+            Class<?> mClass = Class.forName(marshallerNameFor(eClass), true, eClass.getClassLoader());
+            return (EnumeratedMarshaller<E>) mClass.getField("INSTANCE").get(null);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to load the generated marshaller for " + eClass, e);
+        }
+    }
+
+    @NotNull
+    static String marshallerNameFor(@NotNull Class eClass) {
+        return eClass.getName().replace('$', '_') + SUFFIX;
+    }
+}
@@ -18,6 +18,7 @@ package com.higherfrequencytrading.chronicle.impl;
 
 import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
 import com.higherfrequencytrading.chronicle.ExcerptMarshallable;
+import com.higherfrequencytrading.chronicle.codegen.Marshallers;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -32,15 +33,25 @@ import java.util.Map;
 public abstract class AbstractChronicle implements DirectChronicle {
     private final String name;
     private final Map<Class, EnumeratedMarshaller> marshallerMap = new LinkedHashMap<Class, EnumeratedMarshaller>();
+    private final ClassRegistry classRegistry = new ClassRegistry();
     // shouldn't need to be volatile, unless you have a bug in the calling code ;)
     protected volatile long size = 0;
     private boolean multiThreaded = false;
+    // the number of Strings cached, rounded up to a power of 2, when one isn't given.
+    public static final int DEFAULT_INTERNER_CAPACITY = Integer.getInteger("chronicle.internerCapacity", 16 * 1024);
     protected final StringInterner stringInterner;
     private volatile boolean closed;
 
     protected AbstractChronicle(String name) {
+        this(name, DEFAULT_INTERNER_CAPACITY);
+    }
+
+    /**
+     * @param internerCapacity the number of Strings cached by readUTF() and parseUTF(), rounded up to a power of 2.
+     */
+    protected AbstractChronicle(String name, int internerCapacity) {
         this.name = name;
-        stringInterner = new StringInterner(16 * 1024);
+        stringInterner = new StringInterner(internerCapacity);
         StringMarshaller stringMarshaller = new StringMarshaller(stringInterner);
         marshallerMap.put(String.class, stringMarshaller);
         marshallerMap.put(CharSequence.class, stringMarshaller);
@@ -83,6 +94,30 @@ public abstract class AbstractChronicle implements DirectChronicle {
     @Override
     public <E> void setEnumeratedMarshaller(@NotNull EnumeratedMarshaller<E> marshaller) {
         marshallerMap.put(marshaller.classMarshaled(), marshaller);
+        classRegistry.clearMarshallers();
+    }
+
+    @Override
+    public void registerClass(@NotNull Class aClass, int id) throws IllegalArgumentException {
+        classRegistry.register(aClass, id);
+    }
+
+    @Override
+    public int classId(Class aClass) {
+        return classRegistry.idFor(aClass);
+    }
+
+    @Override
+    public Class registeredClass(int id) throws IllegalStateException {
+        return classRegistry.classFor(id);
+    }
+
+    @Override
+    public EnumeratedMarshaller registeredMarshaller(int id) throws IllegalStateException {
+        EnumeratedMarshaller em = classRegistry.marshallerFor(id);
+        if (em == null)
+            classRegistry.marshallerFor(id, em = acquireMarshaller(classRegistry.classFor(id)));
+        return em;
     }
 
     @Nullable
@@ -93,6 +128,8 @@ public abstract class AbstractChronicle implements DirectChronicle {
         if (em == null)
             if (aClass.isEnum())
                 marshallerMap.put(aClass, em = new VanillaEnumMarshaller(aClass, null));
+            else if ((em = Marshallers.generatedFor(aClass)) != null)
+                marshallerMap.put(aClass, em);
             else if (ExcerptMarshallable.class.isAssignableFrom(aClass))
                 marshallerMap.put(aClass, em = new ExcerptMarshaller((Class) aClass));
             else if (Externalizable.class.isAssignableFrom(aClass))
@@ -19,18 +19,22 @@ package com.higherfrequencytrading.chronicle.impl;
 import com.higherfrequencytrading.chronicle.ByteStringAppender;
 import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
 import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.ExcerptMarshallable;
 import com.higherfrequencytrading.chronicle.StopCharTester;
+import com.higherfrequencytrading.chronicle.TimestampFormat;
+import com.higherfrequencytrading.chronicle.codegen.GenerateMarshaller;
 import com.higherfrequencytrading.chronicle.math.MutableDecimal;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import sun.nio.ch.DirectBuffer;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.charset.Charset;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -60,6 +64,7 @@ public abstract class AbstractExcerpt implements Excerpt {
     private static final int INT_EXTENDED = Integer.MIN_VALUE + 1;
     private static final int INT_MAX_VALUE = Integer.MIN_VALUE + 2;
     private static final long MAX_VALUE_DIVIDE_10 = Long.MAX_VALUE / 10;
+    private static final long MAX_VALUE_DIVIDE_1E8 = Long.MAX_VALUE / 100000000;
     private static final long[] TENS = new long[19];
 
     static {
@@ -70,7 +75,12 @@ public abstract class AbstractExcerpt implements Excerpt {
 
     private static final byte NULL = 'N';
     private static final byte ENUMED = 'E';
-    private static final byte SERIALIZED = 'S';
+    private static final byte REGISTERED = 'I';
+    private static final byte LONG_LIST = 'l';
+    private static final byte INT_LIST = 'i';
+    private static final byte DOUBLE_LIST = 'd';
+    private static final byte LONG_LONG_MAP = 'L';
+    private static final byte LONG_DOUBLE_MAP = 'D';
     protected final DirectChronicle chronicle;
     private final byte[] numberBuffer = new byte[MAX_NUMBER_LENGTH];
     private final AtomicBoolean barrier = new AtomicBoolean();
@@ -89,15 +99,15 @@ public abstract class AbstractExcerpt implements Excerpt {
     @Nullable
     private ExcerptOutputStream outputStream = null;
     @Nullable
+    private FieldSerializer fieldSerializer = null;
+    @Nullable
     private Thread lastThread = null;
     @Nullable
     private StringBuilder utfReader = null;
     @Nullable
-    private SimpleDateFormat dateFormat = null;
-    // RandomDataInput
-    private long lastDay = Long.MIN_VALUE;
+    private ByteBuffer sliceBuffer = null;
     @Nullable
-    private byte[] lastDateStr = null;
+    private MappedByteBuffer sliceFor = null;
 
     protected AbstractExcerpt(DirectChronicle chronicle) {
         this.chronicle = chronicle;
@@ -214,9 +224,11 @@ public abstract class AbstractExcerpt implements Excerpt {
 
     @Override
     public void startExcerpt(int capacity) {
-        this.capacity = capacity < MIN_SIZE ? MIN_SIZE : capacity;
+        if (capacity < MIN_SIZE)
+            capacity = MIN_SIZE;
         long startPosition = chronicle.startExcerpt(this, capacity);
-        long endPosition = startPosition + capacity;
+        long endPosition = chronicle.excerptLimit(startPosition, capacity);
+        this.capacity = (int) (endPosition - startPosition);
         index0(chronicle.size(), startPosition, endPosition);
         forWrite = true;
         index = chronicle.size();
@@ -330,6 +342,11 @@ public abstract class AbstractExcerpt implements Excerpt {
             return false;
         int utflen = (int) len;
         int count = 0;
+        if (appendable instanceof StringBuilder) {
+            StringBuilder sb = (StringBuilder) appendable;
+            sb.ensureCapacity(sb.length() + utflen);
+            count = appendAscii(sb, utflen);
+        }
         while (count < utflen) {
             int c = readByte();
             if (c < 0) {
@@ -542,6 +559,13 @@ public abstract class AbstractExcerpt implements Excerpt {
             return false;
         }
         do {
+            int n = stopIndex(tester);
+            if (n >= 0) {
+                position(position() + Math.min(n + 1, 8));
+                if (n < 8)
+                    return true;
+                continue;
+            }
             int ch = readByte();
             if (tester.isStopChar(ch))
                 return true;
@@ -549,6 +573,24 @@ public abstract class AbstractExcerpt implements Excerpt {
         return false;
     }
 
+    /**
+     * Find the first stop char in the next eight bytes without moving the position.
+     *
+     * @return its index, 8 if there isn't one, or -1 if this isn't supported for this tester or position.
+     */
+    protected int stopIndex(@NotNull StopCharTester tester) {
+        return -1;
+    }
+
+    /**
+     * Read up to eight leading digits at once.
+     *
+     * @return the value of the digits read shifted left by 4, plus the number of digits, or 0 if none were read.
+     */
+    protected long readDigits() {
+        return 0;
+    }
+
     @Nullable
     @Override
     public String readUTF(int offset) {
@@ -778,6 +820,103 @@ public abstract class AbstractExcerpt implements Excerpt {
         return buffer.order();
     }
 
+    @Override
+    public void readInts(@NotNull int[] ints, int off, int len) {
+        checkBulk(ints.length, off, len, 4);
+        for (int i = off; i < off + len; i++)
+            ints[i] = readInt();
+    }
+
+    @Override
+    public void readLongs(@NotNull long[] longs, int off, int len) {
+        checkBulk(longs.length, off, len, 8);
+        for (int i = off; i < off + len; i++)
+            longs[i] = readLong();
+    }
+
+    @Override
+    public void readFloats(@NotNull float[] floats, int off, int len) {
+        checkBulk(floats.length, off, len, 4);
+        for (int i = off; i < off + len; i++)
+            floats[i] = readFloat();
+    }
+
+    @Override
+    public void readDoubles(@NotNull double[] doubles, int off, int len) {
+        checkBulk(doubles.length, off, len, 8);
+        for (int i = off; i < off + len; i++)
+            doubles[i] = readDouble();
+    }
+
+    @Override
+    public void writeInts(@NotNull int[] ints, int off, int len) {
+        checkBulk(ints.length, off, len, 4);
+        for (int i = off; i < off + len; i++)
+            writeInt(ints[i]);
+    }
+
+    @Override
+    public void writeLongs(@NotNull long[] longs, int off, int len) {
+        checkBulk(longs.length, off, len, 8);
+        for (int i = off; i < off + len; i++)
+            writeLong(longs[i]);
+    }
+
+    @Override
+    public void writeFloats(@NotNull float[] floats, int off, int len) {
+        checkBulk(floats.length, off, len, 4);
+        for (int i = off; i < off + len; i++)
+            writeFloat(floats[i]);
+    }
+
+    @Override
+    public void writeDoubles(@NotNull double[] doubles, int off, int len) {
+        checkBulk(doubles.length, off, len, 8);
+        for (int i = off; i < off + len; i++)
+            writeDouble(doubles[i]);
+    }
+
+    /**
+     * Check the array bounds and that the values will fit in the remaining capacity.
+     */
+    protected void checkBulk(int arrayLength, int off, int len, int size) {
+        if (off < 0 || len < 0 || off + len > arrayLength)
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + arrayLength);
+        if ((long) len * size > remaining())
+            throw new IllegalStateException("Capacity allowed: " + capacity + " remaining: " + remaining() + " required: " + (long) len * size);
+    }
+
+    @NotNull
+    @Override
+    public ByteBuffer byteBuffer() {
+        if (buffer == null)
+            throw new IllegalStateException("No excerpt to view");
+        // reuse the duplicate for as long as the excerpt is in the same mapped buffer.
+        if (sliceFor != buffer) {
+            sliceBuffer = buffer.duplicate().order(buffer.order());
+            sliceFor = buffer;
+        }
+        assert sliceBuffer != null;
+        sliceBuffer.limit(bufferOffset(limit));
+        sliceBuffer.position(bufferOffset(position));
+        return sliceBuffer;
+    }
+
+    @Override
+    public long address() {
+        if (buffer == null)
+            throw new IllegalStateException("No excerpt to view");
+        return ((DirectBuffer) buffer).address() + bufferOffset(start);
+    }
+
+    /**
+     * @param pointer a start, position or limit
+     * @return the offset of the pointer in the underlying buffer.
+     */
+    protected int bufferOffset(long pointer) {
+        return (int) pointer;
+    }
+
     @Override
     public void writeBoolean(boolean v) {
         write(v ? -1 : 0);
@@ -851,7 +990,15 @@ public abstract class AbstractExcerpt implements Excerpt {
             writeStopBit(-1);
             return;
         }
-        long strlen = str.length();
+        int strlen = str.length();
+        if (isAscii(str, strlen)) {
+            if (strlen > remaining())
+                throw new IllegalArgumentException(
+                        "encoded string too long: " + strlen + " bytes, remaining=" + remaining());
+            writeStopBit(strlen);
+            writeAscii(str, strlen);
+            return;
+        }
         int utflen = 0;
         int c;
 
@@ -897,6 +1044,43 @@ public abstract class AbstractExcerpt implements Excerpt {
         }
     }
 
+    private static boolean isAscii(@NotNull CharSequence str, int strlen) {
+        for (int i = 0; i < strlen; i++) {
+            int c = str.charAt(i);
+            // 0 is written as two bytes in modified UTF-8
+            if (c < 0x01 || c > 0x7F)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write characters known to be between 0x01 and 0x7F as one byte each.
+     */
+    protected void writeAscii(@NotNull CharSequence str, int strlen) {
+        for (int i = 0; i < strlen; i++)
+            write(str.charAt(i));
+    }
+
+    /**
+     * Append up to utflen bytes while they are ASCII.
+     *
+     * @return the number of bytes read.
+     */
+    protected int appendAscii(@NotNull StringBuilder sb, int utflen) {
+        int count = 0;
+        while (count < utflen) {
+            int c = readByte();
+            if (c < 0) {
+                position(position() - 1);
+                break;
+            }
+            count++;
+            sb.append((char) c);
+        }
+        return count;
+    }
+
     @Override
     public void writeByte(int v) {
         write(v);
@@ -1187,17 +1371,15 @@ public abstract class AbstractExcerpt implements Excerpt {
     @NotNull
     @Override
     public ByteStringAppender appendDate(long timeInMS) {
-        if (dateFormat == null) {
-            dateFormat = new SimpleDateFormat("yyyy/MM/dd");
-            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-        }
-        long date = timeInMS / 86400000;
-        if (lastDay != date) {
-            lastDateStr = dateFormat.format(new Date(timeInMS)).getBytes(ISO_8859_1);
-            lastDay = date;
-        }
-        assert lastDateStr != null;
-        append(lastDateStr);
+        long day = timeInMS / 86400000;
+        if (timeInMS % 86400000 < 0)
+            day--;
+        int yyyymmdd = CivilDates.yyyymmdd(day);
+        append4(yyyymmdd / 10000);
+        writeByte('/');
+        append2(yyyymmdd / 100 % 100);
+        writeByte('/');
+        append2(yyyymmdd % 100);
         return this;
     }
 
@@ -1219,7 +1401,8 @@ public abstract class AbstractExcerpt implements Excerpt {
     public ByteStringAppender appendDateTime(long timeInMS) {
         appendDate(timeInMS);
         writeByte('T');
-        appendTime(timeInMS);
+        long timeOfDay = timeInMS % 86400000;
+        appendTime(timeOfDay < 0 ? timeOfDay + 86400000 : timeOfDay);
         return this;
     }
 
@@ -1249,6 +1432,149 @@ public abstract class AbstractExcerpt implements Excerpt {
         return this;
     }
 
+    @NotNull
+    @Override
+    public ByteStringAppender appendTimestamp(long timestamp, @NotNull TimeUnit unit, @NotNull TimestampFormat format) {
+        long perSecond = unit.convert(1, TimeUnit.SECONDS);
+        if (perSecond == 0) {
+            // coarser than seconds.
+            timestamp = unit.toSeconds(timestamp);
+            perSecond = 1;
+        }
+        long seconds = timestamp / perSecond, fraction = timestamp % perSecond;
+        if (fraction < 0) {
+            seconds--;
+            fraction += perSecond;
+        }
+        long days = seconds / CivilDates.SECONDS_PER_DAY;
+        int secondOfDay = (int) (seconds % CivilDates.SECONDS_PER_DAY);
+        if (secondOfDay < 0) {
+            days--;
+            secondOfDay += CivilDates.SECONDS_PER_DAY;
+        }
+
+        int yyyymmdd = CivilDates.yyyymmdd(days);
+        char dateSeparator = format.dateSeparator();
+        append4(yyyymmdd / 10000);
+        if (dateSeparator != 0)
+            writeByte(dateSeparator);
+        append2(yyyymmdd / 100 % 100);
+        if (dateSeparator != 0)
+            writeByte(dateSeparator);
+        append2(yyyymmdd % 100);
+        writeByte(format.dateTimeSeparator());
+
+        append2(secondOfDay / 3600);
+        writeByte(':');
+        append2(secondOfDay / 60 % 60);
+        writeByte(':');
+        append2(secondOfDay % 60);
+        if (perSecond > 1) {
+            writeByte('.');
+            for (long div = perSecond / 10; div > 0; div /= 10)
+                writeByte((int) (fraction / div % 10 + '0'));
+        }
+        if (format.suffix() != 0)
+            writeByte(format.suffix());
+        return this;
+    }
+
+    private void append2(int num) {
+        writeByte(num / 10 + '0');
+        writeByte(num % 10 + '0');
+    }
+
+    private void append4(int num) {
+        append2(num / 100);
+        append2(num % 100);
+    }
+
+    @Override
+    public long parseTimestamp(@NotNull TimeUnit unit) {
+        int year = parseDigits(4);
+        int month, day;
+        byte b = readByte();
+        boolean iso = b == '-';
+        if (iso) {
+            // ISO 8601
+            month = parseDigits(2);
+            parseSeparator('-');
+            day = parseDigits(2);
+            parseSeparator('T');
+        } else {
+            // FIX
+            if (b < '0' || b > '9')
+                throw new IllegalArgumentException("Expected a digit or '-' but got '" + (char) b + "' at " + (position() - 1));
+            month = (b - '0') * 10 + parseDigits(1);
+            day = parseDigits(2);
+            parseSeparator('-');
+        }
+        int hour = parseDigits(2);
+        parseSeparator(':');
+        int minute = parseDigits(2);
+        parseSeparator(':');
+        int second = parseDigits(2);
+        // allows a leap second.
+        if (month < 1 || month > 12 || day < 1 || day > CivilDates.daysInMonth(year, month) || hour > 23 || minute > 59 || second > 60)
+            throw new IllegalArgumentException("Invalid timestamp " + year + '-' + month + '-' + day + ' ' + hour + ':' + minute + ':' + second);
+        long nanos = 0;
+        int offset = 0;
+        int next = remaining() > 0 ? readByte() : -1;
+        if (next == '.') {
+            next = -1;
+            long factor = 100000000;
+            while (remaining() > 0) {
+                b = readByte();
+                if (b < '0' || b > '9') {
+                    next = b;
+                    break;
+                }
+                nanos += (b - '0') * factor;
+                factor /= 10;
+            }
+        }
+        if (iso && next == 'Z') {
+            next = remaining() > 0 ? readByte() : -1;
+        } else if (iso && (next == '+' || next == '-')) {
+            // +hh:mm, +hhmm or +hh
+            int sign = next == '-' ? -1 : 1;
+            int offsetHour = parseDigits(2), offsetMinute = 0;
+            next = remaining() > 0 ? readByte() : -1;
+            if (next == ':' || next >= '0' && next <= '9') {
+                if (next != ':')
+                    position(position() - 1);
+                offsetMinute = parseDigits(2);
+                next = remaining() > 0 ? readByte() : -1;
+            }
+            if (offsetHour > 23 || offsetMinute > 59)
+                throw new IllegalArgumentException("Invalid offset " + offsetHour + ':' + offsetMinute);
+            offset = sign * (offsetHour * 3600 + offsetMinute * 60);
+        }
+        // anything else is part of the timestamp which wasn't understood, rather than the stop char.
+        if (next >= 0 && (Character.isLetterOrDigit(next) || next == '+' || next == '-' || next == ':' || next == '.'))
+            throw new IllegalArgumentException("Unexpected '" + (char) next + "' at " + (position() - 1) + " after a timestamp");
+        long seconds = CivilDates.epochDay(year, month, day) * CivilDates.SECONDS_PER_DAY
+                + hour * 3600 + minute * 60 + second - offset;
+        return unit.convert(seconds, TimeUnit.SECONDS) + unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void parseSeparator(char separator) {
+        int b = readByte();
+        if (b != separator)
+            throw new IllegalArgumentException("Expected '" + separator + "' but got '" + (char) b + "' at " + (position() - 1));
+    }
+
+    private int parseDigits(int count) {
+        int num = 0;
+        for (int i = 0; i < count; i++) {
+            int b = readByte();
+            if (b < '0' || b > '9')
+                throw new IllegalArgumentException("Expected a digit but got '" + (char) b + "' at " + (position() - 1));
+            num = num * 10 + b - '0';
+        }
+        return num;
+    }
+
     @NotNull
     @Override
     public ByteStringAppender append(double d) {
@@ -1378,6 +1704,13 @@ public abstract class AbstractExcerpt implements Excerpt {
         boolean negative = false;
         int decimalPlaces = Integer.MIN_VALUE;
         while (true) {
+            long digits;
+            if (value < MAX_VALUE_DIVIDE_1E8 && (digits = readDigits()) != 0) {
+                int n = (int) digits & 15;
+                value = value * TENS[n] + (digits >>> 4);
+                decimalPlaces += n;
+                continue;
+            }
             byte ch = readByte();
             if (ch >= '0' && ch <= '9') {
                 while (value >= MAX_VALUE_DIVIDE_10) {
@@ -1490,6 +1823,13 @@ public abstract class AbstractExcerpt implements Excerpt {
         long num = 0, scale = Long.MIN_VALUE;
         boolean negative = false;
         do {
+            long digits = readDigits();
+            if (digits != 0) {
+                int n = (int) digits & 15;
+                num = num * TENS[n] + (digits >>> 4);
+                scale += n;
+                continue;
+            }
             byte b = readByte();
             // if (b >= '0' && b <= '9')
             if ((b - ('0' + Integer.MIN_VALUE)) <= 9 + Integer.MIN_VALUE) {
@@ -1514,6 +1854,12 @@ public abstract class AbstractExcerpt implements Excerpt {
         long num = 0;
         boolean negative = false;
         do {
+            long digits = readDigits();
+            if (digits != 0) {
+                int n = (int) digits & 15;
+                num = num * TENS[n] + (digits >>> 4);
+                continue;
+            }
             byte b = readByte();
             // if (b >= '0' && b <= '9')
             if ((b - ('0' + Integer.MIN_VALUE)) <= 9 + Integer.MIN_VALUE)
@@ -1747,26 +2093,28 @@ public abstract class AbstractExcerpt implements Excerpt {
             em = chronicle.acquireMarshaller(clazz);
 
         if (em != null) {
-            writeByte(ENUMED);
-            writeEnum(clazz);
+            int id = chronicle.classId(clazz);
+            if (id >= 0) {
+                writeByte(REGISTERED);
+                writeStopBit(id);
+            } else {
+                writeByte(ENUMED);
+                writeEnum(clazz);
+            }
             em.write(this, obj);
             return;
         }
-        writeByte(SERIALIZED);
-        int pos = position();
-        writeInt(0); // padding
-        // TODO this is the lame implementation, but it works.
-        try {
-            ObjectOutputStream oos = new ObjectOutputStream(this.outputStream());
-            oos.writeObject(obj);
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
-        }
-        // save the length for later.
-        writeInt(pos, position() - pos - 4);
+        fieldSerializer().write(obj);
         checkEndOfBuffer();
     }
 
+    @NotNull
+    private FieldSerializer fieldSerializer() {
+        if (fieldSerializer == null)
+            fieldSerializer = new FieldSerializer(this);
+        return fieldSerializer;
+    }
+
     @NotNull
     @Override
     public OutputStream outputStream() {
@@ -1790,7 +2138,8 @@ public abstract class AbstractExcerpt implements Excerpt {
     private boolean autoGenerateMarshaller(Object obj) {
         return (obj instanceof Comparable && obj.getClass().getPackage().getName().startsWith("java"))
                 || obj instanceof Externalizable
-                || obj instanceof ExcerptMarshaller;
+                || obj instanceof ExcerptMarshallable
+                || obj.getClass().isAnnotationPresent(GenerateMarshaller.class);
     }
 
     @Override
@@ -1842,21 +2191,12 @@ public abstract class AbstractExcerpt implements Excerpt {
                 assert clazz != null;
                 return readEnum(clazz);
             }
-            case SERIALIZED: {
-                try {
-                    int length = readInt();
-                    if (length < 0 || length > 16 << 20)
-                        throw new IllegalStateException("Unexpected length: " + length);
-                    int end = position() + length;
-                    Object o = new ObjectInputStream(this.inputStream()).readObject();
-                    assert position() == end : "index: " + index + ", position: " + position() + ", end: " + end + " o: " + o;
-                    return o;
-                } catch (Exception e) {
-                    throw new IllegalStateException(e);
-                }
+            case REGISTERED: {
+                EnumeratedMarshaller em = chronicle.registeredMarshaller((int) readStopBit());
+                return em.read(this);
             }
             default:
-                throw new IllegalStateException("Unknown type " + (char) type);
+                return fieldSerializer().read(type);
         }
     }
 
@@ -1889,6 +2229,93 @@ public abstract class AbstractExcerpt implements Excerpt {
         return map;
     }
 
+    @Override
+    public void writeLongList(@NotNull LongList list) {
+        writeHeader(LONG_LIST, list.size());
+        writeLongs(list.values(), 0, list.size());
+    }
+
+    @Override
+    public void readLongList(@NotNull LongList list) throws IllegalStateException {
+        list.size(readHeader(LONG_LIST));
+        readLongs(list.values(), 0, list.size());
+    }
+
+    @Override
+    public void writeIntList(@NotNull IntList list) {
+        writeHeader(INT_LIST, list.size());
+        writeInts(list.values(), 0, list.size());
+    }
+
+    @Override
+    public void readIntList(@NotNull IntList list) throws IllegalStateException {
+        list.size(readHeader(INT_LIST));
+        readInts(list.values(), 0, list.size());
+    }
+
+    @Override
+    public void writeDoubleList(@NotNull DoubleList list) {
+        writeHeader(DOUBLE_LIST, list.size());
+        writeDoubles(list.values(), 0, list.size());
+    }
+
+    @Override
+    public void readDoubleList(@NotNull DoubleList list) throws IllegalStateException {
+        list.size(readHeader(DOUBLE_LIST));
+        readDoubles(list.values(), 0, list.size());
+    }
+
+    @Override
+    public void writeLongLongMap(@NotNull LongLongMap map) {
+        writeHeader(LONG_LONG_MAP, map.size());
+        for (int i = 0, slots = map.slots(); i < slots; i++) {
+            if (map.isUsed(i)) {
+                writeLong(map.keyAt(i));
+                writeLong(map.valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void readLongLongMap(@NotNull LongLongMap map) throws IllegalStateException {
+        map.clear();
+        for (int i = readHeader(LONG_LONG_MAP); i > 0; i--)
+            map.put(readLong(), readLong());
+    }
+
+    @Override
+    public void writeLongDoubleMap(@NotNull LongDoubleMap map) {
+        writeHeader(LONG_DOUBLE_MAP, map.size());
+        for (int i = 0, slots = map.slots(); i < slots; i++) {
+            if (map.isUsed(i)) {
+                writeLong(map.keyAt(i));
+                writeDouble(map.valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void readLongDoubleMap(@NotNull LongDoubleMap map) throws IllegalStateException {
+        map.clear();
+        for (int i = readHeader(LONG_DOUBLE_MAP); i > 0; i--)
+            map.put(readLong(), readDouble());
+    }
+
+    private void writeHeader(byte type, int size) {
+        writeByte(type);
+        writeStopBit(size);
+    }
+
+    private int readHeader(byte type) throws IllegalStateException {
+        byte type2 = readByte();
+        if (type2 != type)
+            throw new IllegalStateException("Expected type '" + (char) type + "' but was '" + (char) type2 + "'");
+        long size = readStopBit();
+        if (size < 0 || size > remaining())
+            throw new IllegalStateException("Invalid size " + size);
+        return (int) size;
+    }
+
     @Override
     public int available() {
         return remaining();
@@ -18,12 +18,15 @@ package com.higherfrequencytrading.chronicle.impl;
 
 import org.jetbrains.annotations.NotNull;
 
+import static com.higherfrequencytrading.chronicle.impl.UnsafeExcerpt.UNSAFE;
+
 /**
  * @author peter.lawrey
  */
 public class ByteBufferExcerpt extends AbstractExcerpt {
 
     private MappedMemory mappedMemory;
+    private long bufferAddress;
 
     protected ByteBufferExcerpt(DirectChronicle chronicle) {
         super(chronicle);
@@ -35,6 +38,7 @@ public class ByteBufferExcerpt extends AbstractExcerpt {
         MappedMemory.release(mappedMemory);
         mappedMemory = chronicle.acquireDataBuffer(startPosition);
         buffer = mappedMemory.buffer();
+        bufferAddress = mappedMemory.address();
 
         start = position = chronicle.positionInBuffer(startPosition);
         limit = chronicle.positionInBuffer(endPosition - 1) + 1;
@@ -230,6 +234,114 @@ public class ByteBufferExcerpt extends AbstractExcerpt {
         buffer.putDouble((int) (start + offset), v);
     }
 
+    // thread safe operations use the address of the buffer as ByteBuffer doesn't support them.
+
+    @Override
+    public int readVolatileInt(int offset) {
+        return UNSAFE.getIntVolatile(null, bufferAddress + start + offset);
+    }
+
+    @Override
+    public long readVolatileLong(int offset) {
+        return UNSAFE.getLongVolatile(null, bufferAddress + start + offset);
+    }
+
+    @Override
+    public void writeOrderedInt(int offset, int v) {
+        UNSAFE.putOrderedInt(null, bufferAddress + start + offset, v);
+    }
+
+    @Override
+    public void writeOrderedLong(int offset, long v) {
+        UNSAFE.putOrderedLong(null, bufferAddress + start + offset, v);
+    }
+
+    @Override
+    public boolean compareAndSwapInt(int offset, int expected, int x) {
+        return UNSAFE.compareAndSwapInt(null, bufferAddress + start + offset, expected, x);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(int offset, long expected, long x) {
+        return UNSAFE.compareAndSwapLong(null, bufferAddress + start + offset, expected, x);
+    }
+
+    @Override
+    public int getAndAddInt(int offset, int delta) {
+        for (; ; ) {
+            int value = readVolatileInt(offset);
+            if (compareAndSwapInt(offset, value, value + delta))
+                return value;
+        }
+    }
+
+    @Override
+    public long getAndAddLong(int offset, long delta) {
+        for (; ; ) {
+            long value = readVolatileLong(offset);
+            if (compareAndSwapLong(offset, value, value + delta))
+                return value;
+        }
+    }
+
+    // bulk operations use a view of the buffer to copy many values at once.
+
+    @Override
+    public void readInts(@NotNull int[] ints, int off, int len) {
+        checkBulk(ints.length, off, len, 4);
+        byteBuffer().asIntBuffer().get(ints, off, len);
+        position += len << 2;
+    }
+
+    @Override
+    public void readLongs(@NotNull long[] longs, int off, int len) {
+        checkBulk(longs.length, off, len, 8);
+        byteBuffer().asLongBuffer().get(longs, off, len);
+        position += len << 3;
+    }
+
+    @Override
+    public void readFloats(@NotNull float[] floats, int off, int len) {
+        checkBulk(floats.length, off, len, 4);
+        byteBuffer().asFloatBuffer().get(floats, off, len);
+        position += len << 2;
+    }
+
+    @Override
+    public void readDoubles(@NotNull double[] doubles, int off, int len) {
+        checkBulk(doubles.length, off, len, 8);
+        byteBuffer().asDoubleBuffer().get(doubles, off, len);
+        position += len << 3;
+    }
+
+    @Override
+    public void writeInts(@NotNull int[] ints, int off, int len) {
+        checkBulk(ints.length, off, len, 4);
+        byteBuffer().asIntBuffer().put(ints, off, len);
+        position += len << 2;
+    }
+
+    @Override
+    public void writeLongs(@NotNull long[] longs, int off, int len) {
+        checkBulk(longs.length, off, len, 8);
+        byteBuffer().asLongBuffer().put(longs, off, len);
+        position += len << 3;
+    }
+
+    @Override
+    public void writeFloats(@NotNull float[] floats, int off, int len) {
+        checkBulk(floats.length, off, len, 4);
+        byteBuffer().asFloatBuffer().put(floats, off, len);
+        position += len << 2;
+    }
+
+    @Override
+    public void writeDoubles(@NotNull double[] doubles, int off, int len) {
+        checkBulk(doubles.length, off, len, 8);
+        byteBuffer().asDoubleBuffer().put(doubles, off, len);
+        position += len << 3;
+    }
+
     @Override
     public int read(@NotNull byte[] b, int off, int len) {
         if (len > remaining())
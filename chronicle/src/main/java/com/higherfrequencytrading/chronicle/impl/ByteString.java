@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.RandomDataInput;
+import com.higherfrequencytrading.chronicle.StopCharTester;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A reusable, mutable view of the bytes of a string read from an excerpt. The bytes are copied into a buffer which is
+ * only grown, so reading a symbol, comparing it or looking it up in a ByteStringMap doesn't create a String.
+ * <p/>
+ * The bytes are kept in the modified UTF-8 form written by writeUTF, and the hash code is computed as they are read.
+ * charAt() returns one char per byte, which is only the same as the original text for ASCII. equals(CharSequence)
+ * compares against the encoded form so it is correct for any text.
+ *
+ * @author peter.lawrey
+ */
+public class ByteString implements CharSequence, Comparable<ByteString> {
+    private byte[] bytes;
+    private int length = 0;
+    private int hash = 0;
+
+    public ByteString() {
+        this(32);
+    }
+
+    public ByteString(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    public ByteString(@NotNull CharSequence cs) {
+        this(cs.length());
+        append(cs);
+    }
+
+    /**
+     * Read a string written with writeUTF.
+     *
+     * @return false if the string written was null.
+     */
+    public boolean readUTF(@NotNull RandomDataInput in) {
+        clear();
+        long len = in.readStopBit();
+        if (len == -1)
+            return false;
+        if (len < 0 || len > Integer.MAX_VALUE)
+            throw new IllegalStateException("Invalid length " + len);
+        int utflen = (int) len;
+        ensureCapacity(utflen);
+        in.readFully(bytes, 0, utflen);
+        length = utflen;
+        int h = 0;
+        for (int i = 0; i < utflen; i++)
+            h = 57 * h + bytes[i];
+        hash = h;
+        return true;
+    }
+
+    /**
+     * Read bytes up to, but not including, the stop char or the end of the excerpt. The stop char is consumed, as with
+     * parseUTF. Text written with append() is one byte per char, so this matches the original text when it is ASCII.
+     */
+    public void parse(@NotNull Excerpt in, @NotNull StopCharTester tester) {
+        clear();
+        byte[] bytes = this.bytes;
+        int len = 0, h = 0;
+        while (in.remaining() > 0) {
+            byte b = in.readByte();
+            if (b >= 0 && tester.isStopChar(b))
+                break;
+            if (len >= bytes.length) {
+                ensureCapacity(len + 1);
+                bytes = this.bytes;
+            }
+            bytes[len++] = b;
+            h = 57 * h + b;
+        }
+        length = len;
+        hash = h;
+    }
+
+    @NotNull
+    public ByteString clear() {
+        length = 0;
+        hash = 0;
+        return this;
+    }
+
+    /**
+     * Append text, encoded as writeUTF would.
+     */
+    @NotNull
+    public ByteString append(@NotNull CharSequence cs) {
+        for (int i = 0, len = cs.length(); i < len; i++) {
+            int c = cs.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                appendByte(c);
+            } else if (c > 0x07FF) {
+                appendByte(0xE0 | ((c >> 12) & 0x0F));
+                appendByte(0x80 | ((c >> 6) & 0x3F));
+                appendByte(0x80 | (c & 0x3F));
+            } else {
+                appendByte(0xC0 | ((c >> 6) & 0x1F));
+                appendByte(0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the hashCode() a ByteString holding cs would have.
+     */
+    public static int hashOf(@NotNull CharSequence cs) {
+        int h = 0;
+        for (int i = 0, len = cs.length(); i < len; i++) {
+            int c = cs.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                h = 57 * h + c;
+            } else if (c > 0x07FF) {
+                h = 57 * h + (byte) (0xE0 | ((c >> 12) & 0x0F));
+                h = 57 * h + (byte) (0x80 | ((c >> 6) & 0x3F));
+                h = 57 * h + (byte) (0x80 | (c & 0x3F));
+            } else {
+                h = 57 * h + (byte) (0xC0 | ((c >> 6) & 0x1F));
+                h = 57 * h + (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return h;
+    }
+
+    private void appendByte(int b) {
+        if (length >= bytes.length)
+            ensureCapacity(length + 1);
+        bytes[length++] = (byte) b;
+        hash = 57 * hash + (byte) b;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (bytes.length < capacity) {
+            byte[] bytes2 = new byte[Math.max(capacity, bytes.length * 2)];
+            System.arraycopy(bytes, 0, bytes2, 0, length);
+            bytes = bytes2;
+        }
+    }
+
+    public byte byteAt(int index) {
+        if (index >= length)
+            throw new IndexOutOfBoundsException("index: " + index + " length: " + length);
+        return bytes[index];
+    }
+
+    /**
+     * @return true if this holds the same bytes as writeUTF would write for cs, without creating any objects.
+     */
+    public boolean contentEquals(@NotNull CharSequence cs) {
+        int pos = 0;
+        for (int i = 0, len = cs.length(); i < len; i++) {
+            int c = cs.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                if (pos >= length || bytes[pos++] != c)
+                    return false;
+            } else if (c > 0x07FF) {
+                if (pos + 3 > length
+                        || bytes[pos++] != (byte) (0xE0 | ((c >> 12) & 0x0F))
+                        || bytes[pos++] != (byte) (0x80 | ((c >> 6) & 0x3F))
+                        || bytes[pos++] != (byte) (0x80 | (c & 0x3F)))
+                    return false;
+            } else {
+                if (pos + 2 > length
+                        || bytes[pos++] != (byte) (0xC0 | ((c >> 6) & 0x1F))
+                        || bytes[pos++] != (byte) (0x80 | (c & 0x3F)))
+                    return false;
+            }
+        }
+        return pos == length;
+    }
+
+    public boolean contentEquals(@NotNull byte[] bytes, int offset, int length) {
+        if (this.length != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (this.bytes[i] != bytes[offset + i])
+                return false;
+        return true;
+    }
+
+    /**
+     * @return a copy which doesn't change when this is reused, e.g. to use as a key.
+     */
+    @NotNull
+    public ByteString copy() {
+        ByteString bs = new ByteString(length);
+        System.arraycopy(bytes, 0, bs.bytes, 0, length);
+        bs.length = length;
+        bs.hash = hash;
+        return bs;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (byteAt(index) & 0xFF);
+    }
+
+    @NotNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start: " + start + " end: " + end + " length: " + length);
+        ByteString bs = new ByteString(end - start);
+        for (int i = start; i < end; i++)
+            bs.appendByte(bytes[i]);
+        return bs;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ByteString)) return false;
+        ByteString bs = (ByteString) o;
+        return hash == bs.hash && contentEquals(bs.bytes, 0, bs.length);
+    }
+
+    @Override
+    public int compareTo(@NotNull ByteString bs) {
+        for (int i = 0, len = Math.min(length, bs.length); i < len; i++) {
+            int cmp = (bytes[i] & 0xFF) - (bs.bytes[i] & 0xFF);
+            if (cmp != 0)
+                return cmp;
+        }
+        return length - bs.length;
+    }
+
+    /**
+     * Decodes the modified UTF-8 bytes, this creates a String.
+     */
+    @NotNull
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int c = bytes[i] & 0xFF;
+            if (c < 0x80) {
+                sb.append((char) c);
+            } else if (c >> 5 == 0x6 && i + 1 < length) {
+                sb.append((char) (((c & 0x1F) << 6) | (bytes[++i] & 0x3F)));
+            } else if (c >> 4 == 0xE && i + 2 < length) {
+                int c2 = bytes[++i] & 0x3F, c3 = bytes[++i] & 0x3F;
+                sb.append((char) (((c & 0x0F) << 12) | (c2 << 6) | c3));
+            } else {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+}
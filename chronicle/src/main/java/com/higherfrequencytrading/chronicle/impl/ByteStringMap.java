@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An open addressing map keyed by the content of a ByteString, so a symbol read into a reused ByteString can be
+ * looked up without creating a String or copying the key. Keys are copied when they are put.
+ * <p/>
+ * This is not thread safe, typically it is populated up front and then used by one consumer.
+ *
+ * @author peter.lawrey
+ */
+public class ByteStringMap<V> {
+    private ByteString[] keys;
+    private V[] values;
+    private int mask;
+    private int size = 0;
+
+    public ByteStringMap() {
+        this(32);
+    }
+
+    public ByteStringMap(int capacity) {
+        init(StringInterner.nextPower2(capacity * 2, 16));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void init(int n) {
+        keys = new ByteString[n];
+        values = (V[]) new Object[n];
+        mask = n - 1;
+    }
+
+    @Nullable
+    public V put(@NotNull CharSequence key, V value) {
+        return put(new ByteString(key), value);
+    }
+
+    @Nullable
+    public V put(@NotNull ByteString key, V value) {
+        if ((size + 1) * 2 > keys.length)
+            resize();
+        int i = indexOf(key);
+        if (keys[i] == null) {
+            keys[i] = key.copy();
+            size++;
+            values[i] = value;
+            return null;
+        }
+        V prev = values[i];
+        values[i] = value;
+        return prev;
+    }
+
+    /**
+     * Doesn't create any objects.
+     */
+    @Nullable
+    public V get(@NotNull ByteString key) {
+        int i = slot(key.hashCode());
+        for (ByteString k; (k = keys[i]) != null; i = (i + 1) & mask)
+            if (k.equals(key))
+                return values[i];
+        return null;
+    }
+
+    /**
+     * Doesn't create any objects.
+     */
+    @Nullable
+    public V get(@NotNull CharSequence key) {
+        if (key instanceof ByteString)
+            return get((ByteString) key);
+        int i = slot(ByteString.hashOf(key));
+        for (ByteString k; (k = keys[i]) != null; i = (i + 1) & mask)
+            if (k.contentEquals(key))
+                return values[i];
+        return null;
+    }
+
+    public boolean containsKey(@NotNull ByteString key) {
+        return keys[indexOf(key)] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int indexOf(@NotNull ByteString key) {
+        int i = slot(key.hashCode());
+        for (ByteString k; (k = keys[i]) != null; i = (i + 1) & mask)
+            if (k.equals(key))
+                return i;
+        return i;
+    }
+
+    private void resize() {
+        ByteString[] keys = this.keys;
+        V[] values = this.values;
+        init(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            ByteString key = keys[i];
+            if (key != null) {
+                int j = indexOf(key);
+                this.keys[j] = key;
+                this.values[j] = values[i];
+            }
+        }
+    }
+}
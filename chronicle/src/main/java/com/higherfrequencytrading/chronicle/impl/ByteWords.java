@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.StopCharTester;
+import com.higherfrequencytrading.chronicle.StopCharTesters;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Operations on eight bytes of text at a time, read as a little endian long so the first byte is the lowest.
+ * <p/>
+ * Each test sets the top bit of a byte which matches. A carry or borrow only moves towards later bytes, and only from
+ * a byte which matched, so the first match is always exact even if later ones are not.
+ *
+ * @author peter.lawrey
+ */
+enum ByteWords {
+    ;
+    static final long ONES = 0x0101010101010101L;
+    static final long HIGH_BITS = 0x8080808080808080L;
+    static final long ZEROS = '0' * ONES;
+
+    /**
+     * @return the number of leading ASCII digits, 0 to 8.
+     */
+    static int digits(long word) {
+        long x = word ^ ZEROS;
+        // digits are now 0 to 9, anything else is 10 or more.
+        return firstMatch(((x + 0x76 * ONES) | x) & HIGH_BITS);
+    }
+
+    /**
+     * @param n the number of leading digits to use, 1 to 8.
+     * @return the value of those digits
+     */
+    static long digitsValue(long word, int n) {
+        // move the digits to the top, leading zeros are added below them.
+        long x = (word ^ ZEROS) << ((8 - n) << 3);
+        x = (x * 10 + (x >>> 8)) & 0x00FF00FF00FF00FFL;
+        x = (x * 100 + (x >>> 16)) & 0x0000FFFF0000FFFFL;
+        return (x * 10000 + (x >>> 32)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * As a byte is signed, the control char testers also stop on any byte of 0x80 or more.
+     *
+     * @return the index of the first stop char, 8 if there isn't one, or -1 if the tester isn't supported.
+     */
+    static int stopIndex(long word, @NotNull StopCharTester tester) {
+        if (tester == StopCharTesters.FIX_TEXT)
+            return firstMatch(((word - 0x02 * ONES) | word) & HIGH_BITS);
+        if (tester == StopCharTesters.CONTROL_STOP)
+            return firstMatch(((word - 0x20 * ONES) | word) & HIGH_BITS);
+        int stopByte = StopCharTesters.stopByte(tester);
+        if (stopByte < 0)
+            return -1;
+        long x = word ^ (stopByte * ONES);
+        return firstMatch((x - ONES) & ~x & HIGH_BITS);
+    }
+
+    private static int firstMatch(long matches) {
+        return Long.numberOfTrailingZeros(matches) >>> 3;
+    }
+}
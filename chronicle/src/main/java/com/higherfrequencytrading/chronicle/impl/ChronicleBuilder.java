@@ -47,6 +47,8 @@ public class ChronicleBuilder {
         protected boolean minimiseByteBuffers = !ChronicleTools.is64Bit();
         protected boolean synchronousMode = false;
         protected boolean useUnsafe = false;
+        protected boolean growOnDemand = false;
+        protected int internerCapacity = AbstractChronicle.DEFAULT_INTERNER_CAPACITY;
 
         public IndexedChronicleBuilder(String basePath) {
             this.basePath = basePath;
@@ -82,11 +84,24 @@ public class ChronicleBuilder {
             return this;
         }
 
+        @NotNull
+        public IndexedChronicleBuilder growOnDemand(boolean growOnDemand) {
+            this.growOnDemand = growOnDemand;
+            return this;
+        }
+
+        @NotNull
+        public IndexedChronicleBuilder internerCapacity(int internerCapacity) {
+            this.internerCapacity = internerCapacity;
+            return this;
+        }
+
         @NotNull
         public IndexedChronicle build() throws IOException {
             IndexedChronicle indexedChronicle =
-                    new IndexedChronicle(basePath, dataBitSizeHint, byteOrder, minimiseByteBuffers, synchronousMode);
+                    new IndexedChronicle(basePath, dataBitSizeHint, byteOrder, minimiseByteBuffers, synchronousMode, internerCapacity);
             indexedChronicle.useUnsafe(useUnsafe);
+            indexedChronicle.growOnDemand(growOnDemand);
             return indexedChronicle;
         }
     }
@@ -100,8 +115,9 @@ public class ChronicleBuilder {
         @NotNull
         @Override
         public IntIndexedChronicle build() throws IOException {
-            IntIndexedChronicle intIndexedChronicle = new IntIndexedChronicle(basePath, dataBitSizeHint, byteOrder);
+            IntIndexedChronicle intIndexedChronicle = new IntIndexedChronicle(basePath, dataBitSizeHint, byteOrder, internerCapacity);
             intIndexedChronicle.useUnsafe(useUnsafe);
+            intIndexedChronicle.growOnDemand(growOnDemand);
             return intIndexedChronicle;
         }
     }
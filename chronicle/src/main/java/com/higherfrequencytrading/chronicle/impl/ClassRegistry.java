@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps classes registered up front to small ids so writeObject can write a stop bit id instead of the class name and
+ * readObject can find the class and its marshaller with an array lookup.
+ *
+ * @author peter.lawrey
+ */
+class ClassRegistry {
+    static final int MAX_ID = (1 << 14) - 1; // two bytes as a stop bit.
+
+    private final Map<Class, Integer> ids = new HashMap<Class, Integer>();
+    @NotNull
+    private Class[] classes = new Class[16];
+    @NotNull
+    private EnumeratedMarshaller[] marshallers = new EnumeratedMarshaller[16];
+
+    void register(@NotNull Class aClass, int id) throws IllegalArgumentException {
+        if (id < 0 || id > MAX_ID)
+            throw new IllegalArgumentException("id must be between 0 and " + MAX_ID + " was " + id);
+        Integer prevId = ids.get(aClass);
+        if (prevId != null && prevId != id)
+            throw new IllegalArgumentException(aClass + " is already registered as " + prevId);
+        if (id < classes.length && classes[id] != null && classes[id] != aClass)
+            throw new IllegalArgumentException(id + " is already registered for " + classes[id]);
+        if (id >= classes.length) {
+            int length = Math.max(classes.length * 2, Integer.highestOneBit(id) * 2);
+            Class[] classes2 = new Class[length];
+            System.arraycopy(classes, 0, classes2, 0, classes.length);
+            EnumeratedMarshaller[] marshallers2 = new EnumeratedMarshaller[length];
+            System.arraycopy(marshallers, 0, marshallers2, 0, marshallers.length);
+            classes = classes2;
+            marshallers = marshallers2;
+        }
+        classes[id] = aClass;
+        ids.put(aClass, id);
+    }
+
+    int idFor(@NotNull Class aClass) {
+        Integer id = ids.get(aClass);
+        return id == null ? -1 : id;
+    }
+
+    @NotNull
+    Class classFor(int id) throws IllegalStateException {
+        Class aClass = id >= 0 && id < classes.length ? classes[id] : null;
+        if (aClass == null)
+            throw new IllegalStateException("No class registered for id " + id);
+        return aClass;
+    }
+
+    @Nullable
+    EnumeratedMarshaller marshallerFor(int id) {
+        return id >= 0 && id < marshallers.length ? marshallers[id] : null;
+    }
+
+    void marshallerFor(int id, EnumeratedMarshaller marshaller) {
+        marshallers[id] = marshaller;
+    }
+
+    void clearMarshallers() {
+        for (int i = 0; i < marshallers.length; i++)
+            marshallers[i] = null;
+    }
+}
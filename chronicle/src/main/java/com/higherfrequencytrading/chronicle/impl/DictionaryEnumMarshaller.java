@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.StopCharTester;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes enums as a stop bit encoded id from a StringDictionary, 0 being null. The ids are the dictionary ids of the
+ * names so adding, removing or reordering values doesn't change what is read.
+ *
+ * @author peter.lawrey
+ */
+public class DictionaryEnumMarshaller<E extends Enum<E>> implements EnumeratedMarshaller<E> {
+    @NotNull
+    private final Class<E> classMarshaled;
+    @NotNull
+    private final StringDictionary dictionary;
+    private final E defaultValue;
+    private final int[] ids;
+    private final Map<String, E> map = new HashMap<String, E>();
+    private final StringBuilder reader = new StringBuilder();
+    @SuppressWarnings("unchecked")
+    private E[] values = (E[]) new Enum[16];
+    private boolean[] found = new boolean[16];
+
+    public DictionaryEnumMarshaller(@NotNull Class<E> classMarshaled, @NotNull StringDictionary dictionary, E defaultValue) {
+        this.classMarshaled = classMarshaled;
+        this.dictionary = dictionary;
+        this.defaultValue = defaultValue;
+        E[] constants = classMarshaled.getEnumConstants();
+        ids = new int[constants.length];
+        for (E e : constants) {
+            map.put(e.name(), e);
+            ids[e.ordinal()] = -1;
+        }
+    }
+
+    @NotNull
+    @Override
+    public Class<E> classMarshaled() {
+        return classMarshaled;
+    }
+
+    @Override
+    public void write(@NotNull Excerpt excerpt, @Nullable E e) {
+        if (e == null) {
+            excerpt.writeStopBit(0);
+            return;
+        }
+        int id = ids[e.ordinal()];
+        if (id < 0)
+            ids[e.ordinal()] = id = dictionary.idFor(e.name());
+        excerpt.writeStopBit(id + 1);
+    }
+
+    @Nullable
+    @Override
+    public E read(@NotNull Excerpt excerpt) {
+        int id = (int) excerpt.readStopBit() - 1;
+        if (id < 0)
+            return null;
+        if (id < values.length && found[id])
+            return values[id];
+        return lookup(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E lookup(int id) {
+        if (id >= values.length) {
+            int length = Math.max(values.length * 2, Integer.highestOneBit(id) * 2);
+            E[] values2 = (E[]) new Enum[length];
+            System.arraycopy(values, 0, values2, 0, values.length);
+            boolean[] found2 = new boolean[length];
+            System.arraycopy(found, 0, found2, 0, found.length);
+            values = values2;
+            found = found2;
+        }
+        E e = map.get(dictionary.stringFor(id));
+        values[id] = e == null ? defaultValue : e;
+        found[id] = true;
+        return values[id];
+    }
+
+    @Override
+    public E parse(@NotNull Excerpt excerpt, @NotNull StopCharTester tester) {
+        reader.setLength(0);
+        excerpt.parseUTF(reader, tester);
+        E e = map.get(reader.toString());
+        return e == null ? defaultValue : e;
+    }
+}
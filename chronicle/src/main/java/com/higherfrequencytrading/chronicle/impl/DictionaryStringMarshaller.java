@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.StopCharTester;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes Strings as a stop bit encoded id from a StringDictionary, 0 being null.
+ * <p/>
+ * Install with chronicle.setEnumeratedMarshaller(new DictionaryStringMarshaller(dictionary)) and writeEnum(String) and
+ * readEnum(String.class) use it.
+ *
+ * @author peter.lawrey
+ */
+public class DictionaryStringMarshaller implements EnumeratedMarshaller<CharSequence> {
+    @NotNull
+    private final StringDictionary dictionary;
+
+    public DictionaryStringMarshaller(@NotNull StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    @Override
+    public Class<CharSequence> classMarshaled() {
+        // writeEnum looks up any CharSequence as a String.
+        return (Class) String.class;
+    }
+
+    @Override
+    public void write(@NotNull Excerpt excerpt, @Nullable CharSequence s) {
+        excerpt.writeStopBit(s == null ? 0 : dictionary.idFor(s) + 1);
+    }
+
+    @Nullable
+    @Override
+    public String read(@NotNull Excerpt excerpt) {
+        int id = (int) excerpt.readStopBit();
+        return id == 0 ? null : dictionary.stringFor(id - 1);
+    }
+
+    /**
+     * Parsing text doesn't add it to the dictionary, the String comes from the chronicle's StringInterner.
+     */
+    @Override
+    public String parse(@NotNull Excerpt excerpt, @NotNull StopCharTester tester) {
+        return excerpt.parseUTF(tester);
+    }
+}
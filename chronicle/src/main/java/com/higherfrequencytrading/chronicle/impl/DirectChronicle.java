@@ -36,10 +36,32 @@ public interface DirectChronicle extends Chronicle {
 
     long startExcerpt(AbstractExcerpt appender, int capacity);
 
+    /**
+     * @return the position an appender starting at startPosition may write up to.
+     */
+    long excerptLimit(long startPosition, int capacity);
+
     void incrementSize(long l);
 
     <E> EnumeratedMarshaller<E> acquireMarshaller(Class<E> aClass);
 
+    /**
+     * @return the id registered for this class or -1 if it is not registered.
+     */
+    int classId(Class aClass);
+
+    /**
+     * @return the marshaller for the class registered with this id.
+     * @throws IllegalStateException if no class is registered with this id.
+     */
+    EnumeratedMarshaller registeredMarshaller(int id) throws IllegalStateException;
+
+    /**
+     * @return the class registered with this id.
+     * @throws IllegalStateException if no class is registered with this id.
+     */
+    Class registeredClass(int id) throws IllegalStateException;
+
     boolean synchronousMode();
 
     boolean multiThreaded();
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive doubles, which can be written with Excerpt.writeDoubleList and read back into the same list
+ * without boxing.
+ *
+ * @author peter.lawrey
+ */
+public class DoubleList {
+    @NotNull
+    private double[] values;
+    private int size = 0;
+
+    public DoubleList() {
+        this(16);
+    }
+
+    public DoubleList(int capacity) {
+        values = new double[capacity];
+    }
+
+    public void add(double value) {
+        if (size == values.length)
+            ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    public double get(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public void set(int index, double value) {
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Set the size, growing the underlying array if needed, so it can be filled in bulk.
+     */
+    public void size(int size) {
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    /**
+     * @return the underlying array, only the first size() values are used.
+     */
+    @NotNull
+    public double[] values() {
+        return values;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length)
+            values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index: " + index + " size: " + size);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(values, size));
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.misc.Unsafe;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes objects which don't have a marshaller field by field, without the stream headers and class descriptors of
+ * an ObjectOutputStream. Field offsets are cached per class and objects are created without calling a constructor,
+ * as serialization does.
+ * <p/>
+ * Each value starts with a type byte, N, E, I and S as written by writeObject, and
+ * <ul>
+ * <li>F - a class then its non-static, non-transient fields, super class fields first, then sorted by name.</li>
+ * <li>A - an array, the component type, the length and each element.</li>
+ * <li>L - a java.util Collection, its class, the size and each element.</li>
+ * <li>M - a java.util Map, its class, the size and each key and value.</li>
+ * <li>R - a back reference to an F, A, L or M written earlier in the same writeObject.</li>
+ * <li>C - an enum constant, its class and its name as written by the VanillaEnumMarshaller.</li>
+ * </ul>
+ * Classes with writeObject, readObject, writeReplace or readResolve methods or which extend a JDK class other than a
+ * supported collection still use ObjectOutputStream.
+ *
+ * @author peter.lawrey
+ */
+class FieldSerializer {
+    static final byte SERIALIZED = 'S';
+    static final byte FIELDS = 'F';
+    static final byte ARRAY = 'A';
+    static final byte COLLECTION = 'L';
+    static final byte MAP = 'M';
+    static final byte REFERENCE = 'R';
+    static final byte ENUM = 'C';
+
+    private static final Unsafe UNSAFE = UnsafeExcerpt.UNSAFE;
+    private static final ConcurrentMap<Class, ClassInfo> CLASS_INFO = new ConcurrentHashMap<Class, ClassInfo>();
+    private static final Set<Class> COLLECTIONS = new HashSet<Class>(Arrays.<Class>asList(
+            ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class,
+            HashMap.class, LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class));
+
+    @NotNull
+    private final AbstractExcerpt excerpt;
+    private final Map<Object, Integer> written = new IdentityHashMap<Object, Integer>();
+    private final List<Object> read = new ArrayList<Object>();
+    private int writeDepth = 0, readDepth = 0;
+
+    FieldSerializer(@NotNull AbstractExcerpt excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    /**
+     * Write an object which doesn't have a marshaller, nested values are written with writeObject.
+     */
+    @SuppressWarnings("unchecked")
+    void write(@NotNull Object obj) {
+        writeDepth++;
+        try {
+            Integer ref = written.get(obj);
+            if (ref != null) {
+                excerpt.writeByte(REFERENCE);
+                excerpt.writeStopBit(ref);
+                return;
+            }
+            Class clazz = obj.getClass();
+            if (obj instanceof Enum) {
+                // by name, a constant with a body is a sub-class of the enum.
+                Class enumClass = ((Enum) obj).getDeclaringClass();
+                excerpt.writeByte(ENUM);
+                writeClass(enumClass);
+                excerpt.chronicle.acquireMarshaller(enumClass).write(excerpt, obj);
+
+            } else if (clazz.isArray()) {
+                written.put(obj, written.size());
+                excerpt.writeByte(ARRAY);
+                writeArray(obj, clazz.getComponentType());
+
+            } else if (isSupportedCollection(obj)) {
+                written.put(obj, written.size());
+                excerpt.writeByte(obj instanceof Map ? MAP : COLLECTION);
+                writeClass(clazz);
+                writeCollection(obj);
+
+            } else {
+                ClassInfo info = classInfo(clazz);
+                if (info == null) {
+                    excerpt.writeByte(SERIALIZED);
+                    writeSerialized(obj);
+                    return;
+                }
+                written.put(obj, written.size());
+                excerpt.writeByte(FIELDS);
+                writeClass(clazz);
+                writeFields(obj, info);
+            }
+        } finally {
+            // don't hold on to the objects written.
+            if (--writeDepth == 0)
+                written.clear();
+        }
+    }
+
+    /**
+     * Read a value written by write(Object) after its type byte.
+     */
+    @Nullable
+    Object read(int type) {
+        readDepth++;
+        try {
+            switch (type) {
+                case REFERENCE: {
+                    int ref = (int) excerpt.readStopBit();
+                    if (ref < 0 || ref >= read.size())
+                        throw new IllegalStateException("Unknown reference " + ref);
+                    return read.get(ref);
+                }
+                case ENUM:
+                    return excerpt.readEnum(readClass());
+                case ARRAY:
+                    return readArray(readComponentType());
+                case COLLECTION:
+                case MAP: {
+                    Object obj = newCollection(readClass());
+                    read.add(obj);
+                    readCollection(obj);
+                    return obj;
+                }
+                case FIELDS: {
+                    Class clazz = readClass();
+                    ClassInfo info = classInfo(clazz);
+                    if (info == null)
+                        throw new IllegalStateException("Cannot read the fields of " + clazz);
+                    Object obj;
+                    try {
+                        obj = UNSAFE.allocateInstance(clazz);
+                    } catch (InstantiationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    read.add(obj);
+                    readFields(obj, info);
+                    return obj;
+                }
+                case SERIALIZED:
+                    return readSerialized();
+                default:
+                    throw new IllegalStateException("Unknown type " + (char) type);
+            }
+        } finally {
+            if (--readDepth == 0)
+                read.clear();
+        }
+    }
+
+    private void writeClass(@NotNull Class clazz) {
+        int id = excerpt.chronicle.classId(clazz);
+        if (id >= 0) {
+            excerpt.writeStopBit(id + 1);
+        } else {
+            excerpt.writeStopBit(0);
+            excerpt.writeEnum(clazz);
+        }
+    }
+
+    @NotNull
+    private Class readClass() {
+        int id = (int) excerpt.readStopBit();
+        if (id > 0)
+            return excerpt.chronicle.registeredClass(id - 1);
+        Class clazz = excerpt.readEnum(Class.class);
+        if (clazz == null)
+            throw new IllegalStateException("Unable to read class");
+        return clazz;
+    }
+
+    private void writeArray(@NotNull Object array, @NotNull Class componentType) {
+        writeComponentType(componentType);
+        int length = Array.getLength(array);
+        excerpt.writeStopBit(length);
+        if (componentType == int.class) {
+            excerpt.writeInts((int[]) array, 0, length);
+        } else if (componentType == long.class) {
+            excerpt.writeLongs((long[]) array, 0, length);
+        } else if (componentType == double.class) {
+            excerpt.writeDoubles((double[]) array, 0, length);
+        } else if (componentType == float.class) {
+            excerpt.writeFloats((float[]) array, 0, length);
+        } else if (componentType == byte.class) {
+            excerpt.write((byte[]) array, 0, length);
+        } else if (componentType == boolean.class) {
+            for (boolean b : (boolean[]) array)
+                excerpt.writeBoolean(b);
+        } else if (componentType == char.class) {
+            for (char ch : (char[]) array)
+                excerpt.writeChar(ch);
+        } else if (componentType == short.class) {
+            for (short s : (short[]) array)
+                excerpt.writeShort(s);
+        } else {
+            for (Object o : (Object[]) array)
+                excerpt.writeObject(o);
+        }
+    }
+
+    @NotNull
+    private Object readArray(@NotNull Class componentType) {
+        int length = (int) excerpt.readStopBit();
+        if (length < 0)
+            throw new IllegalStateException("Invalid array length " + length);
+        Object array = Array.newInstance(componentType, length);
+        read.add(array);
+        if (componentType == int.class) {
+            excerpt.readInts((int[]) array, 0, length);
+        } else if (componentType == long.class) {
+            excerpt.readLongs((long[]) array, 0, length);
+        } else if (componentType == double.class) {
+            excerpt.readDoubles((double[]) array, 0, length);
+        } else if (componentType == float.class) {
+            excerpt.readFloats((float[]) array, 0, length);
+        } else if (componentType == byte.class) {
+            excerpt.readFully((byte[]) array);
+        } else if (componentType == boolean.class) {
+            boolean[] booleans = (boolean[]) array;
+            for (int i = 0; i < length; i++)
+                booleans[i] = excerpt.readBoolean();
+        } else if (componentType == char.class) {
+            char[] chars = (char[]) array;
+            for (int i = 0; i < length; i++)
+                chars[i] = excerpt.readChar();
+        } else if (componentType == short.class) {
+            short[] shorts = (short[]) array;
+            for (int i = 0; i < length; i++)
+                shorts[i] = excerpt.readShort();
+        } else {
+            Object[] objects = (Object[]) array;
+            for (int i = 0; i < length; i++)
+                objects[i] = excerpt.readObject();
+        }
+        return array;
+    }
+
+    // primitives as their JVM descriptor, '[' for an array of and 'L' followed by the class.
+    private void writeComponentType(@NotNull Class componentType) {
+        if (componentType.isArray()) {
+            excerpt.writeByte('[');
+            writeComponentType(componentType.getComponentType());
+        } else if (componentType.isPrimitive()) {
+            excerpt.writeByte(primitiveCode(componentType));
+        } else {
+            excerpt.writeByte('L');
+            writeClass(componentType);
+        }
+    }
+
+    @NotNull
+    private Class readComponentType() {
+        int code = excerpt.readByte();
+        switch (code) {
+            case '[':
+                return Array.newInstance(readComponentType(), 0).getClass();
+            case 'L':
+                return readClass();
+            default:
+                return primitiveFor(code);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeCollection(@NotNull Object obj) {
+        if (obj instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) obj;
+            excerpt.writeStopBit(map.size());
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                excerpt.writeObject(entry.getKey());
+                excerpt.writeObject(entry.getValue());
+            }
+        } else {
+            Collection<Object> coll = (Collection<Object>) obj;
+            excerpt.writeStopBit(coll.size());
+            for (Object o : coll)
+                excerpt.writeObject(o);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readCollection(@NotNull Object obj) {
+        int size = (int) excerpt.readStopBit();
+        if (obj instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) obj;
+            for (int i = 0; i < size; i++) {
+                Object key = excerpt.readObject();
+                map.put(key, excerpt.readObject());
+            }
+        } else {
+            Collection<Object> coll = (Collection<Object>) obj;
+            for (int i = 0; i < size; i++)
+                coll.add(excerpt.readObject());
+        }
+    }
+
+    @NotNull
+    private static Object newCollection(@NotNull Class clazz) {
+        if (!COLLECTIONS.contains(clazz))
+            throw new IllegalStateException(clazz + " is not a supported collection");
+        try {
+            return clazz.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isSupportedCollection(@NotNull Object obj) {
+        if (!COLLECTIONS.contains(obj.getClass()))
+            return false;
+        // a Comparator would be lost.
+        if (obj instanceof SortedSet)
+            return ((SortedSet) obj).comparator() == null;
+        if (obj instanceof SortedMap)
+            return ((SortedMap) obj).comparator() == null;
+        return true;
+    }
+
+    private void writeFields(@NotNull Object obj, @NotNull ClassInfo info) {
+        long[] offsets = info.offsets;
+        byte[] codes = info.codes;
+        for (int i = 0; i < offsets.length; i++) {
+            long offset = offsets[i];
+            switch (codes[i]) {
+                case 'Z':
+                    excerpt.writeBoolean(UNSAFE.getBoolean(obj, offset));
+                    break;
+                case 'B':
+                    excerpt.writeByte(UNSAFE.getByte(obj, offset));
+                    break;
+                case 'C':
+                    excerpt.writeChar(UNSAFE.getChar(obj, offset));
+                    break;
+                case 'S':
+                    excerpt.writeShort(UNSAFE.getShort(obj, offset));
+                    break;
+                case 'I':
+                    excerpt.writeInt(UNSAFE.getInt(obj, offset));
+                    break;
+                case 'J':
+                    excerpt.writeLong(UNSAFE.getLong(obj, offset));
+                    break;
+                case 'F':
+                    excerpt.writeFloat(UNSAFE.getFloat(obj, offset));
+                    break;
+                case 'D':
+                    excerpt.writeDouble(UNSAFE.getDouble(obj, offset));
+                    break;
+                default:
+                    excerpt.writeObject(UNSAFE.getObject(obj, offset));
+                    break;
+            }
+        }
+    }
+
+    private void readFields(@NotNull Object obj, @NotNull ClassInfo info) {
+        long[] offsets = info.offsets;
+        byte[] codes = info.codes;
+        for (int i = 0; i < offsets.length; i++) {
+            long offset = offsets[i];
+            switch (codes[i]) {
+                case 'Z':
+                    UNSAFE.putBoolean(obj, offset, excerpt.readBoolean());
+                    break;
+                case 'B':
+                    UNSAFE.putByte(obj, offset, excerpt.readByte());
+                    break;
+                case 'C':
+                    UNSAFE.putChar(obj, offset, excerpt.readChar());
+                    break;
+                case 'S':
+                    UNSAFE.putShort(obj, offset, excerpt.readShort());
+                    break;
+                case 'I':
+                    UNSAFE.putInt(obj, offset, excerpt.readInt());
+                    break;
+                case 'J':
+                    UNSAFE.putLong(obj, offset, excerpt.readLong());
+                    break;
+                case 'F':
+                    UNSAFE.putFloat(obj, offset, excerpt.readFloat());
+                    break;
+                case 'D':
+                    UNSAFE.putDouble(obj, offset, excerpt.readDouble());
+                    break;
+                default:
+                    UNSAFE.putObject(obj, offset, excerpt.readObject());
+                    break;
+            }
+        }
+    }
+
+    private void writeSerialized(@NotNull Object obj) {
+        int pos = excerpt.position();
+        excerpt.writeInt(0); // padding
+        try {
+            ObjectOutputStream oos = new ObjectOutputStream(excerpt.outputStream());
+            oos.writeObject(obj);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // save the length for later.
+        excerpt.writeInt(pos, excerpt.position() - pos - 4);
+    }
+
+    @Nullable
+    private Object readSerialized() {
+        try {
+            int length = excerpt.readInt();
+            if (length < 0 || length > 16 << 20)
+                throw new IllegalStateException("Unexpected length: " + length);
+            int end = excerpt.position() + length;
+            Object o = new ObjectInputStream(excerpt.inputStream()).readObject();
+            assert excerpt.position() == end : "index: " + excerpt.index() + ", position: " + excerpt.position() + ", end: " + end + " o: " + o;
+            return o;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the cached field layout or null if this class has to be serialized with ObjectOutputStream.
+     */
+    @Nullable
+    static ClassInfo classInfo(@NotNull Class clazz) {
+        ClassInfo info = CLASS_INFO.get(clazz);
+        if (info == null) {
+            info = createClassInfo(clazz);
+            CLASS_INFO.putIfAbsent(clazz, info);
+        }
+        return info.codes == null ? null : info;
+    }
+
+    @NotNull
+    private static ClassInfo createClassInfo(@NotNull Class clazz) {
+        List<Class> hierarchy = new ArrayList<Class>();
+        for (Class c = clazz; c != Object.class; c = c.getSuperclass()) {
+            if (isJdkClass(c) || hasSerializationMethods(c))
+                return new ClassInfo(null, null);
+            hierarchy.add(0, c);
+        }
+        List<Field> fields = new ArrayList<Field>();
+        for (Class c : hierarchy) {
+            Field[] declared = c.getDeclaredFields();
+            Arrays.sort(declared, new Comparator<Field>() {
+                @Override
+                public int compare(@NotNull Field f1, @NotNull Field f2) {
+                    return f1.getName().compareTo(f2.getName());
+                }
+            });
+            for (Field field : declared)
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0)
+                    fields.add(field);
+        }
+        long[] offsets = new long[fields.size()];
+        byte[] codes = new byte[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            offsets[i] = UNSAFE.objectFieldOffset(field);
+            Class type = field.getType();
+            codes[i] = type.isPrimitive() ? primitiveCode(type) : (byte) 'L';
+        }
+        return new ClassInfo(offsets, codes);
+    }
+
+    private static boolean isJdkClass(@NotNull Class clazz) {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("com.sun.");
+    }
+
+    private static boolean hasSerializationMethods(@NotNull Class clazz) {
+        if (Externalizable.class.isAssignableFrom(clazz))
+            return true;
+        for (Method method : clazz.getDeclaredMethods()) {
+            String name = method.getName();
+            int params = method.getParameterTypes().length;
+            if ((name.equals("writeObject") || name.equals("readObject")) && params == 1
+                    && (method.getParameterTypes()[0] == ObjectOutputStream.class || method.getParameterTypes()[0] == ObjectInputStream.class)
+                    || (name.equals("writeReplace") || name.equals("readResolve")) && params == 0)
+                return true;
+        }
+        return false;
+    }
+
+    private static byte primitiveCode(@NotNull Class type) {
+        if (type == boolean.class) return 'Z';
+        if (type == byte.class) return 'B';
+        if (type == char.class) return 'C';
+        if (type == short.class) return 'S';
+        if (type == int.class) return 'I';
+        if (type == long.class) return 'J';
+        if (type == float.class) return 'F';
+        if (type == double.class) return 'D';
+        throw new IllegalArgumentException("Not a primitive " + type);
+    }
+
+    @NotNull
+    private static Class primitiveFor(int code) {
+        switch (code) {
+            case 'Z':
+                return boolean.class;
+            case 'B':
+                return byte.class;
+            case 'C':
+                return char.class;
+            case 'S':
+                return short.class;
+            case 'I':
+                return int.class;
+            case 'J':
+                return long.class;
+            case 'F':
+                return float.class;
+            case 'D':
+                return double.class;
+            default:
+                throw new IllegalStateException("Unknown component type " + (char) code);
+        }
+    }
+
+    static class ClassInfo {
+        @Nullable
+        final long[] offsets;
+        @Nullable
+        final byte[] codes;
+
+        ClassInfo(@Nullable long[] offsets, @Nullable byte[] codes) {
+            this.offsets = offsets;
+            this.codes = codes;
+        }
+    }
+}
@@ -25,6 +25,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ConcurrentModificationException;
 import java.util.logging.Logger;
 
@@ -49,6 +51,7 @@ public class IndexedChronicle extends AbstractChronicle {
     private final boolean synchronousMode;
 
     private boolean useUnsafe = false;
+    private boolean growOnDemand = false;
     private AbstractExcerpt lastAppender;
     private Thread appendingThread;
 
@@ -69,7 +72,11 @@ public class IndexedChronicle extends AbstractChronicle {
     }
 
     public IndexedChronicle(String basePath, int dataBitSizeHint, ByteOrder byteOrder, boolean minimiseByteBuffers, boolean synchronousMode) throws IOException {
-        super(extractName(basePath));
+        this(basePath, dataBitSizeHint, byteOrder, minimiseByteBuffers, synchronousMode, DEFAULT_INTERNER_CAPACITY);
+    }
+
+    public IndexedChronicle(String basePath, int dataBitSizeHint, ByteOrder byteOrder, boolean minimiseByteBuffers, boolean synchronousMode, int internerCapacity) throws IOException {
+        super(extractName(basePath), internerCapacity);
 
         this.byteOrder = byteOrder;
         this.synchronousMode = synchronousMode;
@@ -160,10 +167,67 @@ public class IndexedChronicle extends AbstractChronicle {
         return useUnsafe;
     }
 
+    /**
+     * When growing on demand, an appender can write up to the end of the current data block and the capacity passed to
+     * startExcerpt is only the minimum needed. finish() truncates the excerpt to what was written so writers don't
+     * need to guess a maximum size and the data file stays densely packed.
+     */
+    public void growOnDemand(boolean growOnDemand) {
+        this.growOnDemand = growOnDemand;
+    }
+
+    public boolean growOnDemand() {
+        return growOnDemand;
+    }
+
     public ByteOrder byteOrder() {
         return byteOrder;
     }
 
+    /**
+     * The data files of two chronicles can only be copied between each other if they have the same data bit size.
+     */
+    public int dataBitSize() {
+        return dataBitSize;
+    }
+
+    /**
+     * Send the data file as it is from start up to end, positions of excerpts from getIndexData. This includes any
+     * padding at the end of a block.
+     */
+    public void transferDataTo(long start, long end, @NotNull WritableByteChannel out) throws IOException {
+        checkNotClosed();
+        if (start < 0 || end < start || end > getIndexData(size))
+            throw new IndexOutOfBoundsException("from " + start + " to " + end + " of " + getIndexData(size));
+        dataCache.transferTo(start, end - start, out);
+    }
+
+    /**
+     * Append excerpts from data sent by transferDataTo of a chronicle with the same data bit size, writing it straight
+     * into the data file. The data must start where the next excerpt of this chronicle does.
+     *
+     * @param lengths of each excerpt, including any padding.
+     */
+    public void transferFrom(@NotNull ReadableByteChannel in, @NotNull IntList lengths) throws IOException {
+        checkNotClosed();
+        long start = getIndexData(size);
+        long end = start;
+        for (int i = 0; i < lengths.size(); i++)
+            end += lengths.get(i);
+        if (end > start) {
+            // map the last block so the file is long enough to write into.
+            MappedMemory last = dataCache.acquire((end - 1) >>> dataBitSize);
+            last.release();
+            dataCache.transferFrom(in, start, end - start);
+        }
+        long position = start;
+        for (int i = 0; i < lengths.size(); i++) {
+            position += lengths.get(i);
+            setIndexData(size + 1, position);
+            size++;
+        }
+    }
+
     @NotNull
     @Override
     public Excerpt createExcerpt() {
@@ -213,6 +277,17 @@ public class IndexedChronicle extends AbstractChronicle {
         return startPosition;
     }
 
+    @Override
+    public long excerptLimit(long startPosition, int capacity) {
+        long endPosition = startPosition + capacity;
+        if (growOnDemand) {
+            long endOfBlock = (startPosition | dataLowMask) + 1;
+            if (endOfBlock > endPosition)
+                return endOfBlock;
+        }
+        return endPosition;
+    }
+
     @Override
     public void incrementSize(long expected) {
         if (size + 1 != expected)
@@ -16,6 +16,8 @@
 
 package com.higherfrequencytrading.chronicle.impl;
 
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -40,6 +42,10 @@ public class IntIndexedChronicle extends IndexedChronicle {
         super(basePath, dataBitSizeHint, byteOrder);
     }
 
+    public IntIndexedChronicle(String basePath, int dataBitSizeHint, ByteOrder byteOrder, int internerCapacity) throws IOException {
+        super(basePath, dataBitSizeHint, byteOrder, !ChronicleTools.is64Bit(), false, internerCapacity);
+    }
+
     @Override
     public long getIndexData(long indexId) {
         long indexOffset = indexId << indexBitSize();
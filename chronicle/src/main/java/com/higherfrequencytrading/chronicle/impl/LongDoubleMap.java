@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing map of long keys to double values without boxing, which can be written with
+ * Excerpt.writeLongDoubleMap and read back into the same map.
+ * <p/>
+ * This is not thread safe.
+ *
+ * @author peter.lawrey
+ */
+public class LongDoubleMap {
+    private long[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int mask;
+    private int size = 0;
+
+    public LongDoubleMap() {
+        this(16);
+    }
+
+    public LongDoubleMap(int capacity) {
+        init(StringInterner.nextPower2(capacity * 2, 16));
+    }
+
+    private void init(int n) {
+        keys = new long[n];
+        values = new double[n];
+        used = new boolean[n];
+        mask = n - 1;
+    }
+
+    public void put(long key, double value) {
+        if ((size + 1) * 2 > keys.length)
+            resize();
+        int i = indexOf(key);
+        if (!used[i]) {
+            used[i] = true;
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * @return the value or notFound if there isn't one.
+     */
+    public double get(long key, double notFound) {
+        int i = indexOf(key);
+        return used[i] ? values[i] : notFound;
+    }
+
+    public boolean containsKey(long key) {
+        return used[indexOf(key)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * The number of slots to iterate over with isUsed, keyAt and valueAt.
+     */
+    public int slots() {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public double valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int indexOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int i = (int) (h ^ (h >>> 32)) & mask;
+        while (used[i] && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    private void resize() {
+        long[] keys = this.keys;
+        double[] values = this.values;
+        boolean[] used = this.used;
+        init(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                int j = indexOf(keys[i]);
+                this.used[j] = true;
+                this.keys[j] = keys[i];
+                this.values[j] = values[i];
+            }
+        }
+    }
+}
@@ -18,12 +18,15 @@ package com.higherfrequencytrading.chronicle.impl;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -86,15 +89,12 @@ public class MappedFile {
     }
 
     public MappedMemory acquire(long index, boolean prefetch) throws IOException {
+        // another thread can release one of these mappings once read, in which case map it again.
         MappedMemory map0 = this.map0, map1 = this.map1;
-        if (map0 != null && map0.index() == index) {
-            map0.reserve();
+        if (map0 != null && map0.index() == index && map0.tryReserve())
             return map0;
-        }
-        if (map1 != null && map1.index() == index) {
-            map1.reserve();
+        if (map1 != null && map1.index() == index && map1.tryReserve())
             return map1;
-        }
         return acquire0(index, prefetch);
     }
 
@@ -113,6 +113,32 @@ public class MappedFile {
         return map0;
     }
 
+    /**
+     * Send a range of the file without copying it into user space where the OS supports it.
+     */
+    public void transferTo(long position, long count, @NotNull WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long sent = fileChannel.transferTo(position, count, target);
+            if (sent <= 0)
+                throw new EOFException("Unable to send " + count + " bytes at " + position);
+            position += sent;
+            count -= sent;
+        }
+    }
+
+    /**
+     * Write a range of the file straight from a channel. The file must already be at least position long.
+     */
+    public void transferFrom(@NotNull ReadableByteChannel src, long position, long count) throws IOException {
+        while (count > 0) {
+            long read = fileChannel.transferFrom(src, position, count);
+            if (read <= 0)
+                throw new EOFException("Unable to receive " + count + " bytes at " + position);
+            position += read;
+            count -= read;
+        }
+    }
+
     public synchronized void close() throws IOException {
         if (map1 != null) {
             map1.release();
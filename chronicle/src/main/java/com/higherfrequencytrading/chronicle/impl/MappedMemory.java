@@ -16,13 +16,17 @@
 
 package com.higherfrequencytrading.chronicle.impl;
 
-import sun.misc.Cleaner;
 import sun.nio.ch.DirectBuffer;
 
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class MappedMemory {
+    // Java 9+ has Unsafe.invokeCleaner(ByteBuffer) and no sun.misc.Cleaner, earlier versions need the Cleaner.
+    private static final Method INVOKE_CLEANER = findMethod("sun.misc.Unsafe", "invokeCleaner", ByteBuffer.class);
+    private static final Method CLEAN = INVOKE_CLEANER == null ? findMethod("sun.misc.Cleaner", "clean") : null;
     private final MappedByteBuffer buffer;
     private final long index;
     private final AtomicInteger refCount = new AtomicInteger(1);
@@ -34,9 +38,27 @@ public class MappedMemory {
     }
 
     private static void unmap(MappedByteBuffer bb) {
-        Cleaner cl = ((DirectBuffer) bb).cleaner();
-        if (cl != null)
-            cl.clean();
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UnsafeExcerpt.UNSAFE, bb);
+                return;
+            }
+            Object cleaner = ((DirectBuffer) bb).cleaner();
+            if (cleaner != null && CLEAN != null)
+                CLEAN.invoke(cleaner);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to unmap buffer", e);
+        }
+    }
+
+    private static Method findMethod(String className, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = Class.forName(className).getMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     public long index() {
@@ -48,6 +70,19 @@ public class MappedMemory {
         refCount.incrementAndGet();
     }
 
+    /**
+     * @return false if this has already been released by every user and can't be used.
+     */
+    public boolean tryReserve() {
+        for (; ; ) {
+            int count = refCount.get();
+            if (count <= 0 || unmapped)
+                return false;
+            if (refCount.compareAndSet(count, count + 1))
+                return true;
+        }
+    }
+
     public void release() {
         if (unmapped) throw new IllegalStateException();
         if (refCount.decrementAndGet() > 0) return;
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.codegen.Marshallers;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * Assigns each distinct String a small id on first use. The Strings are persisted in a sidecar chronicle,
+ * basePath + ".dict", so a reader in another process can resolve ids written by this one.
+ * <p/>
+ * Used with DictionaryStringMarshaller and DictionaryEnumMarshaller, a repeated symbol costs a stop bit encoded id
+ * (one byte for the first 127 symbols) to write and an array lookup to read.
+ * <p/>
+ * As with any IndexedChronicle, only one process should add to a dictionary at a time.
+ *
+ * @author peter.lawrey
+ */
+public class StringDictionary implements Closeable {
+    public static final String DICTIONARY_SUFFIX = ".dict";
+    private static final int DATA_BITS_SIZE = 16;
+
+    @NotNull
+    private final IndexedChronicle chronicle;
+    private final Excerpt appender;
+    private final Excerpt reader;
+    // open addressing table of id + 1 by the hash of the String, 0 being empty.
+    @NotNull
+    private int[] ids = new int[128];
+    private final StringBuilder utf = new StringBuilder();
+    @NotNull
+    private volatile String[] strings = new String[64];
+    private volatile int size = 0;
+
+    public StringDictionary(@NotNull String basePath) throws IOException {
+        chronicle = new IndexedChronicle(basePath + DICTIONARY_SUFFIX, DATA_BITS_SIZE);
+        appender = chronicle.createExcerpt();
+        reader = chronicle.createExcerpt();
+        refresh();
+    }
+
+    /**
+     * @return the id for this String, adding it to the dictionary if needed.
+     */
+    public int idFor(@NotNull CharSequence cs) {
+        synchronized (this) {
+            int id = lookup(cs);
+            if (id >= 0)
+                return id;
+            // another process may have added it already.
+            refresh();
+            id = lookup(cs);
+            if (id >= 0)
+                return id;
+            return append(cs.toString());
+        }
+    }
+
+    /**
+     * Compares the content so a reused StringBuilder can be looked up without creating a String.
+     *
+     * @return the id or -1 if the text isn't in the dictionary.
+     */
+    private int lookup(@NotNull CharSequence cs) {
+        int[] ids = this.ids;
+        int mask = ids.length - 1;
+        for (int i = StringInterner.spread(cs) & mask, id; (id = ids[i]) != 0; i = (i + 1) & mask)
+            if (strings[id - 1].contentEquals(cs))
+                return id - 1;
+        return -1;
+    }
+
+    private static void putId(@NotNull int[] ids, @NotNull String s, int id) {
+        int mask = ids.length - 1;
+        int i = StringInterner.spread(s) & mask;
+        while (ids[i] != 0)
+            i = (i + 1) & mask;
+        ids[i] = id + 1;
+    }
+
+    /**
+     * @return the String for this id
+     * @throws IllegalStateException if the id has not been added to the dictionary.
+     */
+    @NotNull
+    public String stringFor(int id) throws IllegalStateException {
+        if (id >= 0 && id < size)
+            return strings[id];
+        synchronized (this) {
+            refresh();
+            if (id < 0 || id >= size)
+                throw new IllegalStateException("Unknown dictionary id " + id + " size: " + size);
+            return strings[id];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int append(@NotNull String s) {
+        int id = size;
+        appender.startExcerpt(Math.max(8, Marshallers.stopBitSize(id + 1) + Marshallers.utfSize(s)));
+        // the id is stored + 1 so the excerpt doesn't start with a 0 byte.
+        appender.writeStopBit(id + 1);
+        appender.writeUTF(s);
+        appender.finish();
+        add(id, s);
+        return id;
+    }
+
+    private void refresh() {
+        try {
+            while (reader.index(size)) {
+                long id = reader.readStopBit() - 1;
+                if (id != size)
+                    throw new StreamCorruptedException("Expected dictionary id " + size + " but was " + id);
+                reader.readUTF(utf);
+                add(size, utf.toString());
+            }
+        } catch (StreamCorruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void add(int id, @NotNull String s) {
+        String[] strings = this.strings;
+        if (id >= strings.length) {
+            String[] strings2 = new String[strings.length * 2];
+            System.arraycopy(strings, 0, strings2, 0, strings.length);
+            strings = strings2;
+        }
+        strings[id] = s;
+        this.strings = strings;
+        if ((id + 1) * 2 > ids.length) {
+            int[] ids2 = new int[ids.length * 2];
+            for (int i = 0; i < id; i++)
+                putId(ids2, strings[i], i);
+            ids = ids2;
+        }
+        putId(ids, s, id);
+        // publish the String before the size.
+        size = id + 1;
+    }
+
+    @Override
+    public void close() {
+        chronicle.close();
+    }
+}
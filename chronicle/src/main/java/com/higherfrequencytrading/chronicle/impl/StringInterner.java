@@ -20,17 +20,39 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
+ * A fixed size cache of Strings so the same text read many times returns the same String.
+ * <p/>
+ * The cache is set associative, each hash maps to a set of WAYS entries kept in least recently used order. A hit on
+ * the most recent entry doesn't lock, it only adds to a plain per stripe counter, other hits and misses lock one
+ * stripe of sets to reorder it. Concurrent readers always get a String equal to the text, as Strings are immutable
+ * the lock free reads are safe.
+ * <p/>
+ * The counters are statistics, lock free hits are counted without a memory barrier so concurrent hits can be lost.
+ *
  * @author peter.lawrey
  */
 public class StringInterner {
+    public static final int WAYS = 4;
+    static final int STRIPES = 64;
+    // counters are spaced out to avoid false sharing between stripes.
+    private static final int COUNTER_SPACING = 8;
+
     @NotNull
     private final String[] interner;
-    private final int mask;
+    private final int setMask;
+    @NotNull
+    private final Object[] locks = new Object[STRIPES];
+    @NotNull
+    private final long[] hits = new long[STRIPES * COUNTER_SPACING];
+    @NotNull
+    private final long[] misses = new long[STRIPES * COUNTER_SPACING];
 
     public StringInterner(int capacity) {
         int n = nextPower2(capacity, 128);
         interner = new String[n];
-        mask = n - 1;
+        setMask = n / WAYS - 1;
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new Object();
     }
 
     private static boolean isEqual(@Nullable CharSequence s, @NotNull CharSequence cs) {
@@ -44,12 +66,74 @@ public class StringInterner {
 
     @NotNull
     public String intern(@NotNull CharSequence cs) {
-        int h = (int) (hashOf(cs) & mask);
-        String s = interner[h];
-        if (isEqual(s, cs))
+        int set = spread(cs) & setMask;
+        int base = set * WAYS;
+        String[] interner = this.interner;
+        String s = interner[base];
+        int stripe = (set & (STRIPES - 1)) * COUNTER_SPACING;
+        if (isEqual(s, cs)) {
+            hits[stripe]++;
             return s;
-        String s2 = cs.toString();
-        return interner[h] = s2;
+        }
+        synchronized (locks[set & (STRIPES - 1)]) {
+            for (int i = 1; i < WAYS; i++) {
+                s = interner[base + i];
+                if (isEqual(s, cs)) {
+                    hits[stripe]++;
+                    moveToFront(base, i, s);
+                    return s;
+                }
+            }
+            // the least recently used entry drops off the end.
+            misses[stripe]++;
+            String s2 = cs.toString();
+            moveToFront(base, WAYS - 1, s2);
+            return s2;
+        }
+    }
+
+    private void moveToFront(int base, int way, String s) {
+        System.arraycopy(interner, base, interner, base + 1, way);
+        interner[base] = s;
+    }
+
+    public int capacity() {
+        return interner.length;
+    }
+
+    public long hits() {
+        return sum(hits);
+    }
+
+    public long misses() {
+        return sum(misses);
+    }
+
+    /**
+     * @return the proportion of calls to intern which returned a cached String, or 0 if there hasn't been any.
+     */
+    public double hitRate() {
+        long hits = hits(), total = hits + misses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public void resetCounters() {
+        for (int i = 0; i < STRIPES * COUNTER_SPACING; i += COUNTER_SPACING) {
+            hits[i] = 0;
+            misses[i] = 0;
+        }
+    }
+
+    private static long sum(@NotNull long[] counters) {
+        long total = 0;
+        for (int i = 0; i < STRIPES * COUNTER_SPACING; i += COUNTER_SPACING)
+            total += counters[i];
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "StringInterner{capacity=" + capacity() + ", hits=" + hits() + ", misses=" + misses() + '}';
     }
 
     public static int nextPower2(int n, int min) {
@@ -70,4 +154,18 @@ public class StringInterner {
         }
         return hash;
     }
+
+    /**
+     * hashOf() only differs in the low bits for the last few characters, so symbols with a common prefix and suffix
+     * collide. Mixing all the bits down spreads them over the sets.
+     */
+    static int spread(@NotNull CharSequence s) {
+        long h = hashOf(s);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
 }
@@ -16,11 +16,13 @@
 
 package com.higherfrequencytrading.chronicle.impl;
 
+import com.higherfrequencytrading.chronicle.StopCharTester;
 import org.jetbrains.annotations.NotNull;
 import sun.misc.Unsafe;
 import sun.nio.ch.DirectBuffer;
 
 import java.lang.reflect.Field;
+import java.nio.ByteOrder;
 
 /**
  * @author peter.lawrey
@@ -34,6 +36,11 @@ public class UnsafeExcerpt extends AbstractExcerpt {
     @SuppressWarnings("ALL")
     public static final Unsafe UNSAFE;
     private static final int BYTES_OFFSET;
+    private static final int INTS_OFFSET;
+    private static final int LONGS_OFFSET;
+    private static final int FLOATS_OFFSET;
+    private static final int DOUBLES_OFFSET;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
 
     // RandomDataInput
     static {
@@ -43,12 +50,18 @@ public class UnsafeExcerpt extends AbstractExcerpt {
             theUnsafe.setAccessible(true);
             UNSAFE = (Unsafe) theUnsafe.get(null);
             BYTES_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+            INTS_OFFSET = UNSAFE.arrayBaseOffset(int[].class);
+            LONGS_OFFSET = UNSAFE.arrayBaseOffset(long[].class);
+            FLOATS_OFFSET = UNSAFE.arrayBaseOffset(float[].class);
+            DOUBLES_OFFSET = UNSAFE.arrayBaseOffset(double[].class);
         } catch (Exception e) {
             throw new AssertionError(e);
         }
     }
 
     private MappedMemory mappedMemory;
+    // scratch space so ASCII text is appended to a StringBuilder in one copy.
+    private char[] asciiChars = new char[64];
 
     protected UnsafeExcerpt(DirectChronicle chronicle) {
         super(chronicle);
@@ -68,6 +81,83 @@ public class UnsafeExcerpt extends AbstractExcerpt {
         assert limit > start && position < limit && endPosition > startPosition;
     }
 
+    @Override
+    protected void writeAscii(@NotNull CharSequence str, int strlen) {
+        long address = position;
+        int i = 0;
+        if (LITTLE_ENDIAN) {
+            // eight characters at a time, the first in the lowest byte.
+            for (; i <= strlen - 8; i += 8) {
+                long word = str.charAt(i)
+                        | (long) str.charAt(i + 1) << 8
+                        | (long) str.charAt(i + 2) << 16
+                        | (long) str.charAt(i + 3) << 24
+                        | (long) str.charAt(i + 4) << 32
+                        | (long) str.charAt(i + 5) << 40
+                        | (long) str.charAt(i + 6) << 48
+                        | (long) str.charAt(i + 7) << 56;
+                UNSAFE.putLong(address + i, word);
+            }
+        }
+        for (; i < strlen; i++)
+            UNSAFE.putByte(address + i, (byte) str.charAt(i));
+        position += strlen;
+    }
+
+    @Override
+    protected int appendAscii(@NotNull StringBuilder sb, int utflen) {
+        char[] chars = asciiChars;
+        if (chars.length < utflen)
+            asciiChars = chars = new char[Math.max(utflen, chars.length * 2)];
+        long address = position;
+        int count = 0;
+        if (LITTLE_ENDIAN) {
+            // check eight bytes at a time for any top bit set.
+            for (; count <= utflen - 8; count += 8) {
+                long word = UNSAFE.getLong(address + count);
+                if ((word & ByteWords.HIGH_BITS) != 0)
+                    break;
+                for (int j = 0; j < 8; j++)
+                    chars[count + j] = (char) ((word >>> (j << 3)) & 0x7F);
+            }
+        }
+        for (; count < utflen; count++) {
+            byte b = UNSAFE.getByte(address + count);
+            if (b < 0)
+                break;
+            chars[count] = (char) b;
+        }
+        // one copy into the StringBuilder rather than a bounds checked append per character.
+        sb.append(chars, 0, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    protected int stopIndex(@NotNull StopCharTester tester) {
+        if (!LITTLE_ENDIAN || limit - position < 8)
+            return -1;
+        return ByteWords.stopIndex(UNSAFE.getLong(position), tester);
+    }
+
+    @Override
+    protected long readDigits() {
+        if (!LITTLE_ENDIAN || limit - position < 8)
+            return 0;
+        long word = UNSAFE.getLong(position);
+        int n = ByteWords.digits(word);
+        if (n == 0)
+            return 0;
+        position += n;
+        return ByteWords.digitsValue(word, n) << 4 | n;
+    }
+
+    @Override
+    protected int bufferOffset(long pointer) {
+        assert buffer != null;
+        return (int) (pointer - ((DirectBuffer) buffer).address());
+    }
+
     @Override
     public byte readByte() {
         return UNSAFE.getByte(position++);
@@ -244,6 +334,110 @@ public class UnsafeExcerpt extends AbstractExcerpt {
         UNSAFE.putDouble(start + offset, v);
     }
 
+    @Override
+    public int readVolatileInt(int offset) {
+        return UNSAFE.getIntVolatile(null, start + offset);
+    }
+
+    @Override
+    public long readVolatileLong(int offset) {
+        return UNSAFE.getLongVolatile(null, start + offset);
+    }
+
+    @Override
+    public void writeOrderedInt(int offset, int v) {
+        UNSAFE.putOrderedInt(null, start + offset, v);
+    }
+
+    @Override
+    public void writeOrderedLong(int offset, long v) {
+        UNSAFE.putOrderedLong(null, start + offset, v);
+    }
+
+    @Override
+    public boolean compareAndSwapInt(int offset, int expected, int x) {
+        return UNSAFE.compareAndSwapInt(null, start + offset, expected, x);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(int offset, long expected, long x) {
+        return UNSAFE.compareAndSwapLong(null, start + offset, expected, x);
+    }
+
+    @Override
+    public int getAndAddInt(int offset, int delta) {
+        for (; ; ) {
+            int value = readVolatileInt(offset);
+            if (compareAndSwapInt(offset, value, value + delta))
+                return value;
+        }
+    }
+
+    @Override
+    public long getAndAddLong(int offset, long delta) {
+        for (; ; ) {
+            long value = readVolatileLong(offset);
+            if (compareAndSwapLong(offset, value, value + delta))
+                return value;
+        }
+    }
+
+    @Override
+    public void readInts(@NotNull int[] ints, int off, int len) {
+        checkBulk(ints.length, off, len, 4);
+        UNSAFE.copyMemory(null, position, ints, INTS_OFFSET + ((long) off << 2), (long) len << 2);
+        position += (long) len << 2;
+    }
+
+    @Override
+    public void readLongs(@NotNull long[] longs, int off, int len) {
+        checkBulk(longs.length, off, len, 8);
+        UNSAFE.copyMemory(null, position, longs, LONGS_OFFSET + ((long) off << 3), (long) len << 3);
+        position += (long) len << 3;
+    }
+
+    @Override
+    public void readFloats(@NotNull float[] floats, int off, int len) {
+        checkBulk(floats.length, off, len, 4);
+        UNSAFE.copyMemory(null, position, floats, FLOATS_OFFSET + ((long) off << 2), (long) len << 2);
+        position += (long) len << 2;
+    }
+
+    @Override
+    public void readDoubles(@NotNull double[] doubles, int off, int len) {
+        checkBulk(doubles.length, off, len, 8);
+        UNSAFE.copyMemory(null, position, doubles, DOUBLES_OFFSET + ((long) off << 3), (long) len << 3);
+        position += (long) len << 3;
+    }
+
+    @Override
+    public void writeInts(@NotNull int[] ints, int off, int len) {
+        checkBulk(ints.length, off, len, 4);
+        UNSAFE.copyMemory(ints, INTS_OFFSET + ((long) off << 2), null, position, (long) len << 2);
+        position += (long) len << 2;
+    }
+
+    @Override
+    public void writeLongs(@NotNull long[] longs, int off, int len) {
+        checkBulk(longs.length, off, len, 8);
+        UNSAFE.copyMemory(longs, LONGS_OFFSET + ((long) off << 3), null, position, (long) len << 3);
+        position += (long) len << 3;
+    }
+
+    @Override
+    public void writeFloats(@NotNull float[] floats, int off, int len) {
+        checkBulk(floats.length, off, len, 4);
+        UNSAFE.copyMemory(floats, FLOATS_OFFSET + ((long) off << 2), null, position, (long) len << 2);
+        position += (long) len << 2;
+    }
+
+    @Override
+    public void writeDoubles(@NotNull double[] doubles, int off, int len) {
+        checkBulk(doubles.length, off, len, 8);
+        UNSAFE.copyMemory(doubles, DOUBLES_OFFSET + ((long) off << 3), null, position, (long) len << 3);
+        position += (long) len << 3;
+    }
+
     @Override
     public int read(@NotNull byte[] b, int off, int len) {
         if (len < 0 || off < 0 || off + len > b.length)
@@ -81,7 +81,9 @@ public class VanillaEnumMarshaller<E extends Enum<E>> implements EnumeratedMarsh
 
     @Override
     public E read(@NotNull Excerpt excerpt) {
-        excerpt.readUTF(reader);
+        // writeEnum(null) writes a null String.
+        if (!excerpt.readUTF(reader))
+            return null;
         return builderToEnum();
     }
 
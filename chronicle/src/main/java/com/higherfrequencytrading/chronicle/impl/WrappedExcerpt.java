@@ -20,6 +20,7 @@ import com.higherfrequencytrading.chronicle.ByteStringAppender;
 import com.higherfrequencytrading.chronicle.Chronicle;
 import com.higherfrequencytrading.chronicle.Excerpt;
 import com.higherfrequencytrading.chronicle.StopCharTester;
+import com.higherfrequencytrading.chronicle.TimestampFormat;
 import com.higherfrequencytrading.chronicle.math.MutableDecimal;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -31,6 +32,7 @@ import java.nio.ByteOrder;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author peter.lawrey
@@ -246,6 +248,97 @@ public class WrappedExcerpt implements Excerpt {
         return excerpt.order();
     }
 
+    @Override
+    public int readVolatileInt(int offset) {
+        return excerpt.readVolatileInt(offset);
+    }
+
+    @Override
+    public long readVolatileLong(int offset) {
+        return excerpt.readVolatileLong(offset);
+    }
+
+    @Override
+    public void writeOrderedInt(int offset, int v) {
+        excerpt.writeOrderedInt(offset, v);
+    }
+
+    @Override
+    public void writeOrderedLong(int offset, long v) {
+        excerpt.writeOrderedLong(offset, v);
+    }
+
+    @Override
+    public boolean compareAndSwapInt(int offset, int expected, int x) {
+        return excerpt.compareAndSwapInt(offset, expected, x);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(int offset, long expected, long x) {
+        return excerpt.compareAndSwapLong(offset, expected, x);
+    }
+
+    @Override
+    public int getAndAddInt(int offset, int delta) {
+        return excerpt.getAndAddInt(offset, delta);
+    }
+
+    @Override
+    public long getAndAddLong(int offset, long delta) {
+        return excerpt.getAndAddLong(offset, delta);
+    }
+
+    @Override
+    public void readInts(@NotNull int[] ints, int off, int len) {
+        excerpt.readInts(ints, off, len);
+    }
+
+    @Override
+    public void readLongs(@NotNull long[] longs, int off, int len) {
+        excerpt.readLongs(longs, off, len);
+    }
+
+    @Override
+    public void readFloats(@NotNull float[] floats, int off, int len) {
+        excerpt.readFloats(floats, off, len);
+    }
+
+    @Override
+    public void readDoubles(@NotNull double[] doubles, int off, int len) {
+        excerpt.readDoubles(doubles, off, len);
+    }
+
+    @Override
+    public void writeInts(@NotNull int[] ints, int off, int len) {
+        excerpt.writeInts(ints, off, len);
+    }
+
+    @Override
+    public void writeLongs(@NotNull long[] longs, int off, int len) {
+        excerpt.writeLongs(longs, off, len);
+    }
+
+    @Override
+    public void writeFloats(@NotNull float[] floats, int off, int len) {
+        excerpt.writeFloats(floats, off, len);
+    }
+
+    @Override
+    public void writeDoubles(@NotNull double[] doubles, int off, int len) {
+        excerpt.writeDoubles(doubles, off, len);
+    }
+
+    @NotNull
+    @Override
+    public ByteBuffer byteBuffer() {
+        return excerpt.byteBuffer();
+    }
+
+    @Override
+    public long address() {
+        return excerpt.address();
+    }
+
     public void read(@NotNull ByteBuffer bb) {
         excerpt.read(bb);
     }
@@ -446,6 +539,13 @@ public class WrappedExcerpt implements Excerpt {
         return this;
     }
 
+    @NotNull
+    @Override
+    public ByteStringAppender appendTimestamp(long timestamp, @NotNull TimeUnit unit, @NotNull TimestampFormat format) {
+        excerpt.appendTimestamp(timestamp, unit, format);
+        return this;
+    }
+
     @NotNull
     public ByteStringAppender appendTime(long timeInMS) {
         excerpt.appendTime(timeInMS);
@@ -475,6 +575,11 @@ public class WrappedExcerpt implements Excerpt {
         return excerpt.parseDouble();
     }
 
+    @Override
+    public long parseTimestamp(@NotNull TimeUnit unit) {
+        return excerpt.parseTimestamp(unit);
+    }
+
     public long parseLong() {
         return excerpt.parseLong();
     }
@@ -743,4 +848,54 @@ public class WrappedExcerpt implements Excerpt {
     public void findRange(long[] startEnd, ExcerptComparator comparator) {
         excerpt.findRange(startEnd, comparator);
     }
+
+    @Override
+    public void writeLongList(@NotNull LongList list) {
+        excerpt.writeLongList(list);
+    }
+
+    @Override
+    public void readLongList(@NotNull LongList list) throws IllegalStateException {
+        excerpt.readLongList(list);
+    }
+
+    @Override
+    public void writeIntList(@NotNull IntList list) {
+        excerpt.writeIntList(list);
+    }
+
+    @Override
+    public void readIntList(@NotNull IntList list) throws IllegalStateException {
+        excerpt.readIntList(list);
+    }
+
+    @Override
+    public void writeDoubleList(@NotNull DoubleList list) {
+        excerpt.writeDoubleList(list);
+    }
+
+    @Override
+    public void readDoubleList(@NotNull DoubleList list) throws IllegalStateException {
+        excerpt.readDoubleList(list);
+    }
+
+    @Override
+    public void writeLongLongMap(@NotNull LongLongMap map) {
+        excerpt.writeLongLongMap(map);
+    }
+
+    @Override
+    public void readLongLongMap(@NotNull LongLongMap map) throws IllegalStateException {
+        excerpt.readLongLongMap(map);
+    }
+
+    @Override
+    public void writeLongDoubleMap(@NotNull LongDoubleMap map) {
+        excerpt.writeLongDoubleMap(map);
+    }
+
+    @Override
+    public void readLongDoubleMap(@NotNull LongDoubleMap map) throws IllegalStateException {
+        excerpt.readLongDoubleMap(map);
+    }
 }
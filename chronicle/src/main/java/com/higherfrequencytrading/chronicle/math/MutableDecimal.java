@@ -26,11 +26,15 @@ import java.math.RoundingMode;
  */
 public class MutableDecimal extends Number implements Comparable<MutableDecimal> {
     static final double[] TENS = new double[16];
+    static final long[] LONG_TENS = new long[19];
 
     static {
         TENS[0] = 1;
         for (int i = 1; i < TENS.length; i++)
             TENS[i] = 10 * TENS[i - 1];
+        LONG_TENS[0] = 1;
+        for (int i = 1; i < LONG_TENS.length; i++)
+            LONG_TENS[i] = 10 * LONG_TENS[i - 1];
     }
 
     private long value;
@@ -57,7 +61,7 @@ public class MutableDecimal extends Number implements Comparable<MutableDecimal>
         double d2 = precision > 0 ? d * tens(precision) : d / tens(-precision);
         scale = precision;
         if (Math.abs(d2) < 1e16) {
-            value = Math.round(d);
+            value = Math.round(d2);
         } else {
             BigDecimal bd = BigDecimal.valueOf(d).setScale(precision, RoundingMode.HALF_UP);
             value = bd.unscaledValue().longValue();
@@ -73,6 +77,11 @@ public class MutableDecimal extends Number implements Comparable<MutableDecimal>
         this.scale = scale;
     }
 
+    public void set(@NotNull MutableDecimal md) {
+        value = md.value;
+        scale = md.scale;
+    }
+
     public long value() {
         return value;
     }
@@ -186,14 +195,16 @@ public class MutableDecimal extends Number implements Comparable<MutableDecimal>
         long value = this.value, ovalue = o.value;
         if (scale == o.scale)
             return longCompareTo(value, ovalue);
-        if (value == 0 && ovalue == 0)
-            return 0;
-        double d = doubleValue(), od = o.doubleValue();
-        double err = (Math.abs(d) + Math.abs(od)) / 1e15;
-        if (d + err < od) return -1;
-        if (d > od + err) return +1;
-        // fallback.
-        return BigDecimal.valueOf(value, scale).compareTo(BigDecimal.valueOf(ovalue, o.scale()));
+        int signum = Long.signum(value), osignum = Long.signum(ovalue);
+        if (signum != osignum || signum == 0)
+            return longCompareTo(signum, osignum);
+        // the same sign, rescale the mantissa with the lower scale. If it doesn't fit in a long it is the larger in size.
+        if (scale < o.scale) {
+            long shift = (long) o.scale - scale;
+            return canScaleUp(value, shift) ? longCompareTo(scaleUp(value, shift), ovalue) : signum;
+        }
+        long shift = (long) scale - o.scale;
+        return canScaleUp(ovalue, shift) ? longCompareTo(value, scaleUp(ovalue, shift)) : -osignum;
     }
 
     private int longCompareTo(long value, long ovalue) {
@@ -203,4 +214,287 @@ public class MutableDecimal extends Number implements Comparable<MutableDecimal>
     public int scale() {
         return scale;
     }
+
+    /*
+     * Arithmetic in place, these don't create any objects. The mantissa is checked for overflow, an ArithmeticException
+     * is thrown rather than returning the wrong value.
+     */
+    @NotNull
+    public MutableDecimal add(@NotNull MutableDecimal md) {
+        return add(md.value, md.scale);
+    }
+
+    /**
+     * The result has the larger of the two scales.
+     */
+    @NotNull
+    public MutableDecimal add(long value, int scale) {
+        if (scale > this.scale) {
+            this.value = scaleUpAndAdd(this.value, (long) scale - this.scale, value);
+            this.scale = scale;
+        } else {
+            this.value = scaleUpAndAdd(value, (long) this.scale - scale, this.value);
+        }
+        return this;
+    }
+
+    @NotNull
+    public MutableDecimal subtract(@NotNull MutableDecimal md) {
+        return add(negateExact(md.value), md.scale);
+    }
+
+    @NotNull
+    public MutableDecimal subtract(long value, int scale) {
+        return add(negateExact(value), scale);
+    }
+
+    /**
+     * The result has the sum of the two scales, use rescale() or multiply(md, scale, mode) to reduce it.
+     */
+    @NotNull
+    public MutableDecimal multiply(@NotNull MutableDecimal md) {
+        return multiply(md.value, md.scale);
+    }
+
+    @NotNull
+    public MutableDecimal multiply(long value, int scale) {
+        this.value = multiplyExact(this.value, value);
+        this.scale += scale;
+        return this;
+    }
+
+    @NotNull
+    public MutableDecimal multiply(@NotNull MutableDecimal md, int scale, @NotNull RoundingMode mode) {
+        return multiply(md.value, md.scale).rescale(scale, mode);
+    }
+
+    /**
+     * @param scale of the result.
+     * @param mode  how to round the last digit.
+     */
+    @NotNull
+    public MutableDecimal divide(@NotNull MutableDecimal md, int scale, @NotNull RoundingMode mode) {
+        return divide(md.value, md.scale, scale, mode);
+    }
+
+    @NotNull
+    public MutableDecimal divide(long value, int scale, int resultScale, @NotNull RoundingMode mode) {
+        if (value == 0)
+            throw new ArithmeticException("Division by zero");
+        // this.value / 10^this.scale / (value / 10^scale) * 10^resultScale
+        long shift = (long) resultScale - this.scale + scale;
+        if (shift >= 0)
+            this.value = divide(scaleUp(this.value, shift), value, mode);
+        else if (-shift < LONG_TENS.length)
+            this.value = divideByTens(this.value, value, (int) -shift, mode);
+        else
+            // only a divisor of 1 can leave a quotient over a half.
+            this.value = roundTiny(this.value, (this.value ^ value) < 0 ? -1 : 1,
+                    value == 1 || value == -1 ? -shift : -shift + 1, mode);
+        this.scale = resultScale;
+        return this;
+    }
+
+    /**
+     * Change the scale, rounding if digits are dropped.
+     */
+    @NotNull
+    public MutableDecimal rescale(int scale, @NotNull RoundingMode mode) {
+        long shift = (long) scale - this.scale;
+        if (shift >= 0)
+            value = scaleUp(value, shift);
+        else if (-shift < LONG_TENS.length)
+            value = divide(value, LONG_TENS[(int) -shift], mode);
+        else
+            value = roundTiny(value, value < 0 ? -1 : 1, -shift, mode);
+        this.scale = scale;
+        return this;
+    }
+
+    @NotNull
+    public MutableDecimal negate() {
+        value = negateExact(value);
+        return this;
+    }
+
+    @NotNull
+    public MutableDecimal abs() {
+        return value < 0 ? negate() : this;
+    }
+
+    public int signum() {
+        return value < 0 ? -1 : value > 0 ? 1 : 0;
+    }
+
+    /**
+     * @return num / div rounded to a whole number.
+     */
+    static long divide(long num, long div, @NotNull RoundingMode mode) {
+        if (num == Long.MIN_VALUE && div == -1)
+            throw new ArithmeticException("long overflow");
+        long quotient = num / div, remainder = num % div;
+        if (remainder == 0)
+            return quotient;
+        int sign = (num ^ div) < 0 ? -1 : 1;
+        // compare the remainder with half the divisor without overflowing.
+        long absRemainder = Math.abs(remainder), rest = Math.abs(div) - absRemainder;
+        int half = absRemainder < rest ? -1 : absRemainder > rest ? 1 : 0;
+        return round(quotient, sign, half, mode);
+    }
+
+    /**
+     * @return num / div / 10^shift rounded to a whole number, even when div * 10^shift would overflow.
+     */
+    static long divideByTens(long num, long div, int shift, @NotNull RoundingMode mode) {
+        long tens = LONG_TENS[shift];
+        if (div != Long.MIN_VALUE && Math.abs(div) <= Long.MAX_VALUE / tens)
+            return divide(num, div * tens, mode);
+        // |div| > 1 so this can't overflow, the quotient is rounded in two steps.
+        long quotient = num / div, remainder = num % div;
+        long quotient2 = quotient / tens, remainder2 = quotient % tens;
+        if (remainder == 0 && remainder2 == 0)
+            return quotient2;
+        int sign = (num ^ div) < 0 ? -1 : 1;
+        // the first remainder is less than one so it only decides a tie.
+        long absRemainder = Math.abs(remainder2), rest = tens - absRemainder;
+        int half = absRemainder < rest ? -1 : absRemainder > rest ? 1 : remainder != 0 ? 1 : 0;
+        return round(quotient2, sign, half, mode);
+    }
+
+    /**
+     * @param quotient truncated towards zero.
+     * @param half     -1, 0 or 1 as the non zero part dropped is less than, equal to or more than a half.
+     */
+    private static long round(long quotient, int sign, int half, @NotNull RoundingMode mode) {
+        switch (mode) {
+            case UP:
+                return quotient + sign;
+            case DOWN:
+                return quotient;
+            case CEILING:
+                return sign > 0 ? quotient + 1 : quotient;
+            case FLOOR:
+                return sign < 0 ? quotient - 1 : quotient;
+            case HALF_UP:
+                return half >= 0 ? quotient + sign : quotient;
+            case HALF_DOWN:
+                return half > 0 ? quotient + sign : quotient;
+            case HALF_EVEN:
+                return half > 0 || half == 0 && (quotient & 1) != 0 ? quotient + sign : quotient;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+    }
+
+    /**
+     * Round num / 10^shift where shift is at least 19, so the result is less than one in magnitude.
+     */
+    private static long roundTiny(long num, int sign, long shift, @NotNull RoundingMode mode) {
+        if (num == 0)
+            return 0;
+        // only 10^19 can be less than twice a long.
+        int half = -1;
+        if (shift == LONG_TENS.length) {
+            long abs = Math.abs(num), halfOne = 5 * LONG_TENS[LONG_TENS.length - 1];
+            half = abs == Long.MIN_VALUE || abs > halfOne ? 1 : abs == halfOne ? 0 : -1;
+        }
+        switch (mode) {
+            case UP:
+                return sign;
+            case DOWN:
+                return 0;
+            case CEILING:
+                return sign > 0 ? 1 : 0;
+            case FLOOR:
+                return sign < 0 ? -1 : 0;
+            case HALF_UP:
+                return half >= 0 ? sign : 0;
+            case HALF_DOWN:
+            case HALF_EVEN:
+                return half > 0 ? sign : 0;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+    }
+
+    private static long scaleUp(long value, long shift) {
+        if (value == 0)
+            return 0;
+        if (shift >= LONG_TENS.length)
+            throw new ArithmeticException("Overflow scaling by 10^" + shift);
+        return multiplyExact(value, LONG_TENS[(int) shift]);
+    }
+
+    private static boolean canScaleUp(long value, long shift) {
+        if (shift >= LONG_TENS.length)
+            return value == 0;
+        long ten = LONG_TENS[(int) shift];
+        return value <= Long.MAX_VALUE / ten && value >= Long.MIN_VALUE / ten;
+    }
+
+    /**
+     * value * 10^shift + add, the product can be larger than a long provided the sum is not.
+     */
+    private static long scaleUpAndAdd(long value, long shift, long add) {
+        if (canScaleUp(value, shift))
+            return addExact(scaleUp(value, shift), add);
+        // 10^19 fits in an unsigned long, any larger power times a non zero value can't be brought back by add.
+        if (shift > LONG_TENS.length)
+            throw new ArithmeticException("Overflow scaling by 10^" + shift);
+        long ten, high;
+        if (shift < LONG_TENS.length) {
+            ten = LONG_TENS[(int) shift];
+            high = multiplyHigh(value, ten);
+        } else {
+            // 10^19 - 2^64 as a signed long, the 2^64 adds value to the high word.
+            ten = LONG_TENS[LONG_TENS.length - 1] * 10;
+            high = multiplyHigh(value, ten) + value;
+        }
+        long low = value * ten;
+        long sum = low + add;
+        // carry from the low word as unsigned and sign extend add.
+        if ((sum ^ Long.MIN_VALUE) < (low ^ Long.MIN_VALUE))
+            high++;
+        high += add >> 63;
+        if (high != sum >> 63)
+            throw new ArithmeticException("long overflow");
+        return sum;
+    }
+
+    /**
+     * @return the high 64 bits of the 128 bit product.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32, x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32, y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+        long z0 = t >> 32;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    private static long addExact(long a, long b) {
+        long r = a + b;
+        // overflow if both arguments have the opposite sign of the result.
+        if (((a ^ r) & (b ^ r)) < 0)
+            throw new ArithmeticException("long overflow");
+        return r;
+    }
+
+    private static long negateExact(long a) {
+        if (a == Long.MIN_VALUE)
+            throw new ArithmeticException("long overflow");
+        return -a;
+    }
+
+    private static long multiplyExact(long a, long b) {
+        long r = a * b;
+        long ax = Math.abs(a), bx = Math.abs(b);
+        if ((ax | bx) >>> 31 != 0) {
+            if (b != 0 && (r / b != a || a == Long.MIN_VALUE && b == -1))
+                throw new ArithmeticException("long overflow");
+        }
+        return r;
+    }
 }
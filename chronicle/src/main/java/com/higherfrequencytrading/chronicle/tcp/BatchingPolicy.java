@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.higherfrequencytrading.chronicle.tcp;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How a source groups excerpts into one socket write.
+ * <p/>
+ * A batch is whatever is available up to maxMessages or maxBytes, so a sink which is catching up gets large writes
+ * while a live sink still gets each excerpt as soon as it is written. Optionally a source can linger for more excerpts
+ * before sending a batch. When adaptive, the linger is scaled by how full the previous batch was so a source only
+ * waits when the writer is outpacing it, and never for a lone message.
+ *
+ * @author peter.lawrey
+ */
+public class BatchingPolicy {
+    private int maxBytes = TcpUtil.INITIAL_BUFFER_SIZE;
+    private int maxMessages = 128;
+    private long maxLingerNS = 0;
+    private boolean adaptive = true;
+
+    @NotNull
+    public BatchingPolicy maxBytes(int maxBytes) {
+        if (maxBytes < TcpUtil.HEADER_SIZE)
+            throw new IllegalArgumentException("maxBytes must be at least " + TcpUtil.HEADER_SIZE);
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    public int maxBytes() {
+        return maxBytes;
+    }
+
+    @NotNull
+    public BatchingPolicy maxMessages(int maxMessages) {
+        if (maxMessages < 1)
+            throw new IllegalArgumentException("maxMessages must be at least 1");
+        this.maxMessages = maxMessages;
+        return this;
+    }
+
+    public int maxMessages() {
+        return maxMessages;
+    }
+
+    @NotNull
+    public BatchingPolicy maxLingerNS(long maxLingerNS) {
+        this.maxLingerNS = maxLingerNS;
+        return this;
+    }
+
+    public long maxLingerNS() {
+        return maxLingerNS;
+    }
+
+    @NotNull
+    public BatchingPolicy adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    public boolean adaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @param messages in the batch so far.
+     * @param bytes    in the batch so far.
+     * @param size     of the next message including its header.
+     * @return whether the next message can be added to the batch.
+     */
+    public boolean canAdd(int messages, int bytes, int size) {
+        return messages < maxMessages && bytes + size <= maxBytes;
+    }
+
+    /**
+     * @param lastMessages in the previous batch sent.
+     * @return how long to wait for another excerpt before sending a batch.
+     */
+    public long lingerNS(int lastMessages) {
+        if (maxLingerNS <= 0)
+            return 0;
+        if (!adaptive)
+            return maxLingerNS;
+        if (lastMessages <= 1)
+            return 0;
+        return maxLingerNS * Math.min(lastMessages, maxMessages) / maxMessages;
+    }
+
+    /**
+     * Move to the next excerpt for a batch, lingering for it if need be.
+     *
+     * @return true if the excerpt is now at index.
+     */
+    public boolean nextInBatch(@NotNull Excerpt excerpt, long index, int lastMessages) {
+        if (excerpt.index(index))
+            return true;
+        long lingerNS = lingerNS(lastMessages);
+        if (lingerNS <= 0)
+            return false;
+        long end = System.nanoTime() + lingerNS;
+        do {
+            Thread.yield();
+            if (excerpt.index(index))
+                return true;
+        } while (System.nanoTime() < end);
+        return false;
+    }
+}
@@ -20,12 +20,12 @@ import com.higherfrequencytrading.chronicle.Chronicle;
 import com.higherfrequencytrading.chronicle.Excerpt;
 import com.higherfrequencytrading.chronicle.ExcerptListener;
 import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import com.higherfrequencytrading.chronicle.impl.IntList;
 import com.higherfrequencytrading.chronicle.tools.IOTools;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.StreamCorruptedException;
 import java.net.InetSocketAddress;
@@ -52,6 +52,8 @@ public class ChronicleSink implements Closeable {
     @NotNull
     private final SocketAddress address;
     private final ExcerptListener listener;
+    @Nullable
+    private final IndexedChronicle transferring;
     @NotNull
     private final ExecutorService service;
     private final Logger logger;
@@ -63,8 +65,18 @@ public class ChronicleSink implements Closeable {
     }
 
     public ChronicleSink(@NotNull Chronicle chronicle, String hostname, int port, ExcerptListener listener) {
+        this(chronicle, hostname, port, listener, false);
+    }
+
+    /**
+     * @param transfer when catching up, ask the source to send ranges of its data file which are written straight into
+     *                 the data file of this chronicle. This needs an IndexedChronicle with the same data bit size and
+     *                 layout as the source's, otherwise excerpts are sent one at a time.
+     */
+    public ChronicleSink(@NotNull Chronicle chronicle, String hostname, int port, ExcerptListener listener, boolean transfer) {
         this.chronicle = chronicle;
         this.listener = listener;
+        this.transferring = transfer && chronicle instanceof IndexedChronicle ? (IndexedChronicle) chronicle : null;
         this.address = new InetSocketAddress(hostname, port);
         String name = chronicle.name() + '@' + hostname + ':' + port;
         logger = Logger.getLogger(getClass().getName() + '.' + chronicle);
@@ -106,6 +118,7 @@ public class ChronicleSink implements Closeable {
     class Sink implements Runnable {
         @SuppressWarnings("unchecked")
         final Excerpt excerpt = chronicle.createExcerpt();
+        final IntList lengths = new IntList();
 
         @Override
         public void run() {
@@ -132,22 +145,19 @@ public class ChronicleSink implements Closeable {
                         long size = bb.getInt(8);
                         if (index != chronicle.size())
                             throw new StreamCorruptedException("Expected index " + chronicle.size() + " but got " + index);
+                        if (size == ChronicleSource.TRANSFER_LEN) {
+                            readTransfer(sc, bb, index);
+                            continue;
+                        }
                         if (size > Integer.MAX_VALUE || size < 0)
                             throw new StreamCorruptedException("size was " + size);
 
                         excerpt.startExcerpt((int) size);
-                        // perform a progressive copy of data.
-                        long remaining = size;
-                        bb.position(0);
-                        while (remaining > 0) {
-                            int size2 = (int) Math.min(bb.capacity(), remaining);
-                            bb.limit(size2);
-                            if (sc.read(bb) < 0)
-                                throw new EOFException();
-                            bb.flip();
-                            remaining -= bb.remaining();
-                            excerpt.write(bb);
-                        }
+                        // read straight into the excerpt.
+                        ByteBuffer target = excerpt.byteBuffer();
+                        target.limit(target.position() + (int) size);
+                        IOTools.readFullyOrEOF(sc, target);
+                        excerpt.position((int) size);
                         excerpt.finish();
 
                         excerpt.index(index);
@@ -160,11 +170,39 @@ public class ChronicleSink implements Closeable {
                         logger.log(Level.FINE, "Lost connection to " + address + " retrying", e);
                     else if (logger.isLoggable(Level.INFO))
                         logger.log(Level.INFO, "Lost connection to " + address + " retrying " + e);
+                // the rest of the stream can't be trusted, reconnect from the last excerpt written.
+                closeSocket(sc);
             }
             if (logger.isLoggable(Level.FINE))
                 logger.log(Level.FINE, "Disconnected from " + address);
         }
 
+        private void readTransfer(@NotNull SocketChannel sc, @NotNull ByteBuffer bb, long index) throws IOException {
+            if (transferring == null)
+                throw new StreamCorruptedException("Unexpected transfer at index " + index);
+            bb.position(0);
+            bb.limit(ChronicleSource.TRANSFER_HEADER_SIZE);
+            IOTools.readFullyOrEOF(sc, bb);
+            long position = bb.getLong(0);
+            int count = bb.getInt(8);
+            if (position != transferring.getIndexData(index))
+                throw new StreamCorruptedException("Expected data at " + transferring.getIndexData(index) + " but got " + position);
+            if (count < 0 || count > ChronicleSource.MAX_TRANSFER)
+                throw new StreamCorruptedException("count was " + count);
+            bb.position(0);
+            bb.limit(count * 4);
+            IOTools.readFullyOrEOF(sc, bb);
+            lengths.clear();
+            for (int i = 0; i < count; i++)
+                lengths.add(bb.getInt(i * 4));
+            transferring.transferFrom(sc, lengths);
+
+            for (int i = 0; i < count; i++) {
+                excerpt.index(index + i);
+                listener.onExcerpt(excerpt);
+            }
+        }
+
         private void readHeader(SocketChannel sc, @NotNull ByteBuffer bb) throws IOException {
             bb.position(0);
             bb.limit(TcpUtil.HEADER_SIZE);
@@ -179,8 +217,16 @@ public class ChronicleSink implements Closeable {
             do {
                 try {
                     SocketChannel sc = SocketChannel.open(address);
-                    ByteBuffer bb = ByteBuffer.allocate(8);
-                    bb.putLong(0, chronicle.size());
+                    ByteBuffer bb = ByteBuffer.allocate(8 + 4 + 8);
+                    if (transferring == null) {
+                        bb.limit(8);
+                        bb.putLong(0, chronicle.size());
+                    } else {
+                        long size = transferring.size();
+                        bb.putLong(0, ~size);
+                        bb.putInt(8, transferring.dataBitSize());
+                        bb.putLong(12, transferring.getIndexData(size));
+                    }
                     IOTools.writeAllOrEOF(sc, bb);
                     return sc;
 
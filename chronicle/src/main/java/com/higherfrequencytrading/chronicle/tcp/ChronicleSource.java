@@ -42,15 +42,27 @@ import java.util.logging.Logger;
  * to.
  * <p/>
  * Can be used ad a component or run as a stand alone service.
+ * <p/>
+ * A ChronicleSink which is catching up into an IndexedChronicle with the same data bit size is sent whole ranges of
+ * the data file with transferTo rather than one excerpt at a time, provided its next excerpt starts at the same
+ * position in its data file.
  *
  * @author peter.lawrey
  */
 public class ChronicleSource<C extends Chronicle> implements Closeable {
+    // the size of a header followed by a range of the data file.
+    static final int TRANSFER_LEN = -2;
+    // the data start and number of excerpts in a transfer.
+    static final int TRANSFER_HEADER_SIZE = 8 + 4;
+    // the lengths of the excerpts in a transfer must fit in the sink's buffer.
+    static final int MAX_TRANSFER = (TcpUtil.INITIAL_BUFFER_SIZE - TcpUtil.HEADER_SIZE - TRANSFER_HEADER_SIZE) / 4;
     @NotNull
     private final C chronicle;
     private final ServerSocketChannel server;
     private final int delayNS;
     @NotNull
+    private final BatchingPolicy batchingPolicy;
+    @NotNull
     private final String name;
     @NotNull
     private final ExecutorService service;
@@ -58,8 +70,13 @@ public class ChronicleSource<C extends Chronicle> implements Closeable {
     private volatile boolean closed = false;
 
     public ChronicleSource(@NotNull C chronicle, int port, int delayNS) throws IOException {
+        this(chronicle, port, delayNS, new BatchingPolicy());
+    }
+
+    public ChronicleSource(@NotNull C chronicle, int port, int delayNS, @NotNull BatchingPolicy batchingPolicy) throws IOException {
         this.chronicle = chronicle;
         this.delayNS = delayNS;
+        this.batchingPolicy = batchingPolicy;
         server = ServerSocketChannel.open();
         server.socket().bind(new InetSocketAddress(port));
         name = chronicle.name() + "@" + port;
@@ -134,30 +151,76 @@ public class ChronicleSource<C extends Chronicle> implements Closeable {
         public void run() {
             try {
                 long index = readIndex(socket);
+                // a sink which sends ~index can be sent ranges of the data file as is while its data is laid out the
+                // same way. The layout depends on the capacity each excerpt was started with, not only the data bit size.
+                IndexedChronicle transferring = null;
+                long sinkPosition = -1;
+                if (index < 0) {
+                    index = ~index;
+                    ByteBuffer layout = readLayout(socket);
+                    if (chronicle instanceof IndexedChronicle && ((IndexedChronicle) chronicle).dataBitSize() == layout.getInt(0)) {
+                        transferring = (IndexedChronicle) chronicle;
+                        sinkPosition = layout.getLong(4);
+                    }
+                }
                 Excerpt excerpt = chronicle.createExcerpt();
-                ByteBuffer bb = TcpUtil.createBuffer(1, chronicle.byteOrder()); // minimum size
+                ByteBuffer bb = TcpUtil.createBuffer(batchingPolicy.maxBytes(), chronicle.byteOrder());
+                ByteBuffer[] buffers = {bb, null};
+                int lastCount = 0;
                 if (closed) {
                     return;
                 }
                 do {
-                    while (!excerpt.index(index))
+                    while (!excerpt.index(index)) {
+                        if (closed) return;
                         pause(delayNS);
+                    }
+                    // when catching up, send the data without copying it. The last excerpt is not sent this way as
+                    // its end moves if the next excerpt starts in a new block.
+                    long backlog = chronicle.size() - 1 - index;
+                    if (transferring != null && backlog > batchingPolicy.maxMessages()
+                            && transferring.getIndexData(index) == sinkPosition) {
+                        int count = (int) Math.min(backlog, MAX_TRANSFER);
+                        sinkPosition = transfer(transferring, index, count, bb);
+                        index += count;
+                        continue;
+                    }
+                    // the sink lays out excerpts sent one at a time itself so its position is no longer known.
+                    sinkPosition = -1;
                     int size = excerpt.capacity();
-                    int remaining = size + TcpUtil.HEADER_SIZE;
 
                     bb.clear();
                     bb.putLong(index);
                     bb.putInt(size);
-                    while (remaining > 0) {
-                        int size2 = Math.min(remaining, bb.capacity());
-                        bb.limit(size2);
-                        excerpt.read(bb);
+                    if (!batchingPolicy.canAdd(0, TcpUtil.HEADER_SIZE, size)) {
+                        // too large to batch, the excerpt is sent straight from the mapped file.
                         bb.flip();
-                        remaining -= bb.remaining();
-                        IOTools.writeAll(socket, bb);
+                        buffers[1] = excerpt.byteBuffer();
+                        IOTools.writeAll(socket, buffers);
+                        if (buffers[1].remaining() > 0) throw new EOFException("Failed to send index=" + index);
+                        index++;
+                        lastCount = 1;
+                        continue;
                     }
-                    if (bb.remaining() > 0) throw new EOFException("Failed to send index=" + index);
+                    bb.put(excerpt.byteBuffer());
                     index++;
+                    // copy as many of the following excerpts as the policy allows into the same write.
+                    int count = 1;
+                    while (batchingPolicy.nextInBatch(excerpt, index, lastCount)) {
+                        int size2 = excerpt.capacity();
+                        if (!batchingPolicy.canAdd(count, bb.position(), TcpUtil.HEADER_SIZE + size2))
+                            break;
+                        bb.putLong(index);
+                        bb.putInt(size2);
+                        bb.put(excerpt.byteBuffer());
+                        index++;
+                        count++;
+                    }
+                    lastCount = count;
+
+                    bb.flip();
+                    IOTools.writeAll(socket, bb);
+                    if (bb.remaining() > 0) throw new EOFException("Failed to send index=" + index);
                 } while (!closed);
             } catch (IOException e) {
                 if (!closed)
@@ -165,11 +228,45 @@ public class ChronicleSource<C extends Chronicle> implements Closeable {
             }
         }
 
+        /**
+         * @return the end of the data sent.
+         */
+        private long transfer(@NotNull IndexedChronicle ic, long index, int count, @NotNull ByteBuffer bb) throws IOException {
+            long start = ic.getIndexData(index);
+            bb.clear();
+            bb.putLong(index);
+            bb.putInt(TRANSFER_LEN);
+            bb.putLong(start);
+            bb.putInt(count);
+            long position = start;
+            for (int i = 1; i <= count; i++) {
+                long next = ic.getIndexData(index + i);
+                bb.putInt((int) (next - position));
+                position = next;
+            }
+            bb.flip();
+            IOTools.writeAll(socket, bb);
+            if (bb.remaining() > 0) throw new EOFException("Failed to send index=" + index);
+            // send exactly the lengths sent above.
+            ic.transferDataTo(start, position, socket);
+            return position;
+        }
+
         private long readIndex(SocketChannel socket) throws IOException {
             ByteBuffer bb = ByteBuffer.allocate(8);
             IOTools.readFullyOrEOF(socket, bb);
             return bb.getLong(0);
         }
+
+        /**
+         * @return the data bit size and the position of the next excerpt of the sink.
+         */
+        @NotNull
+        private ByteBuffer readLayout(SocketChannel socket) throws IOException {
+            ByteBuffer bb = ByteBuffer.allocate(4 + 8);
+            IOTools.readFullyOrEOF(socket, bb);
+            return bb;
+        }
     }
 
 }
@@ -101,6 +101,11 @@ public class InProcessChronicleSink implements Chronicle {
         chronicle.setEnumeratedMarshaller(marshaller);
     }
 
+    @Override
+    public void registerClass(@NotNull Class aClass, int id) throws IllegalArgumentException {
+        chronicle.registerClass(aClass, id);
+    }
+
     boolean readNext() {
         if (sc == null || !sc.isOpen()) {
             sc = createConnection();
@@ -49,9 +49,10 @@ import java.util.logging.Logger;
 public class InProcessChronicleSource implements Chronicle {
     static final int IN_SYNC_LEN = -128;
     static final long HEARTBEAT_INTERVAL_MS = 2500;
-    private static final int MAX_MESSAGE = 128;
     @NotNull
     private final Chronicle chronicle;
+    @NotNull
+    private final BatchingPolicy batchingPolicy;
     private final ServerSocketChannel server;
     @NotNull
     private final String name;
@@ -64,7 +65,12 @@ public class InProcessChronicleSource implements Chronicle {
     private long lastUnpausedNS = 0;
 
     public InProcessChronicleSource(@NotNull Chronicle chronicle, int port) throws IOException {
+        this(chronicle, port, new BatchingPolicy());
+    }
+
+    public InProcessChronicleSource(@NotNull Chronicle chronicle, int port, @NotNull BatchingPolicy batchingPolicy) throws IOException {
         this.chronicle = chronicle;
+        this.batchingPolicy = batchingPolicy;
         server = ServerSocketChannel.open();
         server.socket().setReuseAddress(true);
         server.socket().bind(new InetSocketAddress(port));
@@ -148,6 +154,11 @@ public class InProcessChronicleSource implements Chronicle {
         chronicle.setEnumeratedMarshaller(marshaller);
     }
 
+    @Override
+    public void registerClass(@NotNull Class aClass, int id) throws IllegalArgumentException {
+        chronicle.registerClass(aClass, id);
+    }
+
     @Nullable
     @Override
     public <E> EnumeratedMarshaller<E> getMarshaller(@NotNull Class<E> eClass) {
@@ -187,9 +198,10 @@ public class InProcessChronicleSource implements Chronicle {
             try {
                 long index = readIndex(socket);
                 Excerpt excerpt = chronicle.createExcerpt();
-                ByteBuffer bb = TcpUtil.createBuffer(1, chronicle.byteOrder()); // minimum size
+                ByteBuffer bb = TcpUtil.createBuffer(batchingPolicy.maxBytes(), chronicle.byteOrder());
                 long sendInSync = 0;
                 boolean first = true;
+                int lastCount = 0;
                 OUTER:
                 while (!closed) {
                     while (!excerpt.index(index)) {
@@ -220,33 +232,32 @@ public class InProcessChronicleSource implements Chronicle {
                         remaining = size + 4;
                     }
                     bb.putInt(size);
-                    // for large objects send one at a time.
-                    if (size > bb.capacity() / 2) {
-                        while (remaining > 0) {
-                            int size2 = Math.min(remaining, bb.capacity());
-                            bb.limit(size2);
-                            excerpt.read(bb);
-                            bb.flip();
-//                        System.out.println("w " + ChronicleTools.asString(bb));
-                            remaining -= bb.remaining();
-                            IOTools.writeAll(socket, bb);
-                        }
+                    // for large objects send one at a time, straight from the excerpt.
+                    if (size > batchingPolicy.maxBytes() / 2) {
+                        bb.flip();
+                        IOTools.writeAll(socket, bb);
+                        ByteBuffer excerptBuffer = excerpt.byteBuffer();
+                        IOTools.writeAll(socket, excerptBuffer);
+                        if (excerptBuffer.remaining() > 0) throw new EOFException("Failed to send index=" + index);
+                        lastCount = 1;
                     } else {
                         bb.limit(remaining);
-                        excerpt.read(bb);
+                        bb.put(excerpt.byteBuffer());
                         int count = 1;
-                        while (excerpt.index(index + 1) && count++ < MAX_MESSAGE) {
-                            if (excerpt.remaining() + 4 >= bb.capacity() - bb.position())
-                                break;
+                        while (batchingPolicy.nextInBatch(excerpt, index + 1, lastCount)) {
                             // if there is free space, copy another one.
                             int size2 = excerpt.capacity();
+                            if (!batchingPolicy.canAdd(count, bb.position(), size2 + 4))
+                                break;
+                            count++;
 //                            System.out.println("W+ "+size);
                             bb.limit(bb.position() + size2 + 4);
                             bb.putInt(size2);
-                            excerpt.read(bb);
+                            bb.put(excerpt.byteBuffer());
 
                             index++;
                         }
+                        lastCount = count;
 
                         bb.flip();
 //                        System.out.println("W " + size + " wb " + bb);
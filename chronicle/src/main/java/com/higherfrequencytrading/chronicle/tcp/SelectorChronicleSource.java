@@ -0,0 +1,419 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tcp;
+
+import com.higherfrequencytrading.chronicle.Chronicle;
+import com.higherfrequencytrading.chronicle.EnumeratedMarshaller;
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.WrappedExcerpt;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Chronicle as a service to be replicated to any number of InProcessChronicleSinks, using the same protocol as
+ * InProcessChronicleSource.
+ * <p/>
+ * Rather than a thread per client, a small number of event loop threads each serve many clients with non-blocking
+ * writes. Each connection has its own index and buffer, and on each pass every connection which can be written to is
+ * sent at most one batch of excerpts so a client catching up doesn't starve the others. The BatchingPolicy limits the
+ * size of a batch, however an event loop never lingers as this would hold up its other connections.
+ *
+ * @author peter.lawrey
+ */
+public class SelectorChronicleSource implements Chronicle {
+    @NotNull
+    private final Chronicle chronicle;
+    @NotNull
+    private final BatchingPolicy batchingPolicy;
+    private final ServerSocketChannel server;
+    @NotNull
+    private final String name;
+    @NotNull
+    private final ExecutorService service;
+    private final Logger logger;
+    @NotNull
+    private final EventLoop[] loops;
+    private long busyWaitTimeNS = 100 * 1000;
+    private volatile boolean closed = false;
+    // incremented by the appender so an event loop about to sleep can see it has missed an excerpt.
+    private volatile long excerptsWritten = 0;
+    private int nextLoop = 0;
+
+    public SelectorChronicleSource(@NotNull Chronicle chronicle, int port) throws IOException {
+        this(chronicle, port, 1);
+    }
+
+    public SelectorChronicleSource(@NotNull Chronicle chronicle, int port, int eventLoops) throws IOException {
+        this(chronicle, port, eventLoops, new BatchingPolicy());
+    }
+
+    public SelectorChronicleSource(@NotNull Chronicle chronicle, int port, int eventLoops, @NotNull BatchingPolicy batchingPolicy) throws IOException {
+        if (eventLoops < 1)
+            throw new IllegalArgumentException("eventLoops must be at least 1");
+        this.chronicle = chronicle;
+        this.batchingPolicy = batchingPolicy;
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        name = chronicle.name() + "@" + port;
+        logger = Logger.getLogger(getClass().getName() + "." + name);
+        loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++)
+            loops[i] = new EventLoop();
+        // the first event loop also accepts connections.
+        server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        service = Executors.newFixedThreadPool(eventLoops, new NamedThreadFactory(name));
+        for (EventLoop loop : loops)
+            service.execute(loop);
+    }
+
+    public void busyWaitTimeNS(long busyWaitTimeNS) {
+        this.busyWaitTimeNS = busyWaitTimeNS;
+    }
+
+    /**
+     * @return the number of clients connected.
+     */
+    public int connections() {
+        int count = 0;
+        for (EventLoop loop : loops)
+            count += loop.connections;
+        return count;
+    }
+
+    @Override
+    public void multiThreaded(boolean multiThreaded) {
+        chronicle.multiThreaded(multiThreaded);
+    }
+
+    @NotNull
+    @Override
+    public String name() {
+        return chronicle.name();
+    }
+
+    @NotNull
+    @Override
+    public Excerpt createExcerpt() {
+        return new SourceExcerpt();
+    }
+
+    @Override
+    public long size() {
+        return chronicle.size();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return chronicle.sizeInBytes();
+    }
+
+    @Override
+    public ByteOrder byteOrder() {
+        return chronicle.byteOrder();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (EventLoop loop : loops)
+            loop.selector.wakeup();
+        service.shutdown();
+        chronicle.close();
+        try {
+            server.close();
+        } catch (IOException e) {
+            logger.warning("Error closing server port " + e);
+        }
+    }
+
+    @Override
+    public <E> void setEnumeratedMarshaller(@NotNull EnumeratedMarshaller<E> marshaller) {
+        chronicle.setEnumeratedMarshaller(marshaller);
+    }
+
+    @Override
+    public void registerClass(@NotNull Class aClass, int id) throws IllegalArgumentException {
+        chronicle.registerClass(aClass, id);
+    }
+
+    @Nullable
+    @Override
+    public <E> EnumeratedMarshaller<E> getMarshaller(@NotNull Class<E> eClass) {
+        return chronicle.getMarshaller(eClass);
+    }
+
+    void wakeEventLoops() {
+        excerptsWritten++;
+        for (EventLoop loop : loops)
+            if (loop.sleeping)
+                loop.selector.wakeup();
+    }
+
+    void accept() throws IOException {
+        SocketChannel socket;
+        while ((socket = server.accept()) != null) {
+            socket.configureBlocking(false);
+            socket.socket().setSendBufferSize(256 * 1024);
+            socket.socket().setTcpNoDelay(true);
+            // only called by the first event loop.
+            EventLoop loop = loops[nextLoop++ % loops.length];
+            loop.pending.add(socket);
+            if (loop != loops[0])
+                loop.selector.wakeup();
+        }
+    }
+
+    class EventLoop implements Runnable {
+        final Selector selector;
+        final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<SocketChannel>();
+        private final List<Session> sessions = new ArrayList<Session>();
+        volatile boolean sleeping = false;
+        volatile int connections = 0;
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            try {
+                long lastBusyNS = System.nanoTime();
+                while (!closed) {
+                    registerPending();
+                    long written = excerptsWritten;
+                    long now = System.currentTimeMillis();
+                    boolean busy = false;
+                    for (int i = sessions.size() - 1; i >= 0; i--) {
+                        Session session = sessions.get(i);
+                        try {
+                            busy |= session.send(now);
+                        } catch (IOException e) {
+                            close(session, e);
+                        }
+                    }
+
+                    if (busy) {
+                        lastBusyNS = System.nanoTime();
+                        selector.selectNow();
+                    } else if (lastBusyNS + busyWaitTimeNS > System.nanoTime()) {
+                        selector.selectNow();
+                    } else {
+                        sleeping = true;
+                        try {
+                            if (written != excerptsWritten || !pending.isEmpty())
+                                selector.selectNow();
+                            else
+                                selector.select(InProcessChronicleSource.HEARTBEAT_INTERVAL_MS / 2);
+                        } finally {
+                            sleeping = false;
+                        }
+                    }
+                    processSelected();
+                }
+            } catch (Throwable t) {
+                if (!closed)
+                    logger.log(Level.SEVERE, "Event loop dying", t);
+            } finally {
+                for (int i = sessions.size() - 1; i >= 0; i--)
+                    close(sessions.get(i), null);
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void registerPending() throws IOException {
+            SocketChannel socket;
+            while ((socket = pending.poll()) != null) {
+                Session session = new Session(socket);
+                session.key = socket.register(selector, SelectionKey.OP_READ, session);
+                sessions.add(session);
+                connections = sessions.size();
+            }
+        }
+
+        private void processSelected() throws IOException {
+            for (Iterator<SelectionKey> iter = selector.selectedKeys().iterator(); iter.hasNext(); ) {
+                SelectionKey key = iter.next();
+                iter.remove();
+                if (!key.isValid())
+                    continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Session session = (Session) key.attachment();
+                try {
+                    if (key.isReadable())
+                        session.read();
+                    if (key.isValid() && key.isWritable())
+                        session.write();
+                } catch (IOException e) {
+                    close(session, e);
+                }
+            }
+        }
+
+        private void close(@NotNull Session session, @Nullable IOException e) {
+            if (e != null && !closed) {
+                String msg = e.getMessage();
+                if (e instanceof EOFException || msg != null &&
+                        (msg.contains("reset by peer") || msg.contains("Broken pipe")
+                                || msg.contains("was aborted by")))
+                    logger.log(Level.INFO, "Connect " + session.socket + " closed from the other end " + e);
+                else
+                    logger.log(Level.INFO, "Connect " + session.socket + " died", e);
+            }
+            if (session.key != null)
+                session.key.cancel();
+            try {
+                session.socket.close();
+            } catch (IOException ignored) {
+            }
+            sessions.remove(session);
+            connections = sessions.size();
+        }
+    }
+
+    class Session {
+        @NotNull
+        final SocketChannel socket;
+        @Nullable
+        SelectionKey key = null;
+        private final Excerpt excerpt = chronicle.createExcerpt();
+        private final ByteBuffer indexBuffer = ByteBuffer.allocate(8);
+        private final ByteBuffer buffer = TcpUtil.createBuffer(batchingPolicy.maxBytes(), chronicle.byteOrder());
+        // the second buffer is an excerpt too large to copy, sent straight from the mapped file.
+        private final ByteBuffer[] buffers = {buffer, null};
+        private long index = -1;
+        private boolean first = true;
+        private boolean waitingToWrite = false;
+        private long sendInSync = 0;
+
+        Session(@NotNull SocketChannel socket) {
+            this.socket = socket;
+            buffer.limit(0);
+        }
+
+        void read() throws IOException {
+            if (index < 0) {
+                if (socket.read(indexBuffer) < 0)
+                    throw new EOFException();
+                if (indexBuffer.remaining() == 0)
+                    index = indexBuffer.getLong(0);
+            } else {
+                // the client doesn't send anything more, this is to detect it closing.
+                indexBuffer.clear();
+                if (socket.read(indexBuffer) < 0)
+                    throw new EOFException();
+            }
+        }
+
+        /**
+         * @return true if any excerpts were sent.
+         */
+        boolean send(long now) throws IOException {
+            if (index < 0 || waitingToWrite)
+                return false;
+            buffer.clear();
+            boolean sent = excerpt.index(index);
+            if (sent) {
+                fill();
+                sendInSync = 0;
+            } else if (!first && sendInSync <= now) {
+                buffer.putInt(InProcessChronicleSource.IN_SYNC_LEN);
+                sendInSync = now + InProcessChronicleSource.HEARTBEAT_INTERVAL_MS;
+            }
+            buffer.flip();
+            if (buffer.remaining() > 0)
+                write();
+            return sent;
+        }
+
+        private void fill() {
+            int size = excerpt.capacity();
+            if (first) {
+                buffer.putLong(index);
+                first = false;
+            }
+            buffer.putInt(size);
+            index++;
+            if (!batchingPolicy.canAdd(0, buffer.position(), size)) {
+                buffers[1] = excerpt.byteBuffer();
+                return;
+            }
+            buffer.put(excerpt.byteBuffer());
+            for (int count = 1; excerpt.index(index); count++) {
+                int size2 = excerpt.capacity();
+                if (!batchingPolicy.canAdd(count, buffer.position(), 4 + size2))
+                    break;
+                buffer.putInt(size2);
+                buffer.put(excerpt.byteBuffer());
+                index++;
+            }
+        }
+
+        void write() throws IOException {
+            if (buffers[1] == null)
+                socket.write(buffer);
+            else
+                socket.write(buffers);
+            boolean waiting = buffer.remaining() > 0 || buffers[1] != null && buffers[1].remaining() > 0;
+            if (!waiting)
+                buffers[1] = null;
+            if (waiting != waitingToWrite && key != null) {
+                // only ask to be told the socket is writable when it was full.
+                key.interestOps(waiting ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                waitingToWrite = waiting;
+            }
+        }
+    }
+
+    private class SourceExcerpt extends WrappedExcerpt {
+        public SourceExcerpt() {
+            super(SelectorChronicleSource.this.chronicle.createExcerpt());
+        }
+
+        @Override
+        public void finish() {
+            super.finish();
+            wakeEventLoops();
+        }
+    }
+}
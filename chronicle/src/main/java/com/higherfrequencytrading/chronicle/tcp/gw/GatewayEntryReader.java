@@ -35,9 +35,13 @@ public abstract class GatewayEntryReader {
         long writeTimeMS = excerpt.readLong();
         long writeTimeNS = excerpt.readLong();
         int pos = excerpt.position();
-        long readTimeNS = excerpt.readLong();
-        if (targetReader && readTimeNS == 0)
-            excerpt.writeLong(pos, readTimeNS = System.nanoTime());
+        long readTimeNS = excerpt.readVolatileLong(pos);
+        excerpt.position(pos + 8);
+        // only the first reader to see this entry sets the read time.
+        if (targetReader && readTimeNS == 0) {
+            long now = System.nanoTime();
+            readTimeNS = excerpt.compareAndSwapLong(pos, 0L, now) ? now : excerpt.readVolatileLong(pos);
+        }
         int length = excerpt.readInt24();
         char type = (char) excerpt.readUnsignedByte();
         onEntry(writeTimeMS, writeTimeNS, readTimeNS, length, type, excerpt);
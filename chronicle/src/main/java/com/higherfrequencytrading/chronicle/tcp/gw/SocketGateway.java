@@ -66,16 +66,13 @@ public class SocketGateway implements WaitingRunnable, Closeable {
         Excerpt out = outbound.createExcerpt();
         out.index(out.size());
         outboundReader = new GatewayEntryReader(out, true) {
-            final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1 << 20);
-
             @Override
             protected void onEntry(long writeTimeNS, long writeTimeMS, long readTimeMS, int length, char type, @NotNull Excerpt excerpt) {
                 if (type == 'X') return;
 
-                byteBuffer.position(0);
-                byteBuffer.limit(length);
-                excerpt.read(byteBuffer);
-                byteBuffer.flip();
+                // write straight from the excerpt without copying.
+                ByteBuffer byteBuffer = excerpt.byteBuffer();
+                byteBuffer.limit(byteBuffer.position() + length);
                 try {
                     assert socket != null;
                     IOTools.writeAll(socket, byteBuffer);
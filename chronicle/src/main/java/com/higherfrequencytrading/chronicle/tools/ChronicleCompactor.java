@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+/**
+ * Rewrites a keyed chronicle retaining only the latest excerpt for each key, in their original order.
+ * <p/>
+ * The compacted copy is written to basePath + ".compact" and then renamed over the original .data and .index files.
+ * The two renames are not atomic together, so a marker file, basePath + ".compacted", is created once the copy is
+ * complete and deleted after both renames. If the process dies in between, recover() finishes the renames, it is
+ * called by compact() and should be called before the chronicle is opened again. Without the marker the original
+ * files are untouched.
+ * <p/>
+ * The chronicle doesn't record where the data of an excerpt padded to the end of a block ends, so the whole capacity
+ * is copied unless an ExcerptLengthExtractor is provided.
+ * <p/>
+ * The chronicle must not be open while it is being compacted. As this is a Callable it can be run in the background
+ * with an ExecutorService.
+ *
+ * @author peter.lawrey
+ */
+public class ChronicleCompactor<K> implements Callable<Long> {
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final String COMPACTED_SUFFIX = ".compacted";
+    private static final Logger LOGGER = Logger.getLogger(ChronicleCompactor.class.getName());
+
+    @NotNull
+    private final String basePath;
+    private final int dataBitSizeHint;
+    @NotNull
+    private final ByteOrder byteOrder;
+    @NotNull
+    private final ExcerptKeyExtractor<K> keyExtractor;
+    @Nullable
+    private ExcerptLengthExtractor lengthExtractor = null;
+
+    public ChronicleCompactor(@NotNull String basePath, @NotNull ExcerptKeyExtractor<K> keyExtractor) {
+        this(basePath, ChronicleTools.is64Bit() ? IndexedChronicle.DEFAULT_DATA_BITS_SIZE : IndexedChronicle.DEFAULT_DATA_BITS_SIZE32, ByteOrder.nativeOrder(), keyExtractor);
+    }
+
+    public ChronicleCompactor(@NotNull String basePath, int dataBitSizeHint, @NotNull ByteOrder byteOrder, @NotNull ExcerptKeyExtractor<K> keyExtractor) {
+        this.basePath = basePath;
+        this.dataBitSizeHint = dataBitSizeHint;
+        this.byteOrder = byteOrder;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * @param lengthExtractor to copy only the data written for each excerpt, or null to copy its capacity.
+     */
+    public void lengthExtractor(@Nullable ExcerptLengthExtractor lengthExtractor) {
+        this.lengthExtractor = lengthExtractor;
+    }
+
+    @Override
+    public Long call() throws IOException {
+        return compact();
+    }
+
+    /**
+     * @return the number of excerpts retained.
+     * @throws IOException if the chronicle could not be read, written or swapped.
+     */
+    public long compact() throws IOException {
+        recover(basePath);
+        String compactPath = basePath + COMPACT_SUFFIX;
+        deleteFiles(compactPath);
+
+        long retained = 0, size;
+        IndexedChronicle source = new IndexedChronicle(basePath, dataBitSizeHint, byteOrder);
+        try {
+            Excerpt excerpt = source.createExcerpt();
+            size = source.size();
+            // first pass, find the last index for each key.
+            Map<K, Long> latest = new HashMap<K, Long>();
+            for (long i = 0; i < size; i++) {
+                excerpt.index(i);
+                K key = keyExtractor.keyFor(excerpt);
+                if (key != null)
+                    latest.put(key, i);
+            }
+
+            // second pass, copy only the latest excerpts.
+            IndexedChronicle target = new IndexedChronicle(compactPath, dataBitSizeHint, byteOrder);
+            try {
+                Excerpt copy = target.createExcerpt();
+                byte[] bytes = new byte[256];
+                for (long i = 0; i < size; i++) {
+                    excerpt.index(i);
+                    K key = keyExtractor.keyFor(excerpt);
+                    if (key != null && latest.get(key) != i)
+                        continue;
+                    int length = excerpt.capacity();
+                    if (lengthExtractor != null) {
+                        excerpt.position(0);
+                        length = lengthExtractor.lengthOf(excerpt);
+                        if (length < 0 || length > excerpt.capacity())
+                            throw new IllegalStateException("Length " + length + " of excerpt " + i + " is outside its capacity " + excerpt.capacity());
+                    }
+                    if (bytes.length < length)
+                        bytes = new byte[Math.max(length, bytes.length * 2)];
+                    excerpt.position(0);
+                    excerpt.readFully(bytes, 0, length);
+                    copy.startExcerpt(length);
+                    copy.write(bytes, 0, length);
+                    copy.finish();
+                    retained++;
+                }
+            } finally {
+                target.close();
+            }
+        } finally {
+            source.close();
+        }
+
+        // the copy is complete, from here the swap can be finished by recover().
+        File marker = new File(basePath + COMPACTED_SUFFIX);
+        sync(new File(compactPath + ".data"));
+        sync(new File(compactPath + ".index"));
+        if (!marker.createNewFile())
+            throw new IOException("Unable to create " + marker);
+        sync(marker);
+        recover(basePath);
+        LOGGER.info(basePath + " compacted from " + size + " to " + retained + " excerpts.");
+        return retained;
+    }
+
+    /**
+     * Finish swapping in a compacted copy if a compaction stopped part way through the swap, otherwise do nothing.
+     * This renames files so the chronicle must not be open, or being compacted, in any process.
+     *
+     * @throws IOException if a file could not be renamed.
+     */
+    public static void recover(@NotNull String basePath) throws IOException {
+        File marker = new File(basePath + COMPACTED_SUFFIX);
+        if (!marker.exists())
+            return;
+        for (String suffix : new String[]{".data", ".index"}) {
+            File from = new File(basePath + COMPACT_SUFFIX + suffix);
+            // renamed before the process died.
+            if (!from.exists())
+                continue;
+            File to = new File(basePath + suffix);
+            // rename over the original is atomic on POSIX file systems, other platforms need a delete first.
+            if (!from.renameTo(to) && !(to.delete() && from.renameTo(to)))
+                throw new IOException("Unable to rename " + from + " to " + to);
+        }
+        if (!marker.delete())
+            throw new IOException("Unable to delete " + marker);
+        LOGGER.info(basePath + " swapped in the compacted copy.");
+    }
+
+    private static void sync(@NotNull File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.getChannel().force(true);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void deleteFiles(String basePath) {
+        for (String suffix : new String[]{".data", ".index"})
+            //noinspection ResultOfMethodCallIgnored
+            new File(basePath + suffix).delete();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Extracts the fields of an excerpt mirrored by a ColumnarMirror.
+ *
+ * @author peter.lawrey
+ */
+public interface ColumnExtractor {
+    /**
+     * @param excerpt positioned at the start of the excerpt.
+     * @param row     to set with one value per column, a double being stored as Double.doubleToRawLongBits.
+     */
+    void extract(@NotNull Excerpt excerpt, @NotNull long[] row);
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.impl.MappedFile;
+import com.higherfrequencytrading.chronicle.impl.MappedMemory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.higherfrequencytrading.chronicle.impl.UnsafeExcerpt.UNSAFE;
+
+/**
+ * One column of a ColumnarMirror, a memory mapped file of eight byte values indexed by the excerpt index. The first
+ * eight bytes hold the number of rows, so a reader can scan a column while it is being appended to.
+ *
+ * @author peter.lawrey
+ */
+public class ColumnFile implements Closeable {
+    static final String SUFFIX = ".column";
+    private static final int BLOCK_BITS = 20; // 1 MB or 128 K rows per mapping.
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+
+    @NotNull
+    private final MappedFile file;
+    @NotNull
+    private final MappedMemory header;
+    private final long sizeAddress;
+    @Nullable
+    private MappedMemory block = null;
+    private ByteBuffer buffer = null;
+
+    public ColumnFile(@NotNull String basePath, @NotNull String column) throws IOException {
+        file = new MappedFile(basePath + '.' + column + SUFFIX, 1 << BLOCK_BITS);
+        header = acquire(0);
+        sizeAddress = header.address();
+    }
+
+    /**
+     * @return the number of rows which can be read.
+     */
+    public long size() {
+        // pairs with the ordered write in size(long) so the rows before it are visible.
+        return UNSAFE.getLongVolatile(null, sizeAddress);
+    }
+
+    public long getLong(long row) {
+        long position = (row + 1) << 3;
+        return buffer(position).getLong((int) (position & BLOCK_MASK));
+    }
+
+    public double getDouble(long row) {
+        return Double.longBitsToDouble(getLong(row));
+    }
+
+    void setLong(long row, long value) {
+        long position = (row + 1) << 3;
+        buffer(position).putLong((int) (position & BLOCK_MASK), value);
+    }
+
+    /**
+     * Make the rows before size visible to readers.
+     */
+    void size(long size) {
+        // the rows are visible before the size, to readers in this or another process.
+        UNSAFE.putOrderedLong(null, sizeAddress, size);
+    }
+
+    @NotNull
+    private ByteBuffer buffer(long position) {
+        long index = position >>> BLOCK_BITS;
+        MappedMemory block = this.block;
+        if (block == null || block.index() != index) {
+            MappedMemory.release(block);
+            this.block = block = acquire(index);
+            buffer = block.buffer();
+        }
+        return buffer;
+    }
+
+    @NotNull
+    private MappedMemory acquire(long index) {
+        try {
+            MappedMemory memory = file.acquire(index);
+            memory.buffer().order(ByteOrder.nativeOrder());
+            return memory;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        MappedMemory.release(block);
+        block = null;
+        header.release();
+        file.close();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Chronicle;
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Mirrors a chronicle into one ColumnFile per field, so analytics which only need a few fields scan only those bytes
+ * rather than decoding every field of every excerpt.
+ * <p/>
+ * Each call to run() copies the excerpts added since the last call, so the mirror can be kept up to date in the
+ * background by a WaitingThread. On restart it carries on from the rows already mirrored. It should be removed from the
+ * WaitingThread before it is closed.
+ *
+ * @author peter.lawrey
+ */
+public class ColumnarMirror implements WaitingRunnable, Closeable {
+    private static final int BATCH_SIZE = 1024;
+
+    @NotNull
+    private final Excerpt excerpt;
+    @NotNull
+    private final ColumnExtractor extractor;
+    @NotNull
+    private final ColumnFile[] columns;
+    @NotNull
+    private final long[] row;
+    private long size;
+    private volatile boolean closed = false;
+
+    public ColumnarMirror(@NotNull Chronicle chronicle, @NotNull String basePath, @NotNull ColumnExtractor extractor, @NotNull String... columns) throws IOException {
+        if (columns.length == 0)
+            throw new IllegalArgumentException("At least one column is needed");
+        this.excerpt = chronicle.createExcerpt();
+        this.extractor = extractor;
+        this.columns = new ColumnFile[columns.length];
+        this.row = new long[columns.length];
+        size = Long.MAX_VALUE;
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = new ColumnFile(basePath, columns[i]);
+            // if a column was added or not updated, start again from its size.
+            size = Math.min(size, this.columns[i].size());
+        }
+    }
+
+    /**
+     * @return the number of excerpts mirrored.
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean run() throws IllegalStateException {
+        if (closed)
+            throw new IllegalStateException("closed");
+        long size = this.size, end = size + BATCH_SIZE;
+        for (; size < end && excerpt.index(size); size++) {
+            extractor.extract(excerpt, row);
+            for (int i = 0; i < columns.length; i++)
+                columns[i].setLong(size, row[i]);
+        }
+        if (size == this.size)
+            return false;
+        for (ColumnFile column : columns)
+            column.size(size);
+        this.size = size;
+        return true;
+    }
+
+    /**
+     * Mirror everything written so far.
+     *
+     * @return the number of excerpts mirrored.
+     */
+    public long catchUp() {
+        //noinspection StatementWithEmptyBody
+        while (run()) ;
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (ColumnFile column : columns)
+            column.close();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.WrappedExcerpt;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes excerpts which are compressed on finish() if they are large enough and compress well. Each excerpt starts
+ * with a flag byte and the uncompressed length, and the data written from DATA_START onwards is the payload.
+ * <p/>
+ * As a compressed payload cannot be read in place, a reader uses payloadLength() and readPayload() to get the
+ * uncompressed bytes whether the excerpt was compressed or not.
+ *
+ * @author peter.lawrey
+ */
+public class CompressingExcerpt extends WrappedExcerpt {
+    public static final byte RAW = 'R';
+    public static final byte COMPRESSED = 'Z';
+    public static final int DATA_START = 1 + 4;
+    public static final int DEFAULT_THRESHOLD = Integer.getInteger("chronicle.compressThreshold", 1024);
+
+    private final int threshold;
+    @NotNull
+    private final LZCompressor compressor = new LZCompressor();
+    @NotNull
+    private byte[] raw = new byte[0];
+    @NotNull
+    private byte[] compressed = new byte[0];
+
+    public CompressingExcerpt(@NotNull Excerpt excerpt) {
+        this(excerpt, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold the smallest payload in bytes worth trying to compress.
+     */
+    public CompressingExcerpt(@NotNull Excerpt excerpt, int threshold) {
+        super(excerpt);
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param capacity the maximum size of the uncompressed payload.
+     */
+    @Override
+    public void startExcerpt(int capacity) {
+        super.startExcerpt(DATA_START + capacity);
+        writeByte(RAW);
+        writeInt(0); // the length.
+    }
+
+    @Override
+    public void finish() {
+        int length = position() - DATA_START;
+        if (length >= threshold && compress(length))
+            return;
+        write(0, RAW);
+        writeInt(1, length);
+        super.finish();
+    }
+
+    private boolean compress(int length) {
+        if (raw.length < length)
+            raw = new byte[length];
+        position(DATA_START);
+        readFully(raw, 0, length);
+        int maxLength = LZCompressor.maxCompressedLength(length);
+        if (compressed.length < maxLength)
+            compressed = new byte[maxLength];
+        int compressedLength = compressor.compress(raw, 0, length, compressed, 0);
+        if (compressedLength >= length) {
+            // not worth it, leave the data as it was.
+            position(DATA_START + length);
+            return false;
+        }
+        write(0, COMPRESSED);
+        writeInt(1, length);
+        position(DATA_START);
+        write(compressed, 0, compressedLength);
+        super.finish();
+        return true;
+    }
+
+    public static boolean isCompressed(@NotNull Excerpt excerpt) {
+        byte flag = excerpt.readByte(0);
+        if (flag != RAW && flag != COMPRESSED)
+            throw new IllegalStateException("Not a compressed excerpt, flag=" + flag);
+        return flag == COMPRESSED;
+    }
+
+    /**
+     * @return the uncompressed length of the payload.
+     */
+    public static int payloadLength(@NotNull Excerpt excerpt) {
+        isCompressed(excerpt);
+        return excerpt.readInt(1);
+    }
+
+    /**
+     * Read the uncompressed payload into bytes, decompressing directly from the excerpt if needed. The excerpt can be
+     * longer than the compressed data if it was padded to the end of a data block.
+     *
+     * @return the length of the payload.
+     */
+    public static int readPayload(@NotNull Excerpt excerpt, @NotNull byte[] bytes, int offset) {
+        boolean compressed = isCompressed(excerpt);
+        int length = excerpt.readInt(1);
+        if (bytes.length - offset < length)
+            throw new IllegalArgumentException("Payload of " + length + " bytes doesn't fit in " + (bytes.length - offset));
+        excerpt.position(DATA_START);
+        if (compressed)
+            LZCompressor.decompress(excerpt, excerpt.capacity() - DATA_START, bytes, offset, length);
+        else
+            excerpt.readFully(bytes, offset, length);
+        return length;
+    }
+
+    @NotNull
+    public static byte[] readPayload(@NotNull Excerpt excerpt) {
+        byte[] bytes = new byte[payloadLength(excerpt)];
+        readPayload(excerpt, bytes, 0);
+        return bytes;
+    }
+}
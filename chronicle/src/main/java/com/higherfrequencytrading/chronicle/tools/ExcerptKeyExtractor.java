@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Extracts the key of an excerpt for log compaction.
+ *
+ * @author peter.lawrey
+ */
+public interface ExcerptKeyExtractor<K> {
+    /**
+     * @param excerpt positioned at the start of the excerpt.
+     * @return the key for this excerpt, or null if the excerpt is not keyed and must always be retained.
+     */
+    @Nullable
+    K keyFor(@NotNull Excerpt excerpt);
+}
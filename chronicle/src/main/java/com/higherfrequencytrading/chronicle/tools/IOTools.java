@@ -128,6 +128,19 @@ public enum IOTools {
                 break;
     }
 
+    public static void writeAll(@NotNull SocketChannel sc, @NotNull ByteBuffer[] bbs) throws IOException {
+        while (remaining(bbs) > 0)
+            if (sc.write(bbs) < 0)
+                break;
+    }
+
+    private static long remaining(@NotNull ByteBuffer[] bbs) {
+        long remaining = 0;
+        for (ByteBuffer bb : bbs)
+            remaining += bb.remaining();
+        return remaining;
+    }
+
     public static void readFullyOrEOF(@NotNull SocketChannel socket, @NotNull ByteBuffer bb) throws IOException {
         readAvailable(socket, bb);
         if (bb.remaining() > 0) throw new EOFException();
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.RandomDataInput;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A pure Java compressor using the LZ4 block format. It is fast rather than small, which suits large text such as
+ * reference data, snapshots and stack traces.
+ * <p/>
+ * Each sequence is a token byte of the literal length (high 4 bits) and match length - 4 (low 4 bits), a value of 15
+ * being extended by following bytes of up to 255, then the literals, then a two byte little endian offset back to the
+ * match. The last sequence is only literals.
+ * <p/>
+ * An instance holds the hash table so compressing doesn't create garbage, it is not thread safe.
+ *
+ * @author peter.lawrey
+ */
+public class LZCompressor {
+    static final int MIN_MATCH = 4;
+    static final int MAX_OFFSET = 65535;
+    // the last bytes are always literals so a match never reads past the end.
+    static final int LAST_LITERALS = 5;
+    static final int HASH_BITS = 12;
+
+    @NotNull
+    private final int[] hashTable = new int[1 << HASH_BITS];
+
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @param dst must have at least maxCompressedLength(srcLength) bytes from dstOffset.
+     * @return the compressed length.
+     */
+    public int compress(@NotNull byte[] src, int srcOffset, int srcLength, @NotNull byte[] dst, int dstOffset) {
+        int[] hashTable = this.hashTable;
+        // positions are stored + 1 so 0 means none.
+        java.util.Arrays.fill(hashTable, 0);
+        int srcEnd = srcOffset + srcLength;
+        int matchLimit = srcEnd - LAST_LITERALS;
+        int anchor = srcOffset, sp = srcOffset, dp = dstOffset;
+        while (sp < matchLimit - MIN_MATCH) {
+            int seq = readInt(src, sp);
+            int h = (seq * -1640531535) >>> (32 - HASH_BITS);
+            int ref = hashTable[h] - 1;
+            hashTable[h] = sp + 1;
+            if (ref < srcOffset || sp - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+                sp++;
+                continue;
+            }
+            // extend the match forwards.
+            int matchLength = MIN_MATCH;
+            while (sp + matchLength < matchLimit && src[sp + matchLength] == src[ref + matchLength])
+                matchLength++;
+
+            int literals = sp - anchor;
+            int token = dp++;
+            dp = writeLength(dst, dp, literals);
+            System.arraycopy(src, anchor, dst, dp, literals);
+            dp += literals;
+            int offset = sp - ref;
+            dst[dp++] = (byte) offset;
+            dst[dp++] = (byte) (offset >>> 8);
+            dp = writeLength(dst, dp, matchLength - MIN_MATCH);
+            dst[token] = (byte) ((Math.min(literals, 15) << 4) | Math.min(matchLength - MIN_MATCH, 15));
+
+            sp += matchLength;
+            anchor = sp;
+        }
+        int literals = srcEnd - anchor;
+        int token = dp++;
+        dp = writeLength(dst, dp, literals);
+        System.arraycopy(src, anchor, dst, dp, literals);
+        dp += literals;
+        dst[token] = (byte) (Math.min(literals, 15) << 4);
+        return dp - dstOffset;
+    }
+
+    /**
+     * Write the bytes after the token for a length of 15 or more.
+     */
+    private static int writeLength(byte[] dst, int dp, int length) {
+        if (length >= 15) {
+            length -= 15;
+            while (length >= 255) {
+                dst[dp++] = (byte) 255;
+                length -= 255;
+            }
+            dst[dp++] = (byte) length;
+        }
+        return dp;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16 | bytes[offset + 3] << 24;
+    }
+
+    public static void decompress(@NotNull byte[] src, int srcOffset, int srcLength, @NotNull byte[] dst, int dstOffset, int dstLength) {
+        int sp = srcOffset, srcEnd = srcOffset + srcLength, dp = dstOffset, dstEnd = dstOffset + dstLength;
+        // stop once the expected length is reached as src can be followed by padding.
+        while (sp < srcEnd && dp < dstEnd) {
+            int token = src[sp++] & 0xFF;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    literals += b = src[sp++] & 0xFF;
+                } while (b == 255);
+            }
+            checkLength(dp + literals, dstEnd);
+            System.arraycopy(src, sp, dst, dp, literals);
+            sp += literals;
+            dp += literals;
+            if (sp >= srcEnd || dp == dstEnd)
+                break;
+            int offset = (src[sp++] & 0xFF) | (src[sp++] & 0xFF) << 8;
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    matchLength += b = src[sp++] & 0xFF;
+                } while (b == 255);
+            }
+            dp = copyMatch(dst, dp, offset, matchLength + MIN_MATCH, dstOffset, dstEnd);
+        }
+        checkComplete(dp, dstEnd);
+    }
+
+    /**
+     * Decompress reading the compressed bytes straight from an excerpt, without copying them first.
+     */
+    public static void decompress(@NotNull RandomDataInput in, int srcLength, @NotNull byte[] dst, int dstOffset, int dstLength) {
+        int remaining = srcLength, dp = dstOffset, dstEnd = dstOffset + dstLength;
+        while (remaining > 0 && dp < dstEnd) {
+            int token = in.readUnsignedByte();
+            remaining--;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    literals += b = in.readUnsignedByte();
+                    remaining--;
+                } while (b == 255);
+            }
+            checkLength(dp + literals, dstEnd);
+            in.readFully(dst, dp, literals);
+            remaining -= literals;
+            dp += literals;
+            if (remaining <= 0 || dp == dstEnd)
+                break;
+            int offset = in.readUnsignedByte() | in.readUnsignedByte() << 8;
+            remaining -= 2;
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    matchLength += b = in.readUnsignedByte();
+                    remaining--;
+                } while (b == 255);
+            }
+            dp = copyMatch(dst, dp, offset, matchLength + MIN_MATCH, dstOffset, dstEnd);
+        }
+        checkComplete(dp, dstEnd);
+    }
+
+    private static int copyMatch(byte[] dst, int dp, int offset, int length, int dstOffset, int dstEnd) {
+        if (offset == 0 || dp - offset < dstOffset)
+            throw new IllegalStateException("Invalid match offset " + offset + " at " + (dp - dstOffset));
+        checkLength(dp + length, dstEnd);
+        // the match can overlap the bytes being written, so copy one at a time.
+        for (int i = 0; i < length; i++, dp++)
+            dst[dp] = dst[dp - offset];
+        return dp;
+    }
+
+    private static void checkLength(int dp, int dstEnd) {
+        if (dp > dstEnd)
+            throw new IllegalStateException("Decompressed data is longer than expected");
+    }
+
+    private static void checkComplete(int dp, int dstEnd) {
+        if (dp != dstEnd)
+            throw new IllegalStateException("Decompressed data is " + (dstEnd - dp) + " bytes shorter than expected");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads ticks written by a TimeSeriesWriter one at a time, moving on to the next excerpt at the end of each block.
+ * Nothing is allocated after construction.
+ *
+ * @author peter.lawrey
+ */
+public class TimeSeriesReader {
+    @NotNull
+    private final Excerpt excerpt;
+    private final int longColumns;
+    private final int doubleColumns;
+    @NotNull
+    private final long[] longs;
+    @NotNull
+    private final long[] doubleBits;
+    private long timestamp;
+    private long delta;
+    private int remaining = 0;
+
+    public TimeSeriesReader(@NotNull Excerpt excerpt, int longColumns, int doubleColumns) {
+        this.excerpt = excerpt;
+        this.longColumns = longColumns;
+        this.doubleColumns = doubleColumns;
+        longs = new long[longColumns];
+        doubleBits = new long[doubleColumns];
+    }
+
+    /**
+     * @return true if there was another tick, false if there are none yet.
+     */
+    public boolean next() {
+        if (remaining > 0) {
+            remaining--;
+            delta += readZigZag();
+            timestamp += delta;
+            for (int c = 0; c < longColumns; c++)
+                longs[c] += readZigZag();
+            for (int c = 0; c < doubleColumns; c++)
+                doubleBits[c] ^= readXor();
+            return true;
+        }
+        if (!excerpt.nextIndex())
+            return false;
+        readHeader();
+        return true;
+    }
+
+    private void readHeader() {
+        remaining = (int) excerpt.readStopBit() - 1;
+        long longColumns = excerpt.readStopBit();
+        long doubleColumns = excerpt.readStopBit();
+        if (longColumns != this.longColumns || doubleColumns != this.doubleColumns)
+            throw new IllegalStateException("Expected " + this.longColumns + " longs and " + this.doubleColumns
+                    + " doubles but the block at index " + excerpt.index() + " has " + longColumns + " and " + doubleColumns);
+        timestamp = excerpt.readLong();
+        delta = 0;
+        for (int c = 0; c < this.longColumns; c++)
+            longs[c] = excerpt.readLong();
+        for (int c = 0; c < this.doubleColumns; c++)
+            doubleBits[c] = excerpt.readLong();
+    }
+
+    private long readZigZag() {
+        long n = excerpt.readStopBit();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private long readXor() {
+        int trailingZeros = excerpt.readUnsignedByte();
+        return trailingZeros == 64 ? 0 : excerpt.readStopBit() << trailingZeros;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public long longValue(int column) {
+        return longs[column];
+    }
+
+    public double doubleValue(int column) {
+        return Double.longBitsToDouble(doubleBits[column]);
+    }
+}
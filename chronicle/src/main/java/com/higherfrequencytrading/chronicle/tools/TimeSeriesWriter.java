@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import org.jetbrains.annotations.NotNull;
+
+import static com.higherfrequencytrading.chronicle.codegen.Marshallers.stopBitSize;
+
+/**
+ * Writes ticks of a timestamp with a fixed number of long and double columns, in blocks of up to maxTicks per excerpt.
+ * <p/>
+ * The first tick of a block is written in full. After that, timestamps are written as the change in the difference
+ * between them (delta of delta), long columns as the difference from the previous value and double columns as the
+ * bits which differ from the previous value (XOR). As regular timestamps and slowly moving prices have small
+ * differences, most ticks take a few bytes rather than 8 per column. Read them back with a TimeSeriesReader.
+ * <p/>
+ * Prices compress best as a long number of ticks, e.g. the price * 1e5, where a change of a few ticks is one byte.
+ * The XOR of doubles like 1.23456 which can't be represented exactly still differs in most of the mantissa.
+ * <p/>
+ * Ticks are buffered until the block is full or flush() is called.
+ *
+ * @author peter.lawrey
+ */
+public class TimeSeriesWriter {
+    @NotNull
+    private final Excerpt excerpt;
+    private final int maxTicks;
+    private final int longColumns;
+    private final int doubleColumns;
+    @NotNull
+    private final long[] timestamps;
+    @NotNull
+    private final long[] longs;
+    @NotNull
+    private final double[] doubles;
+    private int ticks = 0;
+
+    public TimeSeriesWriter(@NotNull Excerpt excerpt, int maxTicks, int longColumns, int doubleColumns) {
+        if (maxTicks < 1)
+            throw new IllegalArgumentException("maxTicks must be at least 1");
+        if (longColumns < 0 || doubleColumns < 0)
+            throw new IllegalArgumentException("The number of columns cannot be negative");
+        this.excerpt = excerpt;
+        this.maxTicks = maxTicks;
+        this.longColumns = longColumns;
+        this.doubleColumns = doubleColumns;
+        timestamps = new long[maxTicks];
+        longs = new long[maxTicks * longColumns];
+        doubles = new double[maxTicks * doubleColumns];
+    }
+
+    /**
+     * Add a tick, the arrays are copied so they can be reused.
+     */
+    public void add(long timestamp, @NotNull long[] longValues, @NotNull double[] doubleValues) {
+        if (longValues.length < longColumns || doubleValues.length < doubleColumns)
+            throw new IllegalArgumentException("Expected " + longColumns + " longs and " + doubleColumns + " doubles");
+        timestamps[ticks] = timestamp;
+        System.arraycopy(longValues, 0, longs, ticks * longColumns, longColumns);
+        System.arraycopy(doubleValues, 0, doubles, ticks * doubleColumns, doubleColumns);
+        if (++ticks >= maxTicks)
+            flush();
+    }
+
+    /**
+     * Write any buffered ticks as a block.
+     */
+    public void flush() {
+        if (ticks == 0)
+            return;
+        // an exact size, as an excerpt which might cross the end of a data buffer starts in the next one.
+        excerpt.startExcerpt(encode(false));
+        encode(true);
+        excerpt.finish();
+        ticks = 0;
+    }
+
+    /**
+     * @return the size of the block in bytes.
+     */
+    private int encode(boolean write) {
+        int size = stopBitSize(ticks) + stopBitSize(longColumns) + stopBitSize(doubleColumns)
+                + 8 * (1 + longColumns + doubleColumns);
+        if (write) {
+            excerpt.writeStopBit(ticks);
+            excerpt.writeStopBit(longColumns);
+            excerpt.writeStopBit(doubleColumns);
+            excerpt.writeLong(timestamps[0]);
+            for (int c = 0; c < longColumns; c++)
+                excerpt.writeLong(longs[c]);
+            for (int c = 0; c < doubleColumns; c++)
+                excerpt.writeDouble(doubles[c]);
+        }
+
+        long prevDelta = 0;
+        for (int t = 1; t < ticks; t++) {
+            long delta = timestamps[t] - timestamps[t - 1];
+            size += writeZigZag(write, delta - prevDelta);
+            prevDelta = delta;
+            for (int c = 0, i = t * longColumns; c < longColumns; c++, i++)
+                size += writeZigZag(write, longs[i] - longs[i - longColumns]);
+            for (int c = 0, i = t * doubleColumns; c < doubleColumns; c++, i++) {
+                long bits = Double.doubleToRawLongBits(doubles[i]);
+                size += writeXor(write, bits ^ Double.doubleToRawLongBits(doubles[i - doubleColumns]));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Small positive and negative values both take one byte.
+     */
+    private int writeZigZag(boolean write, long n) {
+        long zigZag = (n << 1) ^ (n >> 63);
+        if (write)
+            excerpt.writeStopBit(zigZag);
+        return stopBitSize(zigZag);
+    }
+
+    /**
+     * Values close to the previous one differ in the low bits of the mantissa. Round decimal values also tend to have
+     * trailing zeros, so these are dropped.
+     */
+    private int writeXor(boolean write, long xor) {
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (write)
+            excerpt.writeByte(trailingZeros);
+        if (xor == 0)
+            return 1;
+        if (write)
+            excerpt.writeStopBit(xor >>> trailingZeros);
+        return 1 + stopBitSize(xor >>> trailingZeros);
+    }
+}
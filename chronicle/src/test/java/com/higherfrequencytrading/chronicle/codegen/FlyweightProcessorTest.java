@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class FlyweightProcessorTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @GenerateFlyweight
+    public interface Quote {
+        boolean isActive();
+
+        void setActive(boolean active);
+
+        ElementType getType();
+
+        void setType(ElementType type);
+
+        double getBidPrice();
+
+        void setBidPrice(double bidPrice);
+
+        int getBidQuantity();
+
+        void setBidQuantity(int bidQuantity);
+
+        char getCode();
+
+        void setCode(char code);
+
+        long getTimestamp();
+
+        void setTimestamp(long timestamp);
+
+        // read only
+        byte getFlags();
+    }
+
+    public interface Stamped {
+        long getStamp();
+
+        void setStamp(long stamp);
+    }
+
+    @GenerateFlyweight
+    public interface Level extends Stamped {
+        byte getSide();
+
+        int getQuantity();
+
+        void setQuantity(int quantity);
+    }
+
+    @Test
+    public void testDeclarationOrder() {
+        // the super interface's properties first, then in the order declared.
+        assertEquals(0, FlyweightProcessorTest_LevelFlyweight.STAMP_OFFSET);
+        assertEquals(8, FlyweightProcessorTest_LevelFlyweight.SIDE_OFFSET);
+        assertEquals(12, FlyweightProcessorTest_LevelFlyweight.QUANTITY_OFFSET);
+        assertEquals(16, FlyweightProcessorTest_LevelFlyweight.SIZE);
+    }
+
+    @Test
+    public void testFlyweight() throws IOException {
+        // aligned to the size of each field.
+        assertEquals(0, FlyweightProcessorTest_QuoteFlyweight.ACTIVE_OFFSET);
+        assertEquals(1, FlyweightProcessorTest_QuoteFlyweight.TYPE_OFFSET);
+        assertEquals(8, FlyweightProcessorTest_QuoteFlyweight.BID_PRICE_OFFSET);
+        assertEquals(16, FlyweightProcessorTest_QuoteFlyweight.BID_QUANTITY_OFFSET);
+        assertEquals(20, FlyweightProcessorTest_QuoteFlyweight.CODE_OFFSET);
+        assertEquals(24, FlyweightProcessorTest_QuoteFlyweight.TIMESTAMP_OFFSET);
+        assertEquals(32, FlyweightProcessorTest_QuoteFlyweight.FLAGS_OFFSET);
+        // rounded up to the alignment of the doubles and longs.
+        assertEquals(40, FlyweightProcessorTest_QuoteFlyweight.SIZE);
+
+        String basePath = TMP + File.separator + "testFlyweight";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+        Excerpt excerpt = chronicle.createExcerpt();
+        FlyweightProcessorTest_QuoteFlyweight quote = new FlyweightProcessorTest_QuoteFlyweight();
+
+        // two quotes after a header.
+        excerpt.startExcerpt(8 + 2 * FlyweightProcessorTest_QuoteFlyweight.SIZE);
+        excerpt.writeLong(2);
+        for (int i = 0; i < 2; i++) {
+            Quote q = quote.bind(excerpt, 8 + i * FlyweightProcessorTest_QuoteFlyweight.SIZE);
+            q.setActive(true);
+            q.setType(i == 0 ? ElementType.FIELD : null);
+            q.setBidPrice(1.25 + i);
+            q.setBidQuantity(100 * i);
+            q.setCode('A');
+            q.setTimestamp(123456789L);
+        }
+        excerpt.position(8 + 2 * FlyweightProcessorTest_QuoteFlyweight.SIZE);
+        excerpt.finish();
+
+        assertTrue(excerpt.index(0));
+        assertEquals(2, excerpt.readLong());
+        Quote q = quote.bind(excerpt, 8 + FlyweightProcessorTest_QuoteFlyweight.SIZE);
+        assertTrue(q.isActive());
+        assertNull(q.getType());
+        assertEquals(2.25, q.getBidPrice(), 0.0);
+        assertEquals(100, q.getBidQuantity());
+        assertEquals('A', q.getCode());
+        assertEquals(123456789L, q.getTimestamp());
+        assertEquals(0, q.getFlags());
+        assertEquals(2.25, excerpt.readDouble(8 + FlyweightProcessorTest_QuoteFlyweight.SIZE + FlyweightProcessorTest_QuoteFlyweight.BID_PRICE_OFFSET), 0.0);
+
+        quote.bind(excerpt, 8);
+        assertEquals(ElementType.FIELD, q.getType());
+        assertEquals("Quote{active=true, type=FIELD, bidPrice=1.25, bidQuantity=0, code=A, timestamp=123456789, flags=0}", q.toString());
+        chronicle.close();
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.codegen;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.DictionaryStringMarshaller;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import com.higherfrequencytrading.chronicle.impl.StringDictionary;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class MarshallerProcessorTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @GenerateMarshaller
+    public static class Level {
+        @Compact
+        double price;
+        int quantity;
+    }
+
+    @GenerateMarshaller
+    public static class Order {
+        boolean active;
+        byte flags;
+        char code;
+        short venue;
+        long id;
+        float ratio;
+        double price;
+        @Compact
+        double compactPrice;
+        String instrument;
+        final StringBuilder clientOrderId = new StringBuilder();
+        CharSequence text;
+        ElementType type;
+        Level best;
+        final List<Level> levels = new ArrayList<Level>();
+        List<Integer> fills;
+        List<String> tags;
+        private int quantity;
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    @GenerateMarshaller(tagged = true)
+    public static class QuoteV1 {
+        @Tag(1)
+        long id;
+        @Tag(3)
+        double price;
+    }
+
+    // a later version with fields added.
+    @GenerateMarshaller(tagged = true)
+    public static class QuoteV2 {
+        @Tag(1)
+        long id;
+        @Tag(2)
+        String venue = "default";
+        @Tag(3)
+        double price;
+        @Tag(4)
+        Level best;
+        @Tag(5)
+        List<Integer> sizes;
+        @Tag(6)
+        char side;
+    }
+
+    @Test
+    public void testWriteReadAndSize() throws IOException {
+        String basePath = TMP + File.separator + "testGeneratedMarshaller";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        assertSame(MarshallerProcessorTest_OrderMarshaller.INSTANCE, chronicle.acquireMarshaller(Order.class));
+
+        Order order = new Order();
+        order.active = true;
+        order.flags = 7;
+        order.code = 'X';
+        order.venue = 1234;
+        order.id = Long.MAX_VALUE;
+        order.ratio = 0.5f;
+        order.price = 1.1;
+        order.compactPrice = 0.1;
+        order.instrument = "EURUSD";
+        order.clientOrderId.append("order-é€");
+        order.text = "text";
+        order.type = ElementType.FIELD;
+        order.best = new Level();
+        order.best.price = 1.25;
+        order.best.quantity = 10;
+        for (int i = 0; i < 3; i++) {
+            Level level = new Level();
+            level.price = 1 + i / 10.0;
+            level.quantity = i;
+            order.levels.add(level);
+        }
+        order.fills = Arrays.asList(1, 2, 3);
+        order.tags = Arrays.asList("a", null, "c");
+        order.setQuantity(100);
+
+        Excerpt excerpt = chronicle.createExcerpt();
+        int size = MarshallerProcessorTest_OrderMarshaller.sizeOf(order);
+        excerpt.startExcerpt(size);
+        MarshallerProcessorTest_OrderMarshaller.writeTo(excerpt, order);
+        assertEquals(size, excerpt.position());
+        excerpt.finish();
+
+        // nulls are written too.
+        Order empty = new Order();
+        empty.active = true; // the first 8 bytes cannot be all zero.
+        size = MarshallerProcessorTest_OrderMarshaller.sizeOf(empty);
+        excerpt.startExcerpt(size);
+        excerpt.writeEnum(empty);
+        assertEquals(size, excerpt.position());
+        excerpt.finish();
+
+        Order order2 = new Order();
+        Level level0 = new Level();
+        order2.levels.add(level0);
+        for (int i = 0; i < 4; i++)
+            order2.levels.add(new Level());
+        assertTrue(excerpt.index(0));
+        MarshallerProcessorTest_OrderMarshaller.readFrom(excerpt, order2);
+        assertEquals(0, excerpt.remaining());
+
+        assertTrue(order2.active);
+        assertEquals(7, order2.flags);
+        assertEquals('X', order2.code);
+        assertEquals(1234, order2.venue);
+        assertEquals(Long.MAX_VALUE, order2.id);
+        assertEquals(0.5f, order2.ratio, 0.0f);
+        assertEquals(1.1, order2.price, 0.0);
+        assertEquals(0.1, order2.compactPrice, 0.0);
+        assertEquals("EURUSD", order2.instrument);
+        assertEquals("order-é€", order2.clientOrderId.toString());
+        assertEquals("text", order2.text.toString());
+        assertEquals(ElementType.FIELD, order2.type);
+        assertEquals(1.25, order2.best.price, 0.0);
+        assertEquals(10, order2.best.quantity);
+        assertEquals(3, order2.levels.size());
+        // the existing levels are reused.
+        assertSame(level0, order2.levels.get(0));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1 + i / 10.0, order2.levels.get(i).price, 0.0);
+            assertEquals(i, order2.levels.get(i).quantity);
+        }
+        assertEquals(Arrays.asList(1, 2, 3), order2.fills);
+        assertEquals(Arrays.asList("a", null, "c"), order2.tags);
+        assertEquals(100, order2.getQuantity());
+
+        assertTrue(excerpt.index(1));
+        Order empty2 = excerpt.readEnum(Order.class);
+        assertEquals(0, excerpt.remaining());
+        assertNull(empty2.instrument);
+        assertNull(empty2.text);
+        assertNull(empty2.type);
+        assertNull(empty2.best);
+        assertEquals(0, empty2.levels.size());
+        assertEquals(0, empty2.fills.size());
+
+        chronicle.close();
+    }
+
+    @Test
+    public void testTaggedSchemaEvolution() throws IOException {
+        String basePath = TMP + File.separator + "testTaggedMarshaller";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        Excerpt excerpt = chronicle.createExcerpt();
+
+        QuoteV2 v2 = new QuoteV2();
+        v2.id = 12345;
+        v2.venue = "LSE";
+        v2.price = 101.25;
+        v2.best = new Level();
+        v2.best.price = 101.5;
+        v2.best.quantity = 7;
+        v2.sizes = Arrays.asList(100, 200);
+        v2.side = 'B';
+        int size = MarshallerProcessorTest_QuoteV2Marshaller.sizeOf(v2);
+        excerpt.startExcerpt(size);
+        MarshallerProcessorTest_QuoteV2Marshaller.writeTo(excerpt, v2);
+        assertEquals(size, excerpt.position());
+        excerpt.finish();
+
+        QuoteV1 v1 = new QuoteV1();
+        v1.id = 678;
+        v1.price = 99.5;
+        size = MarshallerProcessorTest_QuoteV1Marshaller.sizeOf(v1);
+        excerpt.startExcerpt(size);
+        MarshallerProcessorTest_QuoteV1Marshaller.writeTo(excerpt, v1);
+        assertEquals(size, excerpt.position());
+        excerpt.finish();
+
+        // every length prefix matches the bytes written.
+        assertTrue(excerpt.index(0));
+        for (long tag; (tag = excerpt.readStopBit()) != Marshallers.END_TAG; )
+            Marshallers.skipField(excerpt, tag);
+        assertEquals(0, excerpt.remaining());
+
+        // the new version of the data with the old reader skips the fields it doesn't know.
+        QuoteV1 v1b = new QuoteV1();
+        assertTrue(excerpt.index(0));
+        MarshallerProcessorTest_QuoteV1Marshaller.readFrom(excerpt, v1b);
+        assertEquals(0, excerpt.remaining());
+        assertEquals(12345, v1b.id);
+        assertEquals(101.25, v1b.price, 0.0);
+
+        // the old version of the data with the new reader leaves the new fields as they are in a new instance.
+        QuoteV2 v2b = new QuoteV2();
+        v2b.venue = "stale";
+        assertTrue(excerpt.index(1));
+        MarshallerProcessorTest_QuoteV2Marshaller.readFrom(excerpt, v2b);
+        assertEquals(0, excerpt.remaining());
+        assertEquals(678, v2b.id);
+        assertEquals(99.5, v2b.price, 0.0);
+        assertEquals("default", v2b.venue);
+        assertNull(v2b.best);
+
+        assertTrue(excerpt.index(0));
+        MarshallerProcessorTest_QuoteV2Marshaller.readFrom(excerpt, v2b);
+        assertEquals(0, excerpt.remaining());
+        assertEquals(12345, v2b.id);
+        assertEquals("LSE", v2b.venue);
+        assertEquals(101.5, v2b.best.price, 0.0);
+        assertEquals(7, v2b.best.quantity);
+        assertEquals(Arrays.asList(100, 200), v2b.sizes);
+        assertEquals('B', v2b.side);
+
+        // reusing the instance, V2 then V1, doesn't keep the values of the previous message.
+        assertTrue(excerpt.index(1));
+        MarshallerProcessorTest_QuoteV2Marshaller.readFrom(excerpt, v2b);
+        assertEquals(678, v2b.id);
+        assertEquals(99.5, v2b.price, 0.0);
+        assertEquals("default", v2b.venue);
+        assertNull(v2b.best);
+        assertNull(v2b.sizes);
+        assertEquals(0, v2b.side);
+
+        chronicle.close();
+    }
+
+    @Test
+    public void testStringsIgnoreTheEnumeratedMarshaller() throws IOException {
+        String basePath = TMP + File.separator + "testMarshallerWithDictionary";
+        ChronicleTools.deleteOnExit(basePath);
+        ChronicleTools.deleteOnExit(basePath + StringDictionary.DICTIONARY_SUFFIX);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        StringDictionary dictionary = new StringDictionary(basePath);
+        // Strings and enums are written as UTF-8 whatever marshaller is installed, so sizeOf() still holds.
+        chronicle.setEnumeratedMarshaller(new DictionaryStringMarshaller(dictionary));
+        Excerpt excerpt = chronicle.createExcerpt();
+
+        Order order = new Order();
+        order.active = true;
+        order.instrument = "EURUSD";
+        order.tags = Arrays.asList("a", null, "c");
+        int size = MarshallerProcessorTest_OrderMarshaller.sizeOf(order);
+        excerpt.startExcerpt(size);
+        MarshallerProcessorTest_OrderMarshaller.writeTo(excerpt, order);
+        assertEquals(size, excerpt.position());
+        excerpt.finish();
+
+        QuoteV2 v2 = new QuoteV2();
+        v2.id = 12345;
+        v2.venue = "LSE";
+        size = MarshallerProcessorTest_QuoteV2Marshaller.sizeOf(v2);
+        excerpt.startExcerpt(size);
+        MarshallerProcessorTest_QuoteV2Marshaller.writeTo(excerpt, v2);
+        assertEquals(size, excerpt.position());
+        excerpt.finish();
+
+        Order order2 = new Order();
+        assertTrue(excerpt.index(0));
+        MarshallerProcessorTest_OrderMarshaller.readFrom(excerpt, order2);
+        assertEquals(0, excerpt.remaining());
+        assertEquals("EURUSD", order2.instrument);
+        assertEquals(Arrays.asList("a", null, "c"), order2.tags);
+        assertNull(order2.type);
+
+        QuoteV2 v2b = new QuoteV2();
+        assertTrue(excerpt.index(1));
+        MarshallerProcessorTest_QuoteV2Marshaller.readFrom(excerpt, v2b);
+        assertEquals(0, excerpt.remaining());
+        assertEquals(12345, v2b.id);
+        assertEquals("LSE", v2b.venue);
+        assertEquals(0, dictionary.size());
+
+        dictionary.close();
+        chronicle.close();
+    }
+
+    @Test
+    public void testSizes() {
+        for (long n : new long[]{0, 1, 127, 128, 1 << 14, Integer.MAX_VALUE, Long.MAX_VALUE, -1, -128, -129, Long.MIN_VALUE}) {
+            int expected = 1;
+            for (long m = n < 0 ? ~n : n; m >= 128; m >>>= 7)
+                expected++;
+            assertEquals(n < 0 ? expected + 1 : expected, Marshallers.stopBitSize(n));
+        }
+        assertEquals(2, Marshallers.utfSize(null));
+        assertEquals(1 + 1 + 2 + 3, Marshallers.utfSize("aé€"));
+        assertEquals(4, Marshallers.compactDoubleSize(0.5));
+        assertEquals(12, Marshallers.compactDoubleSize(0.1));
+    }
+}
@@ -19,15 +19,25 @@ package com.higherfrequencytrading.chronicle.impl;
 import com.higherfrequencytrading.chronicle.Excerpt;
 import com.higherfrequencytrading.chronicle.StopCharTester;
 import com.higherfrequencytrading.chronicle.StopCharTesters;
+import com.higherfrequencytrading.chronicle.TimestampFormat;
+import com.higherfrequencytrading.chronicle.math.MutableDecimal;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 import static com.higherfrequencytrading.chronicle.tools.ChronicleTools.deleteOnExit;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 /**
  * @author peter.lawrey
@@ -89,6 +99,130 @@ public class AppendParseTest {
         tsc.close();
     }
 
+    @Test
+    public void testParseAndSkipToWordAtATime() throws IOException {
+        String basePath = TMP + File.separator + "test-parse-words";
+        for (boolean useUnsafe : new boolean[]{true, false}) {
+            deleteOnExit(basePath);
+            IndexedChronicle tsc = new IndexedChronicle(basePath, 16);
+            tsc.useUnsafe(useUnsafe);
+            Excerpt excerpt = tsc.createExcerpt();
+            MutableDecimal md = new MutableDecimal();
+            Random rand = new Random(1);
+            for (int i = 0; i < 2000; i++) {
+                long value = rand.nextLong() >> rand.nextInt(64);
+                long unscaled = Math.abs(rand.nextLong() >> rand.nextInt(64)) % 1000000000000000L;
+                int scale = rand.nextInt(8);
+                String number = BigDecimal.valueOf(unscaled, scale).toPlainString();
+                // so the text doesn't always start on the same alignment.
+                String padding = "       ".substring(i % 8);
+                String symbol = "SYMBOL.LONGNAME".substring(i % 16);
+
+                excerpt.startExcerpt(128);
+                excerpt.append(padding).append(value).append('=').append(number).append((char) 1)
+                        .append(symbol).append("=D").append((char) 1)
+                        .append(symbol).append((char) 1)
+                        .append(number).append((char) 1);
+                excerpt.finish();
+
+                assertTrue(excerpt.index(i));
+                excerpt.position(padding.length());
+                assertEquals(value, excerpt.parseLong());
+                int position = excerpt.position();
+                excerpt.parseDecimal(md);
+                assertEquals(unscaled, md.value());
+                assertEquals(scale, md.scale());
+                excerpt.position(position);
+                double expected = Double.parseDouble(number);
+                assertEquals(expected, excerpt.parseDouble(), Math.ulp(expected));
+
+                assertTrue(excerpt.skipTo(StopCharTesters.EQUALS));
+                assertEquals('D', excerpt.readByte());
+                assertTrue(excerpt.skipTo(StopCharTesters.FIX_TEXT));
+                assertTrue(excerpt.skipTo(StopCharTesters.CONTROL_STOP));
+                assertEquals(number.charAt(0), excerpt.readByte());
+                // not a specialised tester.
+                assertTrue(excerpt.skipTo(StopCharTesters.forChars("\u0001.")));
+                assertFalse(excerpt.skipTo(StopCharTesters.EQUALS));
+                assertEquals(0, excerpt.remaining());
+            }
+            tsc.close();
+        }
+    }
+
+    @Test
+    public void testTimestamps() throws IOException {
+        String basePath = TMP + File.separator + "test-timestamps";
+        deleteOnExit(basePath);
+        IndexedChronicle tsc = new IndexedChronicle(basePath, 16);
+        Excerpt excerpt = tsc.createExcerpt();
+
+        excerpt.startExcerpt(128);
+        excerpt.appendTimestamp(1371990896123456789L, TimeUnit.NANOSECONDS, TimestampFormat.ISO_8601).append(' ')
+                .appendTimestamp(1371990896123456L, TimeUnit.MICROSECONDS, TimestampFormat.FIX).append((char) 1)
+                .appendTimestamp(-1L, TimeUnit.MILLISECONDS, TimestampFormat.ISO_8601).append(' ')
+                .appendDateTime(1371990896123L);
+        excerpt.finish();
+        assertTrue(excerpt.index(0));
+        assertEquals("2013-06-23T12:34:56.123456789Z 20130623-12:34:56.123456\u00011969-12-31T23:59:59.999Z 2013/06/23T12:34:56.123",
+                excerpt.parseUTF(StopCharTesters.forChar('|')));
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd-HH:mm:ss.SSS");
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Random rand = new Random(1);
+        TimeUnit[] units = {TimeUnit.SECONDS, TimeUnit.MILLISECONDS, TimeUnit.MICROSECONDS, TimeUnit.NANOSECONDS};
+        for (int i = 1; i <= 1000; i++) {
+            // 1970 to 2100
+            long nanos = (long) (rand.nextDouble() * 4102444800e9);
+            excerpt.startExcerpt(256);
+            for (TimeUnit unit : units)
+                for (TimestampFormat format : TimestampFormat.values())
+                    excerpt.appendTimestamp(unit.convert(nanos, TimeUnit.NANOSECONDS), unit, format).append((char) 1);
+            excerpt.finish();
+
+            assertTrue(excerpt.index(i));
+            for (TimeUnit unit : units)
+                for (TimestampFormat format : TimestampFormat.values())
+                    assertEquals(unit.convert(nanos, TimeUnit.NANOSECONDS), excerpt.parseTimestamp(unit));
+            // the FIX format in milli-seconds is the fourth.
+            excerpt.position(0);
+            for (int j = 0; j < 3; j++)
+                excerpt.skipTo(StopCharTesters.FIX_TEXT);
+            assertEquals(sdf.format(new Date(nanos / 1000000)), excerpt.parseUTF(StopCharTesters.FIX_TEXT));
+        }
+
+        // offsets from UTC
+        String[] offsets = {"2013-06-23T14:34:56+02:00 ", "2013-06-23T07:04:56.5-0530|", "2013-06-23T13:34:56+01",
+                "2012-02-29T12:34:56Z"};
+        long[] millis = {1371990896000L, 1371990896500L, 1371990896000L, 1330518896000L};
+        for (int i = 0; i < offsets.length; i++) {
+            excerpt.startExcerpt(32);
+            excerpt.append(offsets[i]);
+            excerpt.finish();
+            assertTrue(excerpt.index(excerpt.size() - 1));
+            assertEquals(offsets[i], millis[i], excerpt.parseTimestamp(TimeUnit.MILLISECONDS));
+            assertEquals(0, excerpt.remaining());
+        }
+
+        // separators, digits, the day of the month and what follows are checked in both formats.
+        String[] invalid = {"2013X623-12:34:56", "20130623-12-34:56", "2013-06/23T12:34:56", "2013-06-23T12:34.56",
+                "20131323-12:34:56", "20130623-25:00:00", "2013-06-00 12:34:56", "2013-02-30T00:00:00",
+                "19000229-00:00:00", "2013-06-31T00:00:00", "20130623T12:34:56", "2013-06-23-12:34:56",
+                "20130623-12:34:56Z", "20130623-12:34:56+02:00", "2013-06-23T12:34:56+25:00", "2013-06-23T12:34:56.123X"};
+        for (String text : invalid) {
+            excerpt.startExcerpt(32);
+            excerpt.append(text);
+            excerpt.finish();
+            assertTrue(excerpt.index(excerpt.size() - 1));
+            try {
+                excerpt.parseTimestamp(TimeUnit.SECONDS);
+                fail(text);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        tsc.close();
+    }
+
     private void assertText(@NotNull Excerpt excerpt, int fid, String text) {
         assertEquals(fid, excerpt.parseLong());
         assertEquals(text, excerpt.parseEnum(String.class, CTRL_A));
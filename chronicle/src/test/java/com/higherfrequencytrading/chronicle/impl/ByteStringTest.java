@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.StopCharTesters;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class ByteStringTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void testReadAndLookup() throws IOException {
+        String basePath = TMP + File.separator + "testByteString";
+        ChronicleTools.deleteOnExit(basePath);
+
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        Excerpt excerpt = chronicle.createExcerpt();
+        String[] symbols = {"EURUSD", "GBPUSD", "USDJPY", "Zürich", "€uro", ""};
+        for (int i = 0; i < symbols.length; i++) {
+            excerpt.startExcerpt(64);
+            excerpt.writeLong(i + 1);
+            excerpt.writeUTF(symbols[i]);
+            excerpt.writeUTF(null);
+            excerpt.append(symbols[i]).append(',');
+            excerpt.finish();
+        }
+
+        ByteStringMap<Integer> map = new ByteStringMap<Integer>(4);
+        for (int i = 0; i < symbols.length; i++)
+            assertNull(map.put(symbols[i], i));
+        assertEquals(symbols.length, map.size());
+
+        ByteString bs = new ByteString(4);
+        for (int i = 0; i < symbols.length; i++) {
+            assertTrue(excerpt.index(i));
+            assertEquals(i + 1, excerpt.readLong());
+            assertTrue(bs.readUTF(excerpt));
+            assertTrue(bs.contentEquals(symbols[i]));
+            assertEquals(symbols[i], bs.toString());
+            assertEquals(new ByteString(symbols[i]), bs);
+            assertEquals(ByteString.hashOf(symbols[i]), bs.hashCode());
+            assertEquals(i, (int) map.get(bs));
+            assertEquals(i, (int) map.get(symbols[i]));
+            assertFalse(bs.readUTF(excerpt));
+
+            // append() writes one byte per char so only ASCII text is the same.
+            bs.parse(excerpt, StopCharTesters.forChar(','));
+            if (i < 3) {
+                assertTrue(bs.contentEquals(symbols[i]));
+                assertEquals(i, (int) map.get(bs));
+            }
+        }
+        assertFalse(new ByteString("EURUSD").contentEquals("EURUS"));
+        assertFalse(new ByteString("EURUS").contentEquals("EURUSD"));
+        assertNull(map.get(new ByteString("CHFJPY")));
+        assertNull(map.get("CHFJPY"));
+        assertTrue(new ByteString("EURUSD").compareTo(new ByteString("GBPUSD")) < 0);
+        assertEquals(1, (int) map.put("GBPUSD", -1));
+        assertEquals(-1, (int) map.get("GBPUSD"));
+        chronicle.close();
+    }
+}
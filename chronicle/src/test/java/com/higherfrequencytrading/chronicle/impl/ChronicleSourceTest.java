@@ -0,0 +1,221 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.ExcerptListener;
+import com.higherfrequencytrading.chronicle.tcp.BatchingPolicy;
+import com.higherfrequencytrading.chronicle.tcp.ChronicleSink;
+import com.higherfrequencytrading.chronicle.tcp.ChronicleSource;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * @author peter.lawrey
+ */
+public class ChronicleSourceTest {
+    public static final int PORT = 12370;
+
+    @Test
+    public void testBatchedReplication() throws IOException, InterruptedException {
+        String baseDir = System.getProperty("java.io.tmpdir");
+        String srcBasePath = baseDir + "/CST.testBatchedReplication.source";
+        String snkBasePath = baseDir + "/CST.testBatchedReplication.sink";
+        ChronicleTools.deleteOnExit(srcBasePath);
+        ChronicleTools.deleteOnExit(snkBasePath);
+        final int messages = 200000;
+        BatchingPolicy policy = new BatchingPolicy().maxMessages(64).maxLingerNS(20 * 1000);
+        IndexedChronicle chronicle = new IndexedChronicle(srcBasePath);
+        ChronicleSource<IndexedChronicle> source = new ChronicleSource<IndexedChronicle>(chronicle, PORT, 0, policy);
+
+        final CountDownLatch latch = new CountDownLatch(messages);
+        final AtomicInteger errors = new AtomicInteger();
+        ChronicleSink sink = new ChronicleSink(new IndexedChronicle(snkBasePath), "localhost", PORT, new ExcerptListener() {
+            long expected = 1;
+
+            @Override
+            public void onExcerpt(@NotNull Excerpt excerpt) {
+                if (excerpt.readLong() != expected++)
+                    errors.incrementAndGet();
+                // every tenth excerpt is larger than a batch.
+                if (excerpt.remaining() > 1024 && excerpt.readByte(excerpt.capacity() - 1) != 127)
+                    errors.incrementAndGet();
+                latch.countDown();
+            }
+        });
+
+        // write some to catch up on and some while the sink is live.
+        Excerpt excerpt = chronicle.createExcerpt();
+        for (int i = 1; i <= messages; i++) {
+            excerpt.startExcerpt(i % 10000 == 0 ? 80 * 1024 : 9);
+            excerpt.writeLong(i);
+            if (i % 10000 == 0) {
+                excerpt.position(80 * 1024 - 1);
+                excerpt.writeByte(127);
+            } else {
+                excerpt.writeByte(i);
+            }
+            excerpt.finish();
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        sink.close();
+        source.close();
+    }
+
+    @Test
+    public void testTransferCatchUp() throws IOException, InterruptedException {
+        String baseDir = System.getProperty("java.io.tmpdir");
+        String srcBasePath = baseDir + "/CST.testTransferCatchUp.source";
+        String snkBasePath = baseDir + "/CST.testTransferCatchUp.sink";
+        ChronicleTools.deleteOnExit(srcBasePath);
+        ChronicleTools.deleteOnExit(snkBasePath);
+        final int messages = 200000;
+        // small blocks so the transfers include the padding at the end of many blocks.
+        IndexedChronicle chronicle = new IndexedChronicle(srcBasePath, 16);
+        ChronicleSource<IndexedChronicle> source = new ChronicleSource<IndexedChronicle>(chronicle, PORT + 1, 0);
+
+        // half are written before the sink connects and are sent as ranges of the data file.
+        Excerpt excerpt = chronicle.createExcerpt();
+        writeVarying(excerpt, 1, messages / 2);
+
+        final CountDownLatch latch = new CountDownLatch(messages);
+        final AtomicInteger errors = new AtomicInteger();
+        IndexedChronicle sinkChronicle = new IndexedChronicle(snkBasePath, 16);
+        ChronicleSink sink = new ChronicleSink(sinkChronicle, "localhost", PORT + 1, new ExcerptListener() {
+            long expected = 1;
+
+            @Override
+            public void onExcerpt(@NotNull Excerpt excerpt) {
+                long i = expected++;
+                if (excerpt.readLong() != i || i % 50 > 0 && excerpt.readByte() != (byte) i)
+                    errors.incrementAndGet();
+                latch.countDown();
+            }
+        }, true);
+
+        writeVarying(excerpt, messages / 2 + 1, messages);
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        // the data files are laid out the same.
+        assertEquals(chronicle.getIndexData(messages), sinkChronicle.getIndexData(messages));
+        sink.close();
+        source.close();
+    }
+
+    @Test
+    public void testTransferAfterOverReserving() throws IOException, InterruptedException {
+        String baseDir = System.getProperty("java.io.tmpdir");
+        String srcBasePath = baseDir + "/CST.testTransferAfterOverReserving.source";
+        String snkBasePath = baseDir + "/CST.testTransferAfterOverReserving.sink";
+        ChronicleTools.deleteOnExit(srcBasePath);
+        ChronicleTools.deleteOnExit(snkBasePath);
+        final int messages = 10000;
+        IndexedChronicle chronicle = new IndexedChronicle(srcBasePath, 16);
+        ChronicleSource<IndexedChronicle> source = new ChronicleSource<IndexedChronicle>(chronicle, PORT + 2, 0);
+        // the writer reserves more than it writes so the source pads differently to a sink sent one excerpt at a time.
+        Excerpt excerpt = chronicle.createExcerpt();
+        writeOverReserved(excerpt, 1, messages);
+
+        CountDownLatch latch = new CountDownLatch(messages);
+        AtomicInteger errors = new AtomicInteger();
+        ChronicleSink sink = new ChronicleSink(new IndexedChronicle(snkBasePath, 16), "localhost", PORT + 2,
+                new CheckingListener(1, latch, errors));
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        sink.close();
+
+        // the sink now asks for transfers but its data file is laid out differently.
+        writeOverReserved(excerpt, messages + 1, 2 * messages);
+        latch = new CountDownLatch(messages);
+        IndexedChronicle sinkChronicle = new IndexedChronicle(snkBasePath, 16);
+        sink = new ChronicleSink(sinkChronicle, "localhost", PORT + 2,
+                new CheckingListener(messages + 1, latch, errors), true);
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        assertEquals(2 * messages, sinkChronicle.size());
+        sink.close();
+        source.close();
+    }
+
+    static void writeOverReserved(Excerpt excerpt, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            excerpt.startExcerpt(1024);
+            excerpt.writeLong(i);
+            excerpt.writeLong(i);
+            excerpt.finish();
+        }
+    }
+
+    static class CheckingListener implements ExcerptListener {
+        private final CountDownLatch latch;
+        private final AtomicInteger errors;
+        private long expected;
+
+        CheckingListener(long expected, CountDownLatch latch, AtomicInteger errors) {
+            this.expected = expected;
+            this.latch = latch;
+            this.errors = errors;
+        }
+
+        @Override
+        public void onExcerpt(@NotNull Excerpt excerpt) {
+            long i = expected++;
+            if (excerpt.readLong() != i || excerpt.readLong() != i)
+                errors.incrementAndGet();
+            latch.countDown();
+        }
+    }
+
+    static void writeVarying(Excerpt excerpt, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            int extra = i % 50;
+            excerpt.startExcerpt(8 + extra);
+            excerpt.writeLong(i);
+            for (int j = 0; j < extra; j++)
+                excerpt.writeByte(i);
+            excerpt.finish();
+        }
+    }
+
+    @Test
+    public void testAdaptiveLinger() {
+        BatchingPolicy policy = new BatchingPolicy().maxMessages(100).maxLingerNS(1000);
+        // a lone message is never held back.
+        assertEquals(0, policy.lingerNS(0));
+        assertEquals(0, policy.lingerNS(1));
+        // the more the previous batch carried, the longer it waits.
+        assertEquals(500, policy.lingerNS(50));
+        assertEquals(1000, policy.lingerNS(100));
+        assertEquals(1000, policy.adaptive(false).lingerNS(1));
+
+        assertTrue(policy.canAdd(99, 0, policy.maxBytes()));
+        assertTrue(!policy.canAdd(100, 0, 1));
+        assertTrue(!policy.canAdd(1, 1, policy.maxBytes()));
+    }
+}
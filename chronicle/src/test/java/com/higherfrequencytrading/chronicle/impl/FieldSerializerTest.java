@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class FieldSerializerTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    static class Node {
+        final String name;
+        int[] values;
+        long[][] grid;
+        double weight;
+        char code;
+        boolean flag;
+        Node next;
+        List<Node> children = new ArrayList<Node>();
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        transient int cached = -1;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    enum Side {
+        BUY,
+        SELL {
+            @Override
+            public String toString() {
+                return "sell";
+            }
+        }
+    }
+
+    static class Order {
+        Side side;
+        Side other;
+    }
+
+    static class Hooked implements Serializable {
+        private static final long serialVersionUID = 0L;
+        transient String value;
+
+        Hooked(String value) {
+            this.value = value;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.writeUTF(value);
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException {
+            value = in.readUTF();
+        }
+    }
+
+    @Test
+    public void testObjectGraph() throws IOException {
+        String basePath = TMP + File.separator + "testFieldSerializer";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+        Excerpt excerpt = chronicle.createExcerpt();
+
+        Node root = new Node("root");
+        root.values = new int[]{1, 2, 3};
+        root.grid = new long[][]{{1L, 2L}, null, {}};
+        root.weight = 1.5;
+        root.code = 'r';
+        root.flag = true;
+        Node child = new Node("child");
+        child.next = root; // a cycle
+        root.next = child;
+        root.children.add(child);
+        root.children.add(child);
+        root.counts.put("a", 1);
+        root.counts.put("b", null);
+        root.cached = 5;
+
+        Set<String> reversed = new TreeSet<String>(Collections.reverseOrder());
+        reversed.add("x");
+
+        excerpt.startExcerpt(1024);
+        excerpt.writeObject(root);
+        excerpt.writeObject(new Object[]{"text", 1, root.values, null});
+        excerpt.writeObject(new Hooked("hooked"));
+        excerpt.writeObject(reversed);
+        excerpt.finish();
+
+        assertTrue(excerpt.index(0));
+        Node root2 = (Node) excerpt.readObject();
+        assertEquals("root", root2.name);
+        assertArrayEquals(new int[]{1, 2, 3}, root2.values);
+        assertEquals(3, root2.grid.length);
+        assertArrayEquals(new long[]{1L, 2L}, root2.grid[0]);
+        assertNull(root2.grid[1]);
+        assertEquals(0, root2.grid[2].length);
+        assertEquals(1.5, root2.weight, 0.0);
+        assertEquals('r', root2.code);
+        assertTrue(root2.flag);
+        assertEquals(0, root2.cached); // transient
+        Node child2 = root2.next;
+        assertEquals("child", child2.name);
+        assertSame(root2, child2.next);
+        assertSame(child2, root2.children.get(0));
+        assertSame(child2, root2.children.get(1));
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<String>(root2.counts.keySet()));
+        assertEquals(1, (int) root2.counts.get("a"));
+        assertNull(root2.counts.get("b"));
+
+        Object[] objects = (Object[]) excerpt.readObject();
+        assertEquals("text", objects[0]);
+        assertEquals(1, objects[1]);
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) objects[2]);
+        assertNull(objects[3]);
+        assertEquals("hooked", ((Hooked) excerpt.readObject()).value);
+        @SuppressWarnings("unchecked")
+        TreeSet<String> reversed2 = (TreeSet<String>) excerpt.readObject();
+        assertNotNull(reversed2.comparator());
+        chronicle.close();
+    }
+
+    @Test
+    public void testRegisteredClass() throws IOException {
+        String basePath = TMP + File.separator + "testFieldSerializerRegistered";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+        chronicle.registerClass(Node.class, 1);
+        Excerpt excerpt = chronicle.createExcerpt();
+        Node node = new Node(null);
+        node.children = null;
+        node.counts = null;
+        node.weight = 2;
+        excerpt.startExcerpt(64);
+        excerpt.writeObject(node);
+        // type, class id, 6 null references, a double, a char and a boolean
+        assertEquals(1 + 1 + 6 + 8 + 2 + 1, excerpt.position());
+        excerpt.finish();
+
+        assertTrue(excerpt.index(0));
+        Node node2 = (Node) excerpt.readObject();
+        assertEquals(2.0, node2.weight, 0.0);
+        assertNull(node2.name);
+        assertNull(node2.children);
+        chronicle.close();
+    }
+
+    @Test
+    public void testEnumFieldsByName() throws IOException {
+        String basePath = TMP + File.separator + "testFieldSerializerEnums";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+        chronicle.registerClass(Order.class, 1);
+        chronicle.registerClass(Side.class, 2);
+        Excerpt excerpt = chronicle.createExcerpt();
+        Order order = new Order();
+        order.side = Side.BUY;
+        order.other = Side.SELL; // a constant with a body
+        excerpt.startExcerpt(64);
+        excerpt.writeObject(order);
+        // type, class id, then for each field the type, the class id and the name, not an ObjectOutputStream
+        assertEquals(1 + 1 + (1 + 1 + 4) + (1 + 1 + 5), excerpt.position());
+        excerpt.finish();
+
+        assertTrue(excerpt.index(0));
+        Order order2 = (Order) excerpt.readObject();
+        assertSame(Side.BUY, order2.side);
+        assertSame(Side.SELL, order2.other);
+        chronicle.close();
+    }
+}
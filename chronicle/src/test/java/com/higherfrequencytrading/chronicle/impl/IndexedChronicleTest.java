@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
 
@@ -226,6 +227,332 @@ public class IndexedChronicleTest {
         reader.finish();
     }
 
+    @Test
+    public void testByteBufferView() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-byte-buffer-view";
+        for (boolean useUnsafe : new boolean[]{false, true}) {
+            ChronicleTools.deleteOnExit(testPath);
+            IndexedChronicle tsc = new IndexedChronicle(testPath, 12);
+            tsc.useUnsafe(useUnsafe);
+
+            Excerpt excerpt = tsc.createExcerpt();
+            for (int i = 0; i < 1000; i++) {
+                excerpt.startExcerpt(16);
+                excerpt.writeLong(i + 1);
+                excerpt.writeLong(i * 2);
+                excerpt.finish();
+            }
+
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(excerpt.index(i));
+                excerpt.readLong();
+                ByteBuffer bb = excerpt.byteBuffer();
+                assertTrue(bb.isDirect());
+                assertEquals(excerpt.remaining(), bb.remaining());
+                assertEquals(i * 2, bb.getLong(bb.position()));
+                assertEquals(i + 1, UnsafeExcerpt.UNSAFE.getLong(excerpt.address()));
+            }
+            tsc.close();
+        }
+    }
+
+    @Test
+    public void testBulkPrimitives() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-bulk-primitives";
+        int[] ints = {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 5};
+        long[] longs = {1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE};
+        float[] floats = {1.5f, -2.25f, Float.NaN};
+        double[] doubles = {0.1, -1e300, Double.MIN_VALUE, Double.NEGATIVE_INFINITY};
+        for (boolean useUnsafe : new boolean[]{false, true}) {
+            ChronicleTools.deleteOnExit(testPath);
+            IndexedChronicle tsc = new IndexedChronicle(testPath, 12);
+            tsc.useUnsafe(useUnsafe);
+
+            Excerpt excerpt = tsc.createExcerpt();
+            excerpt.startExcerpt(4 + 4 * 4 + 3 * 8 + 2 * 4 + 4 * 8);
+            excerpt.writeInt(1);
+            excerpt.writeInts(ints, 1, 4);
+            excerpt.writeLongs(longs, 1, 3);
+            excerpt.writeFloats(floats, 1, 2);
+            excerpt.writeDoubles(doubles, 0, 4);
+            assertEquals(0, excerpt.remaining());
+            excerpt.finish();
+
+            assertTrue(excerpt.index(0));
+            assertEquals(1, excerpt.readInt());
+            int[] ints2 = new int[ints.length];
+            excerpt.readInts(ints2, 1, 4);
+            assertEquals(Arrays.toString(ints), "[1, " + Arrays.toString(ints2).substring(4));
+            long[] longs2 = new long[3];
+            excerpt.readLongs(longs2, 0, 3);
+            assertEquals(Arrays.toString(Arrays.copyOfRange(longs, 1, 4)), Arrays.toString(longs2));
+            float[] floats2 = new float[2];
+            excerpt.readFloats(floats2, 0, 2);
+            assertEquals(Arrays.toString(Arrays.copyOfRange(floats, 1, 3)), Arrays.toString(floats2));
+            double[] doubles2 = new double[4];
+            excerpt.readDoubles(doubles2, 0, 4);
+            assertEquals(Arrays.toString(doubles), Arrays.toString(doubles2));
+            assertEquals(0, excerpt.remaining());
+            try {
+                excerpt.position(0);
+                excerpt.readLongs(new long[11], 0, 11);
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+            tsc.close();
+        }
+    }
+
+    @Test
+    public void testPrimitiveCollections() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-primitive-collections";
+        LongList longs = new LongList();
+        IntList ints = new IntList();
+        DoubleList doubles = new DoubleList();
+        LongLongMap longMap = new LongLongMap();
+        LongDoubleMap doubleMap = new LongDoubleMap();
+        for (int i = 0; i < 100; i++) {
+            longs.add(i * 1000000007L);
+            ints.add(-i);
+            doubles.add(i / 10.0);
+            longMap.put(i * 31L, -i);
+            doubleMap.put(-i, i / 3.0);
+        }
+        for (boolean useUnsafe : new boolean[]{false, true}) {
+            ChronicleTools.deleteOnExit(testPath);
+            IndexedChronicle tsc = new IndexedChronicle(testPath, 16);
+            tsc.useUnsafe(useUnsafe);
+
+            Excerpt excerpt = tsc.createExcerpt();
+            // one byte type and one byte length headers then raw values.
+            excerpt.startExcerpt(5 * 2 + 100 * (8 + 4 + 8 + 16 + 16));
+            excerpt.writeLongList(longs);
+            excerpt.writeIntList(ints);
+            excerpt.writeDoubleList(doubles);
+            excerpt.writeLongLongMap(longMap);
+            excerpt.writeLongDoubleMap(doubleMap);
+            assertEquals(0, excerpt.remaining());
+            excerpt.finish();
+
+            // read into reused collections.
+            LongList longs2 = new LongList(1);
+            longs2.add(-1);
+            IntList ints2 = new IntList();
+            DoubleList doubles2 = new DoubleList();
+            LongLongMap longMap2 = new LongLongMap();
+            longMap2.put(-1, -1);
+            LongDoubleMap doubleMap2 = new LongDoubleMap();
+            assertTrue(excerpt.index(0));
+            excerpt.readLongList(longs2);
+            excerpt.readIntList(ints2);
+            excerpt.readDoubleList(doubles2);
+            excerpt.readLongLongMap(longMap2);
+            excerpt.readLongDoubleMap(doubleMap2);
+            assertEquals(0, excerpt.remaining());
+
+            assertEquals(longs.toString(), longs2.toString());
+            assertEquals(ints.toString(), ints2.toString());
+            assertEquals(doubles.toString(), doubles2.toString());
+            assertEquals(100, longMap2.size());
+            assertEquals(100, doubleMap2.size());
+            assertFalse(longMap2.containsKey(-1));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(-i, longMap2.get(i * 31L, Long.MIN_VALUE));
+                assertEquals(i / 3.0, doubleMap2.get(-i, Double.NaN));
+            }
+
+            excerpt.position(0);
+            try {
+                excerpt.readIntList(ints2);
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+            tsc.close();
+        }
+    }
+
+    @Test
+    public void testAtomicOperations() throws Exception {
+        String testPath = TMP + File.separator + "chronicle-atomic-operations";
+        for (boolean useUnsafe : new boolean[]{false, true}) {
+            ChronicleTools.deleteOnExit(testPath);
+            final IndexedChronicle tsc = new IndexedChronicle(testPath, 12);
+            tsc.useUnsafe(useUnsafe);
+
+            Excerpt excerpt = tsc.createExcerpt();
+            excerpt.startExcerpt(16);
+            excerpt.writeLong(1);
+            excerpt.writeOrderedInt(8, 0);
+            excerpt.writeOrderedInt(12, 0);
+            excerpt.position(16);
+            excerpt.finish();
+
+            assertTrue(excerpt.index(0));
+            assertFalse(excerpt.compareAndSwapLong(0, 0L, 2L));
+            assertTrue(excerpt.compareAndSwapLong(0, 1L, 2L));
+            assertEquals(2L, excerpt.readVolatileLong(0));
+
+            final int runs = 100000;
+            Thread[] threads = new Thread[2];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Excerpt e = tsc.createExcerpt();
+                        e.index(0);
+                        for (int i = 0; i < runs; i++)
+                            e.getAndAddInt(8, 1);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            assertEquals(threads.length * runs, excerpt.readVolatileInt(8));
+            assertEquals(threads.length * runs, excerpt.getAndAddInt(8, -1));
+            assertEquals(threads.length * runs - 1, excerpt.readInt(8));
+            assertEquals(2L, excerpt.getAndAddLong(0, 3));
+            assertEquals(5L, excerpt.readLong(0));
+            tsc.close();
+        }
+    }
+
+    @Test
+    public void testRegisteredClasses() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-registered-classes";
+        ChronicleTools.deleteOnExit(testPath);
+        IndexedChronicle tsc = new IndexedChronicle(testPath, 12);
+        tsc.registerClass(String.class, 1);
+        tsc.registerClass(BigDecimal.class, 200);
+        try {
+            tsc.registerClass(Date.class, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        Excerpt excerpt = tsc.createExcerpt();
+        excerpt.startExcerpt(64);
+        excerpt.writeObject("hello");
+        // type byte, id and the UTF.
+        assertEquals(1 + 1 + 6, excerpt.position());
+        excerpt.writeObject(new BigDecimal("1.25"));
+        assertEquals(8 + 1 + 2 + 5, excerpt.position());
+        excerpt.writeObject(new Date(1000));
+        excerpt.writeObject(null);
+        excerpt.finish();
+
+        assertTrue(excerpt.index(0));
+        assertEquals("hello", excerpt.readObject());
+        assertEquals(new BigDecimal("1.25"), excerpt.readObject());
+        assertEquals(new Date(1000), excerpt.readObject());
+        assertNull(excerpt.readObject());
+        tsc.close();
+    }
+
+    @Test
+    public void testAsciiAndNonAsciiUTF() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-ascii-utf";
+        List<String> texts = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            texts.add(sb.toString());
+            // a non-ASCII or 0 character at each position of an otherwise ASCII String.
+            for (char ch : new char[]{0, 0x7F, 0x80, 'é', '€'}) {
+                StringBuilder sb2 = new StringBuilder(sb);
+                sb2.insert(i / 2, ch);
+                texts.add(sb2.toString());
+            }
+            sb.append((char) ('a' + i));
+        }
+        for (boolean useUnsafe : new boolean[]{false, true}) {
+            ChronicleTools.deleteOnExit(testPath);
+            IndexedChronicle tsc = new IndexedChronicle(testPath, 12);
+            tsc.useUnsafe(useUnsafe);
+            Excerpt excerpt = tsc.createExcerpt();
+            for (String text : texts) {
+                excerpt.startExcerpt(8 + 2 + text.length() * 3 * 2);
+                excerpt.writeLong(1);
+                excerpt.writeUTF(text);
+                excerpt.writeUTF(new StringBuilder(text));
+                excerpt.finish();
+            }
+            StringBuilder sb2 = new StringBuilder();
+            for (int i = 0; i < texts.size(); i++) {
+                assertTrue(excerpt.index(i));
+                assertEquals(1, excerpt.readLong());
+                assertEquals(texts.get(i), excerpt.readUTF());
+                sb2.setLength(0);
+                sb2.append('>');
+                assertTrue(excerpt.appendUTF(sb2));
+                assertEquals('>' + texts.get(i), sb2.toString());
+                assertEquals(0, excerpt.remaining());
+            }
+            tsc.close();
+        }
+    }
+
+    @Test
+    public void testInternerCapacity() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-interner-capacity";
+        ChronicleTools.deleteOnExit(testPath);
+        ChronicleTools.deleteOnExit(testPath + "-int");
+        // each chronicle in the same process can be sized differently.
+        IndexedChronicle small = ChronicleBuilder.newIndexedChronicleBuilder(testPath)
+                .dataBitSizeHint(12).internerCapacity(256).build();
+        IndexedChronicle large = ChronicleBuilder.newIntIndexedChronicleBuilder(testPath + "-int")
+                .dataBitSizeHint(12).internerCapacity(50000).build();
+        assertEquals(256, small.stringInterner().capacity());
+        assertEquals(65536, large.stringInterner().capacity());
+        small.close();
+        large.close();
+
+        IndexedChronicle byDefault = new IndexedChronicle(testPath, 12);
+        assertEquals(AbstractChronicle.DEFAULT_INTERNER_CAPACITY, byDefault.stringInterner().capacity());
+        byDefault.close();
+    }
+
+    @Test
+    public void testGrowOnDemand() throws IOException {
+        String testPath = TMP + File.separator + "chronicle-grow-on-demand";
+        for (boolean useUnsafe : new boolean[]{false, true}) {
+            ChronicleTools.deleteOnExit(testPath);
+            IndexedChronicle tsc = ChronicleBuilder.newIndexedChronicleBuilder(testPath)
+                    .dataBitSizeHint(12).useUnsafe(useUnsafe).growOnDemand(true).build();
+            Excerpt excerpt = tsc.createExcerpt();
+            // a small guess can write to the end of the block.
+            excerpt.startExcerpt(8);
+            assertEquals(4096, excerpt.capacity());
+            excerpt.write(new byte[1000]);
+            excerpt.writeLong(0, -1);
+            excerpt.finish();
+            assertEquals(1000, tsc.getIndexData(1));
+
+            int runs = 200;
+            long written = 1000;
+            for (int i = 0; i < runs; i++) {
+                // the capacity is only the most the message could need.
+                excerpt.startExcerpt(8 + 50 * 11);
+                excerpt.writeLong(i + 1);
+                for (int j = 0; j < i % 50; j++)
+                    excerpt.writeUTF("message-" + j);
+                written += excerpt.position();
+                excerpt.finish();
+            }
+            long padding = tsc.getIndexData(runs + 1) - written;
+            // only the ends of the 4 KB blocks are wasted.
+            assertTrue("padding=" + padding, padding < (written >> 12) * 512);
+            for (int i = 0; i < runs; i++) {
+                assertTrue(excerpt.index(i + 1));
+                assertEquals(i + 1, excerpt.readLong());
+                for (int j = 0; j < i % 50; j++)
+                    assertEquals("message-" + j, excerpt.readUTF());
+                // truncated unless padded to the end of a block.
+                assertTrue(excerpt.remaining() == 0 || (tsc.getIndexData(i + 2) & 4095) == 0);
+            }
+            tsc.close();
+        }
+    }
+
     @Test
     public void testEnum() throws IOException {
         String testPath = TMP + File.separator + "chroncle-bool-enum";
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Chronicle;
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.tcp.InProcessChronicleSink;
+import com.higherfrequencytrading.chronicle.tcp.SelectorChronicleSource;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+/**
+ * @author peter.lawrey
+ */
+public class SelectorChronicleSourceTest {
+    public static final int PORT = 12360;
+
+    @Test
+    public void testManySinks() throws IOException, InterruptedException {
+        String baseDir = System.getProperty("java.io.tmpdir");
+        String srcBasePath = baseDir + "/SCST.testManySinks.source";
+        ChronicleTools.deleteOnExit(srcBasePath);
+        final int messages = 100000, sinks = 24;
+        // two event loops for all the sinks.
+        SelectorChronicleSource source = new SelectorChronicleSource(new IndexedChronicle(srcBasePath), PORT, 2);
+
+        // half the messages are written before the sinks connect.
+        Excerpt excerpt = source.createExcerpt();
+        write(excerpt, 1, messages / 2);
+
+        Chronicle[] sinkChronicles = new Chronicle[sinks];
+        Thread[] readers = new Thread[sinks];
+        final AtomicInteger errors = new AtomicInteger();
+        for (int s = 0; s < sinks; s++) {
+            String snkBasePath = baseDir + "/SCST.testManySinks.sink" + s;
+            ChronicleTools.deleteOnExit(snkBasePath);
+            final Chronicle sink = sinkChronicles[s] = new InProcessChronicleSink(new IndexedChronicle(snkBasePath), "localhost", PORT);
+            readers[s] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Excerpt excerpt = sink.createExcerpt();
+                    for (int i = 1; i <= messages; i++) {
+                        //noinspection StatementWithEmptyBody
+                        while (!excerpt.nextIndex()) ;
+                        if (excerpt.readLong() != i) {
+                            errors.incrementAndGet();
+                            return;
+                        }
+                        excerpt.finish();
+                    }
+                }
+            });
+            readers[s].start();
+        }
+        // and half while they are reading.
+        write(excerpt, messages / 2 + 1, messages);
+        long end = System.currentTimeMillis() + 30000;
+        for (Thread reader : readers)
+            reader.join(Math.max(1, end - System.currentTimeMillis()));
+        assertEquals(0, errors.get());
+        assertEquals(sinks, source.connections());
+        for (int s = 0; s < sinks; s++) {
+            assertFalse(readers[s].isAlive());
+            sinkChronicles[s].close();
+        }
+        source.close();
+    }
+
+    static void write(Excerpt excerpt, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            excerpt.startExcerpt(9);
+            excerpt.writeLong(i);
+            excerpt.writeByte(i);
+            excerpt.finish();
+        }
+    }
+}
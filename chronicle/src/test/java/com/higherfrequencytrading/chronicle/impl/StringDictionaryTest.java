@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.StopCharTesters;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class StringDictionaryTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void testDictionaryMarshallers() throws IOException {
+        String basePath = TMP + File.separator + "testDictionary";
+        ChronicleTools.deleteOnExit(basePath);
+        ChronicleTools.deleteOnExit(basePath + StringDictionary.DICTIONARY_SUFFIX);
+
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        StringDictionary dictionary = new StringDictionary(basePath);
+        chronicle.setEnumeratedMarshaller(new DictionaryStringMarshaller(dictionary));
+        chronicle.setEnumeratedMarshaller(new DictionaryEnumMarshaller<ElementType>(ElementType.class, dictionary, null));
+
+        Excerpt excerpt = chronicle.createExcerpt();
+        String[] symbols = {"EURUSD", "GBPUSD", "USDJPY"};
+        for (int i = 0; i < 30; i++) {
+            excerpt.startExcerpt(16);
+            excerpt.writeLong(i + 1);
+            excerpt.writeEnum(symbols[i % symbols.length]);
+            excerpt.writeEnum(new StringBuilder(symbols[(i + 1) % symbols.length]));
+            excerpt.writeEnum(ElementType.values()[i % ElementType.values().length]);
+            excerpt.writeEnum((String) null);
+            // one byte each.
+            assertEquals(8 + 4, excerpt.position());
+            excerpt.finish();
+        }
+        assertEquals(symbols.length + ElementType.values().length, dictionary.size());
+        chronicle.close();
+        dictionary.close();
+
+        // as another process would.
+        IndexedChronicle chronicle2 = new IndexedChronicle(basePath);
+        StringDictionary dictionary2 = new StringDictionary(basePath);
+        chronicle2.setEnumeratedMarshaller(new DictionaryStringMarshaller(dictionary2));
+        chronicle2.setEnumeratedMarshaller(new DictionaryEnumMarshaller<ElementType>(ElementType.class, dictionary2, null));
+        Excerpt excerpt2 = chronicle2.createExcerpt();
+        for (int i = 0; i < 30; i++) {
+            assertTrue(excerpt2.index(i));
+            assertEquals(i + 1, excerpt2.readLong());
+            assertEquals(symbols[i % symbols.length], excerpt2.readEnum(String.class));
+            assertEquals(symbols[(i + 1) % symbols.length], excerpt2.readEnum(String.class));
+            assertEquals(ElementType.values()[i % ElementType.values().length], excerpt2.readEnum(ElementType.class));
+            assertNull(excerpt2.readEnum(String.class));
+        }
+        // existing Strings keep their ids.
+        assertEquals(0, dictionary2.idFor("EURUSD"));
+        assertEquals(symbols.length + ElementType.values().length, dictionary2.idFor("new"));
+        assertEquals("new", dictionary2.stringFor(dictionary2.size() - 1));
+        chronicle2.close();
+        dictionary2.close();
+    }
+
+    @Test
+    public void testParseDoesntAddToDictionary() throws IOException {
+        String basePath = TMP + File.separator + "testDictionaryParse";
+        ChronicleTools.deleteOnExit(basePath);
+        ChronicleTools.deleteOnExit(basePath + StringDictionary.DICTIONARY_SUFFIX);
+
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        StringDictionary dictionary = new StringDictionary(basePath);
+        chronicle.setEnumeratedMarshaller(new DictionaryStringMarshaller(dictionary));
+
+        Excerpt excerpt = chronicle.createExcerpt();
+        excerpt.startExcerpt(64);
+        excerpt.append("EURUSD=GBPUSD=");
+        excerpt.finish();
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(excerpt.index(0));
+            String eurusd = excerpt.parseEnum(String.class, StopCharTesters.EQUALS);
+            assertEquals("EURUSD", eurusd);
+            assertSame(eurusd, chronicle.stringInterner().intern("EURUSD"));
+            assertEquals("GBPUSD", excerpt.parseEnum(String.class, StopCharTesters.EQUALS));
+        }
+        assertEquals(0, dictionary.size());
+
+        // looked up by content, past the first resize.
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.setLength(0);
+            sb.append("symbol-").append(i);
+            assertEquals(i, dictionary.idFor(sb));
+        }
+        for (int i = 0; i < 1000; i++) {
+            sb.setLength(0);
+            sb.append("symbol-").append(i);
+            assertEquals(i, dictionary.idFor(sb));
+            assertEquals(sb.toString(), dictionary.stringFor(i));
+        }
+        assertEquals(1000, dictionary.size());
+
+        chronicle.close();
+        dictionary.close();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class StringInternerTest {
+    @Test
+    public void testInternAndCounters() {
+        StringInterner si = new StringInterner(128);
+        String a = si.intern(new StringBuilder("EURUSD"));
+        assertEquals("EURUSD", a);
+        assertSame(a, si.intern("EURUSD"));
+        assertSame(a, si.intern(new StringBuilder("EURUSD")));
+        assertEquals(2, si.hits());
+        assertEquals(1, si.misses());
+        si.resetCounters();
+        assertEquals(0.0, si.hitRate(), 0.0);
+    }
+
+    @Test
+    public void testSimilarSymbolsFit() {
+        // similar symbols used to collide in a direct mapped table of 57 * hash.
+        StringInterner si = new StringInterner(16 * 1024);
+        int count = 4 * 1024;
+        for (int i = 0; i < count; i++)
+            si.intern(symbol(i));
+        si.resetCounters();
+        for (int i = 0; i < count; i++)
+            si.intern(symbol(i));
+        assertTrue("hitRate " + si.hitRate(), si.hitRate() > 0.95);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        StringInterner si = new StringInterner(128);
+        // find WAYS + 1 Strings in the same set.
+        String[] same = new String[StringInterner.WAYS + 1];
+        int set = StringInterner.spread("0") & (si.capacity() / StringInterner.WAYS - 1);
+        for (int i = 0, n = 0; n < same.length; i++) {
+            String s = Integer.toString(i);
+            if ((StringInterner.spread(s) & (si.capacity() / StringInterner.WAYS - 1)) == set)
+                same[n++] = s;
+        }
+        for (int i = 0; i < StringInterner.WAYS; i++)
+            si.intern(new StringBuilder(same[i]));
+        // touch the first so the second is the least recently used.
+        si.intern(new StringBuilder(same[0]));
+        si.intern(new StringBuilder(same[StringInterner.WAYS]));
+        si.resetCounters();
+        si.intern(new StringBuilder(same[0]));
+        assertEquals(0, si.misses());
+        si.intern(new StringBuilder(same[1]));
+        assertEquals(1, si.misses());
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        final StringInterner si = new StringInterner(1024);
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        Future[] futures = new Future[4];
+        for (int t = 0; t < futures.length; t++)
+            futures[t] = service.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = 0; i < 200 * 1000; i++) {
+                        sb.setLength(0);
+                        sb.append(symbol(i % 2000));
+                        assertEquals(sb.toString(), si.intern(sb));
+                    }
+                    return null;
+                }
+            });
+        for (Future future : futures)
+            future.get();
+        service.shutdown();
+        // misses are counted under a lock, lock free hits can be lost when threads race.
+        long count = si.hits() + si.misses();
+        assertTrue("count " + count, count <= 4 * 200 * 1000 && count > 4 * 200 * 1000 / 2);
+    }
+
+    static String symbol(int i) {
+        return "SYM" + (char) ('A' + i % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i / 676 % 26) + ".L";
+    }
+}
@@ -19,9 +19,11 @@ package com.higherfrequencytrading.chronicle.math;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Random;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
 
 /**
  * @author peter.lawrey
@@ -69,4 +71,165 @@ public class MutableDecimalTest {
         BigDecimal bd4 = BigDecimal.valueOf(value / 10 + 1, scale - 1);
         assertEquals(message, bd.compareTo(bd4), md.compareTo(md4));
     }
+
+    @Test
+    public void testArithmetic() {
+        Random rand = new Random(1);
+        MutableDecimal md = new MutableDecimal();
+        MutableDecimal md2 = new MutableDecimal();
+        for (int i = 0; i < 100000; i++) {
+            long v1 = rand.nextLong() >> rand.nextInt(64), v2 = rand.nextLong() >> rand.nextInt(64);
+            int s1 = rand.nextInt(20) - 4, s2 = rand.nextInt(20) - 4, s3 = rand.nextInt(20) - 4;
+            BigDecimal bd1 = BigDecimal.valueOf(v1, s1), bd2 = BigDecimal.valueOf(v2, s2);
+            RoundingMode mode = RoundingMode.values()[rand.nextInt(RoundingMode.values().length - 1)];
+            md2.set(v2, s2);
+
+            md.set(v1, s1);
+            assertOp(bd1.add(bd2), md, "add", md2, 0, null);
+            md.set(v1, s1);
+            assertOp(bd1.subtract(bd2), md, "subtract", md2, 0, null);
+            md.set(v1, s1);
+            assertOp(bd1.multiply(bd2), md, "multiply", md2, 0, null);
+            md.set(v1, s1);
+            assertOp(bd1.multiply(bd2).setScale(s3, mode), md, "multiplyRound", md2, s3, mode);
+            md.set(v1, s1);
+            if (v2 != 0)
+                assertOp(bd1.divide(bd2, s3, mode), md, "divide", md2, s3, mode);
+            md.set(v1, s1);
+            assertOp(bd1.setScale(s3, mode), md, "rescale", md2, s3, mode);
+        }
+    }
+
+    private static void assertOp(BigDecimal expected, MutableDecimal md, String op, MutableDecimal md2, int scale, RoundingMode mode) {
+        String message = md + " " + op + " " + md2 + " scale " + scale + " " + mode;
+        boolean fits = expected.unscaledValue().bitLength() < 64;
+        try {
+            if (op.equals("add")) md.add(md2);
+            else if (op.equals("subtract")) md.subtract(md2);
+            else if (op.equals("multiply")) md.multiply(md2);
+            else if (op.equals("multiplyRound")) md.multiply(md2, scale, mode);
+            else if (op.equals("divide")) md.divide(md2, scale, mode);
+            else md.rescale(scale, mode);
+        } catch (ArithmeticException e) {
+            // intermediate results can overflow when the result would fit, but only for large values.
+            if (fits && expected.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE >> 8, expected.scale())) < 0
+                    && !op.equals("multiplyRound") && !op.equals("divide"))
+                throw new AssertionError(message + " " + e);
+            return;
+        }
+        if (!fits)
+            fail(message + " should overflow");
+        assertEquals(message, expected.scale(), md.scale());
+        assertEquals(message, expected.unscaledValue().longValue(), md.value());
+    }
+
+    @Test
+    public void testCompareAtDifferentScales() {
+        assertEquals(0, new MutableDecimal(15, 1).compareTo(new MutableDecimal(150, 2)));
+        assertEquals(-1, new MutableDecimal(-15, 1).compareTo(new MutableDecimal(-149, 2)));
+        // the rescaled mantissa doesn't fit in a long.
+        assertEquals(1, new MutableDecimal(2, 0).compareTo(new MutableDecimal(Long.MAX_VALUE, 19)));
+        assertEquals(-1, new MutableDecimal(-1, -20).compareTo(new MutableDecimal(Long.MIN_VALUE, 0)));
+        assertEquals(1, new MutableDecimal(1, 0).compareTo(new MutableDecimal(1, Integer.MAX_VALUE)));
+        Random rand = new Random(2);
+        for (int i = 0; i < 200000; i++) {
+            long v1 = rand.nextLong() >> rand.nextInt(64), v2 = rand.nextLong() >> rand.nextInt(64);
+            int s1 = rand.nextInt(24) - 4, s2 = rand.nextInt(24) - 4;
+            // equal values at different scales.
+            if (i % 4 == 0 && s1 < s2 && Math.abs(v1) < 1000000000L && s2 - s1 < 9) {
+                v2 = v1 * MutableDecimal.LONG_TENS[s2 - s1];
+            }
+            assertEquals(v1 + " " + s1 + " " + v2 + " " + s2, BigDecimal.valueOf(v1, s1).compareTo(BigDecimal.valueOf(v2, s2)),
+                    new MutableDecimal(v1, s1).compareTo(new MutableDecimal(v2, s2)));
+        }
+    }
+
+    @Test
+    public void testAddWhenOnlyTheSumFits() {
+        // 10^18 * 10 overflows but adding -9.2e18 brings it back.
+        MutableDecimal md = new MutableDecimal(1000000000000000000L, 0);
+        md.add(-9200000000000000000L, 1);
+        assertEquals(1, md.scale());
+        assertEquals(800000000000000000L, md.value());
+        // 10^19 doesn't fit in a long.
+        md.set(-1, 0);
+        md.add(Long.MAX_VALUE, 19);
+        assertEquals(19, md.scale());
+        assertEquals(-776627963145224193L, md.value());
+
+        Random rand = new Random(3);
+        for (int i = 0; i < 200000; i++) {
+            long v1 = rand.nextLong() >> rand.nextInt(64), v2 = rand.nextLong() >> rand.nextInt(8);
+            int s1 = rand.nextInt(8), s2 = s1 + rand.nextInt(21);
+            BigDecimal expected = BigDecimal.valueOf(v1, s1).add(BigDecimal.valueOf(v2, s2));
+            md.set(v1, s1);
+            String message = v1 + " " + s1 + " + " + v2 + " " + s2;
+            boolean fits = expected.unscaledValue().bitLength() < 64;
+            try {
+                md.add(v2, s2);
+            } catch (ArithmeticException e) {
+                if (fits)
+                    throw new AssertionError(message + " " + e);
+                continue;
+            }
+            if (!fits)
+                fail(message + " should overflow");
+            assertEquals(message, expected.scale(), md.scale());
+            assertEquals(message, expected.unscaledValue().longValue(), md.value());
+        }
+    }
+
+    @Test
+    public void testDivideByALargeDivisor() {
+        // the divisor * 10^10 overflows but the quotient rounds to 0 or 1.
+        MutableDecimal md = new MutableDecimal(10000000000L, 10);
+        MutableDecimal tenBillion = new MutableDecimal(10000000000L);
+        assertEquals("0", md.divide(tenBillion, 0, RoundingMode.HALF_UP).toString());
+        md.set(10000000000L, 10);
+        assertEquals("1", md.divide(tenBillion, 0, RoundingMode.UP).toString());
+        // exactly a half.
+        MutableDecimal billion = new MutableDecimal(1000000000L);
+        md.set(5000000000000000000L, 10);
+        assertEquals("1", md.divide(billion, 0, RoundingMode.HALF_UP).toString());
+        md.set(5000000000000000000L, 10);
+        assertEquals("0", md.divide(billion, 0, RoundingMode.HALF_EVEN).toString());
+        md.set(-5000000000000000001L, 10);
+        assertEquals("-1", md.divide(billion, 0, RoundingMode.HALF_DOWN).toString());
+
+        Random rand = new Random(2);
+        MutableDecimal md2 = new MutableDecimal();
+        for (int i = 0; i < 100000; i++) {
+            long v1 = rand.nextLong() >> rand.nextInt(8), v2 = rand.nextLong() >> rand.nextInt(40);
+            if (v2 == 0)
+                continue;
+            // the result scale is less than the scale of the quotient.
+            int s1 = rand.nextInt(19), s3 = rand.nextInt(s1 + 1) - 1, s2 = s3 - s1 + 1 + rand.nextInt(18);
+            if (s1 - s2 - s3 < 1 || s1 - s2 - s3 > 18)
+                continue;
+            RoundingMode mode = RoundingMode.values()[rand.nextInt(RoundingMode.values().length - 1)];
+            md.set(v1, s1);
+            md2.set(v2, s2);
+            String message = md + " / " + md2 + " scale " + s3 + " " + mode;
+            BigDecimal expected = BigDecimal.valueOf(v1, s1).divide(BigDecimal.valueOf(v2, s2), s3, mode);
+            md.divide(md2, s3, mode);
+            assertEquals(message, expected.unscaledValue().longValue(), md.value());
+        }
+    }
+
+    @Test
+    public void testPriceMath() {
+        // a spread of 0.5 pips on 1.23455 and the notional of 1,500,000 at that price.
+        MutableDecimal price = new MutableDecimal(123455, 5);
+        price.add(5, 6);
+        assertEquals("1.234555", price.toString());
+        price.rescale(5, RoundingMode.HALF_EVEN);
+        assertEquals("1.23456", price.toString());
+        MutableDecimal notional = new MutableDecimal(1500000);
+        notional.multiply(price, 2, RoundingMode.HALF_UP);
+        assertEquals("1851840.00", notional.toString());
+        notional.divide(new MutableDecimal(3), 2, RoundingMode.DOWN);
+        assertEquals("617280.00", notional.toString());
+        assertEquals(1, notional.signum());
+        assertEquals("-617280.00", notional.negate().toString());
+    }
 }
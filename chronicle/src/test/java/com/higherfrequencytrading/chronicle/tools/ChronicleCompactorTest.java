@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class ChronicleCompactorTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void testCompact() throws Exception {
+        String basePath = TMP + File.separator + "testCompact";
+        ChronicleTools.deleteOnExit(basePath);
+        ChronicleTools.deleteOnExit(basePath + ".compact");
+
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 12);
+        Excerpt excerpt = chronicle.createExcerpt();
+        int keys = 10, updates = 1000;
+        for (int i = 0; i < updates; i++) {
+            excerpt.startExcerpt(32);
+            excerpt.writeUTF("key-" + i % keys);
+            excerpt.writeLong(i);
+            excerpt.finish();
+        }
+        chronicle.close();
+
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        long retained = service.submit(new ChronicleCompactor<String>(basePath, 12, chronicle.byteOrder(), new ExcerptKeyExtractor<String>() {
+            @NotNull
+            @Override
+            public String keyFor(@NotNull Excerpt excerpt) {
+                return excerpt.readUTF();
+            }
+        })).get();
+        service.shutdown();
+        assertEquals(keys, retained);
+
+        IndexedChronicle chronicle2 = new IndexedChronicle(basePath, 12);
+        assertEquals(keys, chronicle2.size());
+        Excerpt excerpt2 = chronicle2.createExcerpt();
+        for (int i = updates - keys; i < updates; i++) {
+            excerpt2.nextIndex();
+            assertEquals("key-" + i % keys, excerpt2.readUTF());
+            assertEquals(i, excerpt2.readLong());
+        }
+        assertFalse(excerpt2.nextIndex());
+        chronicle2.close();
+    }
+
+    @Test
+    public void testCompactPaddedExcerpts() throws Exception {
+        String basePath = TMP + File.separator + "testCompactPadded";
+        ChronicleTools.deleteOnExit(basePath);
+        ChronicleTools.deleteOnExit(basePath + ".compact");
+
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 12);
+        Excerpt excerpt = chronicle.createExcerpt();
+        int keys = 500, updates = 1500;
+        for (int i = 0; i < updates; i++) {
+            // over reserving pads excerpts to the end of each 4 KB block.
+            excerpt.startExcerpt(64);
+            excerpt.writeInt(i % keys + 1);
+            // ends with zero bytes which are not padding.
+            excerpt.writeLong(i);
+            excerpt.finish();
+        }
+        long padded = 0;
+        for (int i = 0; i < updates - 1; i++)
+            if (chronicle.getIndexData(i + 1) - chronicle.getIndexData(i) > 12)
+                padded++;
+        assertTrue("padded " + padded, padded > 0);
+        chronicle.close();
+
+        ChronicleCompactor<Integer> compactor = new ChronicleCompactor<Integer>(basePath, 12, chronicle.byteOrder(), new ExcerptKeyExtractor<Integer>() {
+            @NotNull
+            @Override
+            public Integer keyFor(@NotNull Excerpt excerpt) {
+                return excerpt.readInt();
+            }
+        });
+        compactor.lengthExtractor(new ExcerptLengthExtractor() {
+            @Override
+            public int lengthOf(@NotNull Excerpt excerpt) {
+                return 12;
+            }
+        });
+        long retained = compactor.compact();
+        assertEquals(keys, retained);
+
+        IndexedChronicle chronicle2 = new IndexedChronicle(basePath, 12);
+        Excerpt excerpt2 = chronicle2.createExcerpt();
+        for (int i = updates - keys; i < updates; i++) {
+            assertTrue(excerpt2.nextIndex());
+            assertEquals(i % keys + 1, excerpt2.readInt());
+            assertEquals(i, excerpt2.readLong());
+        }
+        // densely packed, 500 excerpts of 12 bytes fit in two blocks.
+        assertTrue(chronicle2.getIndexData(keys) < 4096 * 2);
+        assertFalse(excerpt2.nextIndex());
+        chronicle2.close();
+    }
+
+    @Test
+    public void testRecoverAfterPartSwapped() throws Exception {
+        String basePath = TMP + File.separator + "testCompactRecover";
+        ChronicleTools.deleteOnExit(basePath);
+        ChronicleTools.deleteOnExit(basePath + ".compact");
+
+        IndexedChronicle original = new IndexedChronicle(basePath, 12);
+        IndexedChronicle compacted = new IndexedChronicle(basePath + ".compact", 12);
+        for (IndexedChronicle chronicle : new IndexedChronicle[]{original, compacted}) {
+            Excerpt excerpt = chronicle.createExcerpt();
+            for (int i = 0; i < (chronicle == original ? 20 : 10); i++) {
+                excerpt.startExcerpt(8);
+                excerpt.writeLong(i + 1);
+                excerpt.finish();
+            }
+            chronicle.close();
+        }
+        // as if the process died after the copy was complete and the data file had been swapped.
+        File marker = new File(basePath + ".compacted");
+        marker.deleteOnExit();
+        assertTrue(marker.createNewFile());
+        assertTrue(new File(basePath + ".data").delete());
+        assertTrue(new File(basePath + ".compact.data").renameTo(new File(basePath + ".data")));
+
+        ChronicleCompactor.recover(basePath);
+        assertFalse(marker.exists());
+        IndexedChronicle chronicle2 = new IndexedChronicle(basePath, 12);
+        assertEquals(10, chronicle2.size());
+        assertFalse(new File(basePath + ".compact.index").exists());
+        chronicle2.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author peter.lawrey
+ */
+public class ColumnarMirrorTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+    static final String[] COLUMNS = {"id", "price", "quantity"};
+
+    static final ColumnExtractor EXTRACTOR = new ColumnExtractor() {
+        @Override
+        public void extract(@NotNull Excerpt excerpt, @NotNull long[] row) {
+            row[0] = excerpt.readLong();
+            excerpt.readUTF(); // not mirrored.
+            row[1] = Double.doubleToRawLongBits(excerpt.readDouble());
+            row[2] = excerpt.readInt();
+        }
+    };
+
+    @Test
+    public void testMirrorAndProject() throws IOException {
+        String basePath = TMP + File.separator + "testColumnarMirror";
+        String mirrorPath = basePath + "-mirror";
+        ChronicleTools.deleteOnExit(basePath);
+        for (String column : COLUMNS)
+            new File(mirrorPath + '.' + column + ColumnFile.SUFFIX).deleteOnExit();
+
+        IndexedChronicle chronicle = new IndexedChronicle(basePath);
+        Excerpt excerpt = chronicle.createExcerpt();
+        // more than one mapping of a column.
+        int runs = 200000;
+        append(excerpt, 0, runs / 2);
+
+        ColumnarMirror mirror = new ColumnarMirror(chronicle, mirrorPath, EXTRACTOR, COLUMNS);
+        assertEquals(runs / 2, mirror.catchUp());
+        mirror.close();
+
+        // carries on from where it was.
+        append(excerpt, runs / 2, runs);
+        mirror = new ColumnarMirror(chronicle, mirrorPath, EXTRACTOR, COLUMNS);
+        assertEquals(runs / 2, mirror.size());
+        assertEquals(runs, mirror.catchUp());
+
+        // a projection only reads the columns it needs.
+        ColumnFile price = new ColumnFile(mirrorPath, "price");
+        ColumnFile quantity = new ColumnFile(mirrorPath, "quantity");
+        assertEquals(runs, price.size());
+        double notional = 0, expected = 0;
+        for (long i = 0; i < price.size(); i++) {
+            notional += price.getDouble(i) * quantity.getLong(i);
+            expected += (100 + i % 100 / 100.0) * (i % 7 + 1);
+        }
+        assertEquals(expected, notional, 1e-6);
+        price.close();
+        quantity.close();
+        mirror.close();
+        chronicle.close();
+    }
+
+    private static void append(@NotNull Excerpt excerpt, int from, int to) {
+        for (int i = from; i < to; i++) {
+            excerpt.startExcerpt(8 + 6 + 8 + 4);
+            excerpt.writeLong(i + 1);
+            excerpt.writeUTF("VOD.L");
+            excerpt.writeDouble(100 + i % 100 / 100.0);
+            excerpt.writeInt(i % 7 + 1);
+            excerpt.finish();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class CompressingExcerptTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void testLZRoundTrip() {
+        LZCompressor compressor = new LZCompressor();
+        Random rand = new Random(1);
+        for (int length : new int[]{0, 1, 5, 12, 100, 1000, 70000}) {
+            byte[] text = new byte[length];
+            for (int i = 0; i < length; i++)
+                text[i] = (byte) ('a' + rand.nextInt(4));
+            byte[] random = new byte[length];
+            rand.nextBytes(random);
+            for (byte[] src : new byte[][]{text, random}) {
+                byte[] dst = new byte[LZCompressor.maxCompressedLength(length) + 2];
+                int clen = compressor.compress(src, 0, length, dst, 2);
+                byte[] result = new byte[length];
+                LZCompressor.decompress(dst, 2, clen, result, 0, length);
+                assertTrue(Arrays.equals(src, result));
+                if (length > 0)
+                    try {
+                        LZCompressor.decompress(dst, 2, clen, new byte[length + 1], 0, length + 1);
+                        fail("Truncated data accepted");
+                    } catch (IllegalStateException expected) {
+                    }
+            }
+        }
+    }
+
+    @Test
+    public void testPaddedCompressedExcerpts() throws IOException {
+        String basePath = TMP + File.separator + "testPaddedCompressedExcerpts";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+
+        byte[] payload = new byte[200];
+        for (int i = 0; i < payload.length; i++)
+            payload[i] = (byte) ('a' + i % 8);
+        // every so often an excerpt doesn't fit in the block and the previous, compressed one is padded to its end.
+        Excerpt excerpt = new CompressingExcerpt(chronicle.createExcerpt(), 100);
+        int count = 20000;
+        for (int i = 0; i < count; i++) {
+            excerpt.startExcerpt(payload.length);
+            excerpt.write(payload);
+            excerpt.finish();
+        }
+
+        Excerpt reader = chronicle.createExcerpt();
+        int padded = 0;
+        for (int i = 0; i < count; i++) {
+            assertTrue(reader.index(i));
+            assertTrue(CompressingExcerpt.isCompressed(reader));
+            if (reader.capacity() > payload.length)
+                padded++;
+            assertTrue(Arrays.equals(payload, CompressingExcerpt.readPayload(reader)));
+        }
+        assertTrue(padded > 0);
+        chronicle.close();
+    }
+
+    @Test
+    public void testCompressedExcerpts() throws IOException {
+        String basePath = TMP + File.separator + "testCompressedExcerpts";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+
+        StringWriter sw = new StringWriter();
+        new Throwable("test").printStackTrace(new PrintWriter(sw));
+        byte[] trace = sw.toString().getBytes();
+        while (trace.length < 8 * 1024)
+            trace = (sw.toString() + new String(trace)).getBytes();
+        byte[] small = "small".getBytes();
+        byte[] random = new byte[4 * 1024];
+        new Random(2).nextBytes(random);
+        byte[][] payloads = {trace, small, random};
+
+        Excerpt excerpt = new CompressingExcerpt(chronicle.createExcerpt(), 256);
+        for (byte[] payload : payloads) {
+            excerpt.startExcerpt(payload.length);
+            excerpt.write(payload);
+            excerpt.finish();
+        }
+
+        Excerpt reader = chronicle.createExcerpt();
+        boolean[] compressed = {true, false, false};
+        for (int i = 0; i < payloads.length; i++) {
+            assertTrue(reader.index(i));
+            assertEquals(compressed[i], CompressingExcerpt.isCompressed(reader));
+            assertEquals(payloads[i].length, CompressingExcerpt.payloadLength(reader));
+            assertTrue(Arrays.equals(payloads[i], CompressingExcerpt.readPayload(reader)));
+            if (compressed[i])
+                assertTrue(reader.capacity() * 4 < payloads[i].length);
+        }
+        chronicle.close();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.tools;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author peter.lawrey
+ */
+public class TimeSeriesTest {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void testTicks() throws IOException {
+        String basePath = TMP + File.separator + "testTimeSeries";
+        ChronicleTools.deleteOnExit(basePath);
+        IndexedChronicle chronicle = new IndexedChronicle(basePath, 16);
+        int ticks = 100000;
+        TimeSeriesWriter writer = new TimeSeriesWriter(chronicle.createExcerpt(), 1000, 1, 2);
+        long[] longs = new long[1];
+        double[] doubles = new double[2];
+        Random rand = new Random(1);
+        long time = 1371990896123456789L;
+        long price = 123455;
+        for (int i = 0; i < ticks; i++) {
+            time += 1000000 + rand.nextInt(3) * 1000;
+            price += rand.nextInt(5) - 2;
+            longs[0] = price;
+            doubles[0] = price / 1e5;
+            doubles[1] = i % 100 == 0 ? Double.NaN : 1e6 * (1 + rand.nextInt(10));
+            writer.add(time, longs, doubles);
+        }
+        writer.flush();
+        assertEquals(ticks / 1000, chronicle.size());
+        // 8 bytes per column uncompressed, most of what is left is the XOR of price / 1e5 as its mantissa is random.
+        long raw = ticks * 8L * 4;
+        long size = 0;
+        Excerpt excerpt = chronicle.createExcerpt();
+        while (excerpt.nextIndex())
+            size += excerpt.capacity();
+        assertTrue("size " + size, size * 2 < raw);
+
+        TimeSeriesReader reader = new TimeSeriesReader(chronicle.createExcerpt(), 1, 2);
+        rand = new Random(1);
+        time = 1371990896123456789L;
+        price = 123455;
+        for (int i = 0; i < ticks; i++) {
+            time += 1000000 + rand.nextInt(3) * 1000;
+            price += rand.nextInt(5) - 2;
+            assertTrue(reader.next());
+            assertEquals(time, reader.timestamp());
+            assertEquals(price, reader.longValue(0));
+            assertEquals(price / 1e5, reader.doubleValue(0), 0.0);
+            double d = i % 100 == 0 ? Double.NaN : 1e6 * (1 + rand.nextInt(10));
+            assertEquals(d, reader.doubleValue(1), 0.0);
+        }
+        assertFalse(reader.next());
+
+        try {
+            new TimeSeriesReader(chronicle.createExcerpt(), 2, 1).next();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        chronicle.close();
+    }
+}
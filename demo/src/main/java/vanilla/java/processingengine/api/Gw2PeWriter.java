@@ -17,6 +17,7 @@
 package vanilla.java.processingengine.api;
 
 import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.codegen.Marshallers;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -33,7 +34,7 @@ public class Gw2PeWriter implements Gw2PeEvents {
 
     @Override
     public void small(MetaData ignored, @NotNull SmallCommand command) {
-        excerpt.startExcerpt(200); // guess the maximum size (or calculate it)
+        excerpt.startExcerpt(Marshallers.enumSize(MessageType.small) + MetaData.GATEWAY_SIZE + SmallCommandMarshaller.sizeOf(command));
         excerpt.writeEnum(MessageType.small);
         MetaData.writeForGateway(excerpt);
         command.writeMarshallable(excerpt);
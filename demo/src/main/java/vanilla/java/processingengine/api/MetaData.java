@@ -24,6 +24,9 @@ import org.jetbrains.annotations.NotNull;
  * @author peter.lawrey
  */
 public class MetaData {
+    public static final int GATEWAY_SIZE = 8 + 8 + 4;
+    public static final int ENGINE_SIZE = 4 + 8 + 8 + 8 + 4 + 4 + 4;
+
     boolean targetReader;
 
     public int sourceId;
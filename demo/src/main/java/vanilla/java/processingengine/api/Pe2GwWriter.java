@@ -17,6 +17,7 @@
 package vanilla.java.processingengine.api;
 
 import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.codegen.Marshallers;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -31,7 +32,7 @@ public class Pe2GwWriter implements Pe2GwEvents {
 
     @Override
     public void report(@NotNull MetaData metaData, @NotNull SmallReport smallReport) {
-        excerpt.startExcerpt(200); // a guess to be lazy.
+        excerpt.startExcerpt(Marshallers.enumSize(MessageType.report) + MetaData.ENGINE_SIZE + SmallReportMarshaller.sizeOf(smallReport));
         excerpt.writeEnum(MessageType.report);
         metaData.writeForEngine(excerpt);
         smallReport.writeMarshallable(excerpt);
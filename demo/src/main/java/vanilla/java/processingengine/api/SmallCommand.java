@@ -18,11 +18,15 @@ package vanilla.java.processingengine.api;
 
 import com.higherfrequencytrading.chronicle.Excerpt;
 import com.higherfrequencytrading.chronicle.ExcerptMarshallable;
+import com.higherfrequencytrading.chronicle.codegen.GenerateMarshaller;
 import org.jetbrains.annotations.NotNull;
 
 /**
+ * The marshalling code is generated as SmallCommandMarshaller.
+ *
  * @author peter.lawrey
  */
+@GenerateMarshaller
 public class SmallCommand implements ExcerptMarshallable {
     public final StringBuilder clientOrderId = new StringBuilder();
     public String instrument;
@@ -32,21 +36,11 @@ public class SmallCommand implements ExcerptMarshallable {
 
     @Override
     public void readMarshallable(@NotNull Excerpt in) throws IllegalStateException {
-        // changes often.
-        in.readUTF(clientOrderId);
-        // cachable.
-        instrument = in.readEnum(String.class);
-        price = in.readDouble();
-        quantity = in.readInt();
-        side = in.readEnum(Side.class);
+        SmallCommandMarshaller.readFrom(in, this);
     }
 
     @Override
     public void writeMarshallable(@NotNull Excerpt out) {
-        out.writeUTF(clientOrderId);
-        out.writeEnum(instrument);
-        out.writeDouble(price);
-        out.writeInt(quantity);
-        out.writeEnum(side);
+        SmallCommandMarshaller.writeTo(out, this);
     }
 }
@@ -18,11 +18,15 @@ package vanilla.java.processingengine.api;
 
 import com.higherfrequencytrading.chronicle.Excerpt;
 import com.higherfrequencytrading.chronicle.ExcerptMarshallable;
+import com.higherfrequencytrading.chronicle.codegen.GenerateMarshaller;
 import org.jetbrains.annotations.NotNull;
 
 /**
+ * The marshalling code is generated as SmallReportMarshaller.
+ *
  * @author peter.lawrey
  */
+@GenerateMarshaller
 public class SmallReport implements ExcerptMarshallable {
     public CharSequence clientOrderId = new StringBuilder();
     public ReportStatus status;
@@ -42,17 +46,11 @@ public class SmallReport implements ExcerptMarshallable {
 
     @Override
     public void readMarshallable(@NotNull Excerpt in) throws IllegalStateException {
-        StringBuilder clientOrderId = (StringBuilder) this.clientOrderId;
-        in.readUTF(clientOrderId);
-        status = in.readEnum(ReportStatus.class);
-        StringBuilder rejectedReason = (StringBuilder) this.rejectedReason;
-        in.readUTF(rejectedReason);
+        SmallReportMarshaller.readFrom(in, this);
     }
 
     @Override
     public void writeMarshallable(@NotNull Excerpt out) {
-        out.writeUTF(clientOrderId);
-        out.writeEnum(status);
-        out.writeUTF(rejectedReason);
+        SmallReportMarshaller.writeTo(out, this);
     }
 }
@@ -18,16 +18,23 @@ package vanilla.java.stages.api;
 
 import com.higherfrequencytrading.chronicle.Excerpt;
 import com.higherfrequencytrading.chronicle.ExcerptMarshallable;
+import com.higherfrequencytrading.chronicle.codegen.Compact;
+import com.higherfrequencytrading.chronicle.codegen.GenerateMarshaller;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * User: peter Date: 05/08/13 Time: 17:40
  */
+@GenerateMarshaller
 public class UpdateLevel implements ExcerptMarshallable {
-    private double bp;
-    private double bq;
-    private double ap;
-    private double aq;
+    @Compact
+    double bp;
+    @Compact
+    double bq;
+    @Compact
+    double ap;
+    @Compact
+    double aq;
 
     public void init(double bp, double bq, double ap, double aq) {
         this.bp = bp;
@@ -38,18 +45,12 @@ public class UpdateLevel implements ExcerptMarshallable {
 
     @Override
     public void readMarshallable(@NotNull Excerpt in) throws IllegalStateException {
-        bp = in.readCompactDouble();
-        bq = in.readCompactDouble();
-        ap = in.readCompactDouble();
-        aq = in.readCompactDouble();
+        UpdateLevelMarshaller.readFrom(in, this);
     }
 
     @Override
     public void writeMarshallable(@NotNull Excerpt out) {
-        out.writeCompactDouble(bp);
-        out.writeCompactDouble(bq);
-        out.writeCompactDouble(ap);
-        out.writeCompactDouble(aq);
+        UpdateLevelMarshaller.writeTo(out, this);
     }
 
     @NotNull
@@ -113,7 +113,8 @@ public class PackedHashedTable {
             excerpt.position(size * PER_ENTRY_SIZE + HEADER_SIZE);
             excerpt.writeInt(hashCode);
             excerpt.writeInt(index);
-            excerpt.writeInt(0, size + 1);
+            // publish the entry only after it has been written.
+            excerpt.writeOrderedInt(0, size + 1);
         }
 
         private int bucket(int hashCode) {
@@ -122,7 +123,7 @@ public class PackedHashedTable {
         }
 
         private int size() {
-            return excerpt.readInt(0);
+            return excerpt.readVolatileInt(0);
         }
 
         public void lookup(int hashCode, @NotNull Excerpt recordsExcerpt, @NotNull HashRecordIterator iterator) {
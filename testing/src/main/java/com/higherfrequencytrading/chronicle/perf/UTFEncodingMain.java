@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Peter Lawrey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.higherfrequencytrading.chronicle.perf;
+
+import com.higherfrequencytrading.chronicle.Excerpt;
+import com.higherfrequencytrading.chronicle.impl.IndexedChronicle;
+import com.higherfrequencytrading.chronicle.tools.ChronicleTools;
+
+import java.io.IOException;
+
+/**
+ * Compares writeUTF/readUTF with a character at a time encoding, as writeUTF did before the ASCII fast path, for
+ * instrument codes and FIX text. Each result is the average of the measured iterations after a warm up, in the style
+ * of a JMH average time benchmark.
+ *
+ * @author peter.lawrey
+ */
+public class UTFEncodingMain {
+    static final String TMP = System.getProperty("java.io.tmpdir");
+    static final int WARMUP_ITERATIONS = 20;
+    static final int ITERATIONS = 20;
+    static final int OPS = 200 * 1000;
+
+    interface Codec {
+        void write(Excerpt excerpt, CharSequence text);
+
+        void read(Excerpt excerpt, StringBuilder sb);
+    }
+
+    static final Codec UTF = new Codec() {
+        @Override
+        public void write(Excerpt excerpt, CharSequence text) {
+            excerpt.writeUTF(text);
+        }
+
+        @Override
+        public void read(Excerpt excerpt, StringBuilder sb) {
+            excerpt.readUTF(sb);
+        }
+    };
+
+    // one character at a time, as writeUTF and appendUTF did for ASCII text before.
+    static final Codec PER_CHAR = new Codec() {
+        @Override
+        public void write(Excerpt excerpt, CharSequence text) {
+            int len = text.length();
+            int utflen = 0;
+            for (int i = 0; i < len; i++) {
+                int c = text.charAt(i);
+                utflen += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+            }
+            excerpt.writeStopBit(utflen);
+            for (int i = 0; i < len; i++)
+                excerpt.write(text.charAt(i));
+        }
+
+        @Override
+        public void read(Excerpt excerpt, StringBuilder sb) {
+            sb.setLength(0);
+            int utflen = (int) excerpt.readStopBit();
+            for (int i = 0; i < utflen; i++)
+                sb.append((char) excerpt.readByte());
+        }
+    };
+
+    public static void main(String... args) throws IOException {
+        String[] instruments = {"EURUSD", "GBPUSD", "MSFT", "VOD.L", "ESZ3", "BRK.A", "USDJPY", "AAPL"};
+        String[] fix = {
+                "8=FIX.4.2\u00019=178\u000135=8\u000149=PHLX\u000156=PERS\u000152=20071123-05:30:00.000\u000111=ATOMNOCCC9990900\u000120=3\u0001150=E\u000139=E\u000155=MSFT\u0001167=CS\u000154=1\u000138=15\u000140=2\u000144=15\u000158=PHLX EQUITY TESTING\u000159=0\u000147=C\u000132=0\u000131=0\u0001151=15\u000114=0\u00016=0\u000110=128\u0001",
+                "8=FIX.4.4\u00019=122\u000135=D\u000134=215\u000149=CLIENT12\u000152=20100225-19:41:57.316\u000156=B\u00011=Marcel\u000111=13346\u000121=1\u000140=2\u000144=5\u000154=1\u000159=0\u000160=20100225-19:39:52.020\u000110=072\u0001"};
+
+        String basePath = TMP + "/utf-encoding";
+        for (boolean useUnsafe : new boolean[]{true, false}) {
+            ChronicleTools.deleteOnExit(basePath);
+            IndexedChronicle chronicle = new IndexedChronicle(basePath, 24);
+            chronicle.useUnsafe(useUnsafe);
+            Excerpt excerpt = chronicle.createExcerpt();
+            excerpt.startExcerpt(4 << 20);
+            for (String[] texts : new String[][]{instruments, fix}) {
+                String name = (useUnsafe ? "unsafe " : "buffer ") + (texts == fix ? "FIX text" : "instruments");
+                System.out.printf("%-20s write per char %6.1f ns/op, writeUTF %6.1f ns/op, read per char %6.1f ns/op, readUTF %6.1f ns/op%n",
+                        name,
+                        time(excerpt, texts, PER_CHAR, true), time(excerpt, texts, UTF, true),
+                        time(excerpt, texts, PER_CHAR, false), time(excerpt, texts, UTF, false));
+            }
+            excerpt.finish();
+            chronicle.close();
+        }
+    }
+
+    static double time(Excerpt excerpt, String[] texts, Codec codec, boolean write) {
+        StringBuilder sb = new StringBuilder();
+        // the excerpt holds at least OPS / texts.length copies.
+        int perPass = Math.min(OPS, (4 << 20) / (texts[0].length() + 2) / 2);
+        long total = 0;
+        for (int iter = -WARMUP_ITERATIONS; iter < ITERATIONS; iter++) {
+            excerpt.position(0);
+            for (int i = 0; i < perPass; i++)
+                codec.write(excerpt, texts[i % texts.length]);
+            excerpt.position(0);
+            long start = System.nanoTime();
+            if (write) {
+                for (int i = 0; i < perPass; i++)
+                    codec.write(excerpt, texts[i % texts.length]);
+            } else {
+                for (int i = 0; i < perPass; i++)
+                    codec.read(excerpt, sb);
+            }
+            long time = System.nanoTime() - start;
+            if (iter >= 0)
+                total += time;
+        }
+        return (double) total / ITERATIONS / perPass;
+    }
+}